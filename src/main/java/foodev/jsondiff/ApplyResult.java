@@ -0,0 +1,46 @@
+package foodev.jsondiff;
+
+/**
+ * The outcome of applying a patch to one of the documents given to
+ * {@link JsonDiff#applyAll(java.util.Collection, CompiledPatch)}.
+ * 
+ * @since 2.1.0
+ */
+public final class ApplyResult {
+
+	private final Object document;
+
+	private final RuntimeException error;
+
+	ApplyResult(Object document, RuntimeException error) {
+		this.document = document;
+		this.error = error;
+	}
+
+	/**
+	 * @return the document, patched in place if applied. If applying failed it may be partly patched.
+	 */
+	public Object getDocument() {
+		return document;
+	}
+
+	/**
+	 * @return what applying the patch failed with, or <code>null</code> if applied
+	 */
+	public RuntimeException getError() {
+		return error;
+	}
+
+	/**
+	 * @return if the whole patch was applied to the document
+	 */
+	public boolean isApplied() {
+		return error == null;
+	}
+
+	@Override
+	public String toString() {
+		return isApplied() ? "applied " + document : "failed " + error;
+	}
+
+}
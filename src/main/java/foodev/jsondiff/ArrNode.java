@@ -13,24 +13,19 @@ class ArrNode extends Node {
 	void rehash(Node newParent) {
 		this.parent = newParent;
 		this.parentHashCode = newParent.hashCode;
-		int i = this.parentHashCode;
-
-		i = i * 31 + ArrNode.class.hashCode();
-		hashCode = i;
+		hashCode = fingerprint.arr(this.parentHashCode);
 	}
 
 	@Override
-	int doHash(boolean indexed) {
+	long doHash(boolean indexed) {
 
 		// this must either be the first node in which case passing
 		// false to lastArrNode must be correct, or it isn't
 		// in which case passing false is also correct.
-		int i = parent.doHash(indexed);
-
-		i = i * 31 + ArrNode.class.hashCode();
+		long i = fingerprint.arr(parent.doHash(indexed));
 		if (indexed) {
 			int adjusted = index;
-			i = i * 31 + adjusted;
+			i = fingerprint.index(i, adjusted);
 		}
 		return i;
 
@@ -40,4 +35,4 @@ class ArrNode extends Node {
 	public String toString() {
 		return "" + index;
 	}
-}
\ No newline at end of file
+}
@@ -0,0 +1,135 @@
+package foodev.jsondiff;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.RandomAccess;
+
+/**
+ * Array backed list of the children of a {@link Leaf}, where each leaf remembers its position in the list it was last
+ * added to. Positions behind an insert or removal are renumbered lazily on the next lookup, so the usual pattern of
+ * looking up a leaf and inserting right after it costs a single array copy instead of a scan.
+ */
+final class ChildList extends AbstractList<Leaf> implements RandomAccess {
+
+	private static final Leaf[] EMPTY = {};
+
+	private Leaf[] elements = EMPTY;
+	private int size;
+
+	// positions stored in the leaves are correct below this index
+	private int valid;
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	@Override
+	public Leaf get(int index) {
+		if (index >= size) {
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+		}
+		return elements[index];
+	}
+
+	@Override
+	public void add(int index, Leaf leaf) {
+		if (index < 0 || index > size) {
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+		}
+		grow(size + 1);
+		System.arraycopy(elements, index, elements, index + 1, size - index);
+		elements[index] = leaf;
+		size++;
+		leaf.owner = this;
+		leaf.position = index;
+		if (valid >= index) {
+			valid = index + 1;
+		}
+		modCount++;
+	}
+
+	@Override
+	public boolean addAll(int index, Collection<? extends Leaf> c) {
+		if (index < 0 || index > size) {
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+		}
+		Leaf[] added = c.toArray(new Leaf[c.size()]);
+		grow(size + added.length);
+		System.arraycopy(elements, index, elements, index + added.length, size - index);
+		System.arraycopy(added, 0, elements, index, added.length);
+		size += added.length;
+		for (int i = 0; i < added.length; i++) {
+			added[i].owner = this;
+			added[i].position = index + i;
+		}
+		if (valid >= index) {
+			valid = index + added.length;
+		}
+		modCount++;
+		return added.length > 0;
+	}
+
+	@Override
+	public Leaf remove(int index) {
+		Leaf removed = get(index);
+		removeRange(index, index + 1);
+		return removed;
+	}
+
+	@Override
+	public void clear() {
+		removeRange(0, size);
+	}
+
+	@Override
+	protected void removeRange(int fromIndex, int toIndex) {
+		for (int i = fromIndex; i < toIndex; i++) {
+			if (elements[i].owner == this) {
+				elements[i].owner = null;
+			}
+		}
+		System.arraycopy(elements, toIndex, elements, fromIndex, size - toIndex);
+		Arrays.fill(elements, size - (toIndex - fromIndex), size, null);
+		size -= toIndex - fromIndex;
+		valid = Math.min(valid, fromIndex);
+		modCount++;
+	}
+
+	/**
+	 * Returns the position of the given leaf instance, or -1 if it is null or not in the list.
+	 */
+	int position(Leaf leaf) {
+		if (leaf != null && leaf.owner == this) {
+			if (leaf.position >= valid) {
+				renumber();
+			}
+			if (leaf.position < size && elements[leaf.position] == leaf) {
+				return leaf.position;
+			}
+		}
+		// added to another list since, or not in this one
+		for (int i = 0; i < size; i++) {
+			if (elements[i] == leaf) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	private void renumber() {
+		for (int i = valid; i < size; i++) {
+			elements[i].owner = this;
+			elements[i].position = i;
+		}
+		valid = size;
+	}
+
+	private void grow(int capacity) {
+		if (capacity > elements.length) {
+			elements = Arrays.copyOf(elements, Math.max(capacity, Math.max(4, elements.length * 2)));
+		}
+	}
+
+}
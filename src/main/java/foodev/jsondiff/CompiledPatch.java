@@ -0,0 +1,304 @@
+package foodev.jsondiff;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.TreeSet;
+
+import foodev.jsondiff.JsonDiff.Instruction;
+import foodev.jsondiff.jsonwrap.JzonArray;
+import foodev.jsondiff.jsonwrap.JzonElement;
+import foodev.jsondiff.jsonwrap.JzonObject;
+import foodev.jsondiff.jsonwrap.Wrapper;
+
+/**
+ * A patch parsed and checked once, to be applied to any number of documents with
+ * {@link JsonDiff#apply(Object, CompiledPatch)}. The nested patch objects are turned into one flat program of typed
+ * operations, in the order <code>JsonDiff.apply</code> would carry them out, with keys split and indexes parsed up
+ * front. Applying it makes the same changes as applying the patch itself.
+ *
+ * <p>
+ * Compiled patches are immutable and may be shared between threads: objects and arrays are copied out of the patch
+ * into every document they are added to. The patch itself must not be changed once compiled. A patch that could not be
+ * applied to any document, such as one with an instruction list that isn't an array, is rejected when compiling.
+ * </p>
+ *
+ * @see JsonDiff#compile(Object)
+ * @since 2.1.0
+ */
+public final class CompiledPatch {
+
+	// select the element the following partial instructions apply to: the current one, or a member or element of it
+	private static final byte SELECT = 0;
+
+	// one instruction of a "~" list, applied to the selected element
+	private static final byte PARTIAL = 1;
+
+	// insert or delete a member or element of the current element
+	private static final byte INSERT_DELETE = 2;
+
+	// replace an element of the current array, or a member of the current object, by a primitive
+	private static final byte SET_INDEX = 3;
+	private static final byte SET_KEY = 4;
+
+	// apply a nested patch to an element of the current array or a member of the current object, until EXIT
+	private static final byte ENTER_INDEX = 5;
+	private static final byte ENTER_KEY = 6;
+	private static final byte EXIT = 7;
+
+	// parsed index for keys that are not a number, parsed again to fail the same way
+	private static final int NOT_A_NUMBER = Integer.MIN_VALUE;
+
+	final Class<? extends JsonDiff> kind;
+
+	private final JsonDiff owner;
+	private final Wrapper factory;
+
+	private final JzonObject patch;
+
+	// per operation
+	private byte[] ops = new byte[16];
+	private String[] keys = new String[16];
+	private int[] indexes = new int[16];
+	private Instruction[] instructions = new Instruction[16];
+	private JzonElement[] values = new JzonElement[16];
+	private int size;
+
+	// deepest nesting of ENTER operations
+	private int depth;
+
+	private CompiledPatch(JsonDiff owner, JzonObject patch) {
+		this.kind = owner.getClass();
+		this.owner = owner;
+		this.factory = owner.factory;
+		this.patch = patch;
+		compile(patch, 0);
+		ops = Arrays.copyOf(ops, size);
+		keys = Arrays.copyOf(keys, size);
+		indexes = Arrays.copyOf(indexes, size);
+		instructions = Arrays.copyOf(instructions, size);
+		values = Arrays.copyOf(values, size);
+	}
+
+	static CompiledPatch of(JsonDiff owner, JzonElement patch) {
+		if (!patch.isJsonObject()) {
+			throw new IllegalArgumentException("Patch is not a json object");
+		}
+		return new CompiledPatch(owner, (JzonObject) patch);
+	}
+
+	/**
+	 * @return the patch that was compiled, of the type accepted by the diff that compiled it
+	 */
+	public Object getPatch() {
+		return patch.unwrap();
+	}
+
+	/**
+	 * @return the number of operations the patch was compiled to
+	 */
+	public int size() {
+		return size;
+	}
+
+	private void compile(JzonObject patch, int level) {
+
+		depth = Math.max(depth, level);
+
+		Set<Entry<String, JzonElement>> memb = new TreeSet<Entry<String, JzonElement>>(JsonDiff.INSTRUCTIONS_COMPARATOR);
+		memb.addAll(patch.entrySet());
+		for (Entry<String, JzonElement> entry : memb) {
+			String key = entry.getKey();
+			JzonElement value = entry.getValue();
+			if (key.startsWith(JsonDiff.MOD)) {
+				if (!value.isJsonArray()) {
+					throw new IllegalArgumentException("Instructions of " + key + " are not an array");
+				}
+				add(SELECT, key, key.equals(JsonDiff.MOD) ? 0 : parse(key.substring(1)), null, null);
+				JzonArray array = (JzonArray) value;
+				for (int i = 0; i < array.size(); i++) {
+					JzonElement partial = array.get(i);
+					Iterator<? extends Entry<String, JzonElement>> it = partial.isJsonObject() ? ((JzonObject) partial).entrySet().iterator() : null;
+					if (it == null || !it.hasNext()) {
+						throw new IllegalArgumentException("Instruction " + partial + " of " + key + " is not a single member object");
+					}
+					Entry<String, JzonElement> childentry = it.next();
+					add(PARTIAL, key, 0, owner.create(childentry.getKey()), childentry.getValue());
+				}
+			} else {
+				Instruction instruction = owner.create(key);
+				if (instruction.oper == Oper.INSERT || instruction.oper == Oper.DELETE) {
+					add(INSERT_DELETE, key, 0, instruction, value);
+				} else if (instruction.isIndexed()) {
+					if (value.isJsonPrimitive()) {
+						add(SET_INDEX, key, instruction.index, null, value);
+					} else {
+						add(ENTER_INDEX, key, instruction.index, null, null);
+						compile(nested(key, value), level + 1);
+						add(EXIT, key, 0, null, null);
+					}
+				} else if (value.isJsonPrimitive() || value.isJsonNull()) {
+					add(SET_KEY, key, 0, null, value);
+				} else {
+					add(ENTER_KEY, key, 0, null, null);
+					compile(nested(key, value), level + 1);
+					add(EXIT, key, 0, null, null);
+				}
+			}
+		}
+	}
+
+	private static JzonObject nested(String key, JzonElement value) {
+		if (!value.isJsonObject()) {
+			throw new IllegalArgumentException("Patch of " + key + " is not a json object");
+		}
+		return (JzonObject) value;
+	}
+
+	private static int parse(String index) {
+		try {
+			return Integer.parseInt(index);
+		} catch (NumberFormatException e) {
+			return NOT_A_NUMBER;
+		}
+	}
+
+	private void add(byte op, String key, int index, Instruction instruction, JzonElement value) {
+		if (size == ops.length) {
+			int capacity = size * 2;
+			ops = Arrays.copyOf(ops, capacity);
+			keys = Arrays.copyOf(keys, capacity);
+			indexes = Arrays.copyOf(indexes, capacity);
+			instructions = Arrays.copyOf(instructions, capacity);
+			values = Arrays.copyOf(values, capacity);
+		}
+		ops[size] = op;
+		keys[size] = key;
+		indexes[size] = index;
+		instructions[size] = instruction;
+		values[size] = value;
+		size++;
+	}
+
+	/**
+	 * Runs the program on a document, as <code>JsonDiff.apply(doc, patch)</code>.
+	 */
+	void apply(JzonElement doc) {
+
+		JzonElement[] stack = new JzonElement[depth + 1];
+		int top = 0;
+		stack[0] = doc;
+
+		JzonElement applyTo = null;
+
+		for (int pc = 0; pc < size; pc++) {
+			JzonElement origEl = stack[top];
+			String key = keys[pc];
+			switch (ops[pc]) {
+
+			case SELECT:
+				if (key.equals(JsonDiff.MOD)) {
+					applyTo = origEl;
+				} else if (origEl.isJsonArray()) {
+					int index = indexes[pc] != NOT_A_NUMBER ? indexes[pc] : Integer.parseInt(key.substring(1));
+					applyTo = ((JzonArray) origEl).get(index);
+				} else {
+					applyTo = ((JzonObject) origEl).get(key.substring(1));
+				}
+				break;
+
+			case PARTIAL:
+				Instruction instruction = instructions[pc];
+				boolean newAppliance = false;
+				if (instruction.isIndexed() && !applyTo.isJsonArray()) {
+					applyTo = factory.createJsonArray();
+					newAppliance = true;
+				} else if (!instruction.isIndexed() && !applyTo.isJsonObject()) {
+					applyTo = factory.createJsonObject();
+					newAppliance = true;
+				}
+				if (newAppliance) {
+					if (origEl.isJsonArray()) {
+						int index = Integer.parseInt(key);
+						((JzonArray) origEl).insert(index, applyTo);
+					} else {
+						((JzonObject) origEl).add(key.substring(1), applyTo);
+					}
+				}
+				owner.applyPartial(applyTo, instruction, copy(values[pc]));
+				break;
+
+			case INSERT_DELETE:
+				owner.applyPartial(origEl, instructions[pc], copy(values[pc]));
+				break;
+
+			case SET_INDEX:
+				if (!origEl.isJsonArray()) {
+					throw new IllegalArgumentException();
+				}
+				((JzonArray) origEl).set(indexes[pc], values[pc]);
+				break;
+
+			case SET_KEY:
+				if (!origEl.isJsonObject()) {
+					throw new IllegalArgumentException();
+				}
+				((JzonObject) origEl).add(key, values[pc]);
+				break;
+
+			case ENTER_INDEX:
+				if (!origEl.isJsonArray()) {
+					throw new IllegalArgumentException();
+				}
+				if (((JzonArray) origEl).size() <= indexes[pc]) {
+					throw new IllegalArgumentException("Wrong index " + indexes[pc] + " for " + origEl);
+				}
+				stack[++top] = ((JzonArray) origEl).get(indexes[pc]);
+				break;
+
+			case ENTER_KEY:
+				if (!origEl.isJsonObject()) {
+					throw new IllegalArgumentException();
+				}
+				stack[++top] = ((JzonObject) origEl).get(key);
+				break;
+
+			case EXIT:
+				stack[top--] = null;
+				break;
+
+			default:
+				throw new IllegalStateException("Unknown operation " + ops[pc]);
+			}
+		}
+	}
+
+	/**
+	 * @return the value to put into a document: containers are copied, primitives never change
+	 */
+	private JzonElement copy(JzonElement value) {
+		if (value != null && (value.isJsonObject() || value.isJsonArray())) {
+			return owner.deepCopy(value);
+		}
+		return value;
+	}
+
+	/**
+	 * @return the operations, one per line
+	 */
+	@Override
+	public String toString() {
+		String[] names = { "SELECT", "PARTIAL", "INSERT_DELETE", "SET_INDEX", "SET_KEY", "ENTER_INDEX", "ENTER_KEY", "EXIT" };
+		StringBuilder sb = new StringBuilder();
+		for (int pc = 0; pc < size; pc++) {
+			sb.append(names[ops[pc]]).append(' ').append(keys[pc]);
+			if (values[pc] != null) {
+				sb.append(' ').append(values[pc]);
+			}
+			sb.append('\n');
+		}
+		return sb.toString();
+	}
+
+}
@@ -0,0 +1,73 @@
+package foodev.jsondiff;
+
+/**
+ * Diffs a chain of versions of a document, each against the one before. Every version is flattened and hashed once,
+ * as a {@link DiffSnapshot}: as the target of one diff and then as the origin of the next.
+ * 
+ * <pre>
+ * DiffSession session = diff.session(v1);
+ * String patch12 = session.next(v2);
+ * String patch23 = session.next(v3);
+ * </pre>
+ * 
+ * <p>
+ * A session is not thread safe. The settings of the diff it was started from must not change during the session.
+ * </p>
+ * 
+ * @see JsonDiff#session(Object)
+ * @since 2.1.0
+ */
+public final class DiffSession {
+
+	private final JsonDiff diff;
+
+	private DiffSnapshot base;
+
+	DiffSession(JsonDiff diff, DiffSnapshot base) {
+		this.diff = diff;
+		this.base = base;
+	}
+
+	/**
+	 * Diffs the next version against the previous one, which it then replaces. Accepts a GSON JsonObject or (if jar is
+	 * provided) a Jackson style ObjectNode.
+	 * 
+	 * @param version
+	 *            Next version. One of JsonObject or ObjectNode (if jar available).
+	 * @return Object containing the instructions to go from the previous version to this one.
+	 * @throws IllegalArgumentException
+	 *             if the given argument is not accepted.
+	 */
+	public Object next(Object version) throws IllegalArgumentException {
+
+		DiffSnapshot next = diff.snapshot(version);
+		Object patch = diff.diff(base, next).unwrap();
+		base = next;
+		return patch;
+	}
+
+	/**
+	 * Diffs the next version given as string against the previous one, which it then replaces.
+	 * 
+	 * @param version
+	 *            Next version
+	 * @return The set of instructions to go from the previous version to this one as a JSON object {}.
+	 * @throws IllegalArgumentException
+	 *             if the given argument is not accepted.
+	 */
+	public String next(String version) throws IllegalArgumentException {
+
+		DiffSnapshot next = diff.snapshot(version);
+		String patch = diff.diff(base, next).toString();
+		base = next;
+		return patch;
+	}
+
+	/**
+	 * @return snapshot of the latest version, the origin of the next diff
+	 */
+	public DiffSnapshot getBase() {
+		return base;
+	}
+
+}
@@ -0,0 +1,230 @@
+package foodev.jsondiff;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.TreeSet;
+
+import foodev.jsondiff.jsonwrap.JzonArray;
+import foodev.jsondiff.jsonwrap.JzonElement;
+import foodev.jsondiff.jsonwrap.JzonObject;
+
+/**
+ * A document flattened and hashed once, to be diffed against many others with
+ * {@link JsonDiff#diff(DiffSnapshot, Object)}. The leaves of the document are kept as plain arrays in the order the
+ * diff visits them; every diff builds its own leaves and nodes from these without hashing or sorting anything again.
+ *
+ * <p>
+ * Snapshots are immutable and may be shared between threads. They can only be diffed by a {@link JsonDiff} of the same
+ * kind, using the same {@link Fingerprint} and path rules, as the one that took them. The document must not be changed while a
+ * snapshot of it is in use.
+ * </p>
+ *
+ * @see JsonDiff#snapshot(Object)
+ * @since 2.1.0
+ */
+public final class DiffSnapshot {
+
+	final Class<? extends JsonDiff> kind;
+	final Fingerprint fingerprint;
+	final PathRules rules;
+
+	final JzonObject root;
+
+	// per leaf in visiting order, the root first
+	final JzonElement[] elements;
+	final int[] parents;
+	final String[] keys;
+	final long[] keyHashes;
+	final int[] indexes;
+	final long[] hashCodes;
+	final long[] parentHashCodes;
+	final long[] fingerprints;
+
+	// per leaf, the position behind its last descendant leaf, and its number in the Merkle hashes, which also count
+	// the elements the path rules leave out
+	final int[] ends;
+	final int[] merkleIndexes;
+
+	// content hashes to collapse subtrees with, if taken when skipping identical subtrees
+	private final Merkle merkle;
+
+	private DiffSnapshot(JsonDiff owner, JzonObject root) {
+
+		this.kind = owner.getClass();
+		this.fingerprint = owner.getFingerprint();
+		this.rules = owner.rules;
+		this.root = root;
+
+		List<Leaf> leaves = new ArrayList<Leaf>();
+		owner.findLeaves(new Root(fingerprint), root, leaves, new HashMap<Long, ArrNode>());
+
+		int n = leaves.size();
+		elements = new JzonElement[n];
+		parents = new int[n];
+		keys = new String[n];
+		keyHashes = new long[n];
+		indexes = new int[n];
+		hashCodes = new long[n];
+		parentHashCodes = new long[n];
+		fingerprints = new long[n];
+
+		Map<Leaf, Integer> positions = new IdentityHashMap<Leaf, Integer>();
+		for (int i = 0; i < n; i++) {
+			Leaf leaf = leaves.get(i);
+			positions.put(leaf, i);
+			elements[i] = leaf.val;
+			parents[i] = leaf.parent.parent == null ? -1 : positions.get(leaf.parent.parent.leaf);
+			if (leaf.parent instanceof ObjNode) {
+				keys[i] = ((ObjNode) leaf.parent).key;
+				keyHashes[i] = ((ObjNode) leaf.parent).keyHash;
+			} else if (leaf.parent instanceof ArrNode) {
+				indexes[i] = ((ArrNode) leaf.parent).index;
+			}
+			hashCodes[i] = leaf.parent.hashCode;
+			parentHashCodes[i] = leaf.parent.parentHashCode;
+			fingerprints[i] = leaf.fingerprint;
+		}
+
+		ends = new int[n];
+		for (int i = n - 1; i >= 0; i--) {
+			ends[i] = Math.max(ends[i], i + 1);
+			if (parents[i] >= 0) {
+				ends[parents[i]] = Math.max(ends[parents[i]], ends[i]);
+			}
+		}
+		merkleIndexes = new int[n];
+		number(root, rules, 0, 0);
+
+		merkle = owner.isSkipIdenticalSubtrees() ? Merkle.of(root, fingerprint) : null;
+	}
+
+	/**
+	 * Numbers the elements of a subtree as the Merkle hashes do, recording the numbers of those flattened into leaves.
+	 *
+	 * @return the leaf and the number following the subtree, packed as <code>leaf << 32 | number</code>
+	 */
+	private long number(JzonElement el, PathRules rules, int leaf, int number) {
+		merkleIndexes[leaf++] = number++;
+		if (el.isJsonObject()) {
+			Set<Entry<String, JzonElement>> memb = new TreeSet<Entry<String, JzonElement>>(JsonDiff.OBJECT_KEY_COMPARATOR);
+			memb.addAll(((JzonObject) el).entrySet());
+			for (Entry<String, JzonElement> e : memb) {
+				PathRules childRules = rules == null ? null : rules.member(e.getKey());
+				if (childRules != null && childRules.isSkipped()) {
+					number += size(e.getValue());
+				} else {
+					long next = number(e.getValue(), childRules, leaf, number);
+					leaf = (int) (next >>> 32);
+					number = (int) next;
+				}
+			}
+		} else if (el.isJsonArray()) {
+			JzonArray arr = (JzonArray) el;
+			PathRules childRules = rules == null ? null : rules.elements();
+			for (int i = 0, n = arr.size(); i < n; i++) {
+				if (childRules != null && childRules.isSkipped()) {
+					number += size(arr.get(i));
+				} else {
+					long next = number(arr.get(i), childRules, leaf, number);
+					leaf = (int) (next >>> 32);
+					number = (int) next;
+				}
+			}
+		}
+		return (long) leaf << 32 | number;
+	}
+
+	/**
+	 * @return the number of elements in a subtree
+	 */
+	private static int size(JzonElement el) {
+		int size = 1;
+		if (el.isJsonObject()) {
+			for (Entry<String, JzonElement> e : ((JzonObject) el).entrySet()) {
+				size += size(e.getValue());
+			}
+		} else if (el.isJsonArray()) {
+			JzonArray arr = (JzonArray) el;
+			for (int i = 0, n = arr.size(); i < n; i++) {
+				size += size(arr.get(i));
+			}
+		}
+		return size;
+	}
+
+	static DiffSnapshot of(JsonDiff owner, JzonElement el) {
+		if (!el.isJsonObject()) {
+			throw new IllegalArgumentException("Snapshot is not a json object");
+		}
+		return new DiffSnapshot(owner, (JzonObject) el);
+	}
+
+	/**
+	 * @return content hashes of the document, for a single diff
+	 */
+	Merkle merkle() {
+		return merkle != null ? merkle.copy() : Merkle.of(root, fingerprint);
+	}
+
+	/**
+	 * @return the document the snapshot was taken of, of the type accepted by the diff that took it
+	 */
+	public Object getDocument() {
+		return root.unwrap();
+	}
+
+	/**
+	 * Builds fresh leaves for the document, in visiting order, as <code>JsonDiff.findLeaves</code> would. Subtrees
+	 * shared with the other document are collapsed if <code>merkle</code> is given.
+	 */
+	void leaves(JsonDiff owner, List<Leaf> leaves, Merkle merkle) {
+
+		Node[] nodes = new Node[elements.length];
+		Leaf[] built = new Leaf[elements.length];
+
+		for (int i = 0; i < elements.length; i++) {
+
+			Node node;
+			if (parents[i] < 0) {
+				node = new Root(fingerprint);
+			} else if (keys[i] != null) {
+				node = new ObjNode(nodes[parents[i]], keys[i], keyHashes[i]);
+			} else {
+				node = new ArrNode(nodes[parents[i]], indexes[i]);
+			}
+			node.hashCode = hashCodes[i];
+			node.parentHashCode = parentHashCodes[i];
+			nodes[i] = node;
+
+			Leaf leaf = new Leaf(node, elements[i]);
+			leaf.factory = owner.factory;
+			if (owner.getVisitor() != null) {
+				leaf.visitor = owner;
+			}
+			leaf.fingerprint = fingerprints[i];
+			built[i] = leaf;
+			leaves.add(leaf);
+			if (parents[i] >= 0) {
+				built[parents[i]].children.add(leaf);
+			}
+
+			if (merkle != null && (elements[i].isJsonObject() || elements[i].isJsonArray()) && merkle.isShared(merkleIndexes[i], hashCodes[i])) {
+				// unchanged subtree: one opaque leaf that only matches its twin
+				leaf.fingerprint = Fingerprint.mix(leaf.fingerprint, merkle.content[merkleIndexes[i]]);
+				i = ends[i] - 1;
+			}
+		}
+
+		for (Leaf leaf : built) {
+			if (leaf != null) {
+				leaf.newStructure.addAll(leaf.children);
+			}
+		}
+	}
+
+}
@@ -0,0 +1,162 @@
+package foodev.jsondiff;
+
+import foodev.jsondiff.jsonwrap.JzonElement;
+
+/**
+ * How the structural hashes identifying nodes and leaves are computed. Leaves with equal hashes are considered equal
+ * when matching the two documents, so a collision between unrelated leaves leads to bigger patches.
+ *
+ * @since 2.1.0
+ */
+public enum Fingerprint {
+
+	/**
+	 * 32 bit hashes built from <code>hashCode()</code>. This is the default.
+	 */
+	BITS_32 {
+
+		@Override
+		long key(String key) {
+			return key.hashCode();
+		}
+
+		@Override
+		long obj(long parent, long key) {
+			int i = (int) parent;
+			i = i * 31 + ObjNode.class.hashCode();
+			i = i * 31 + (int) key;
+			return i;
+		}
+
+		@Override
+		long arr(long parent) {
+			int i = (int) parent;
+			i = i * 31 + ArrNode.class.hashCode();
+			return i;
+		}
+
+		@Override
+		long index(long arr, int index) {
+			return (int) arr * 31 + index;
+		}
+
+		@Override
+		long leaf(long parent, JzonElement val) {
+			int i = (int) parent;
+			if (val.isJsonArray()) {
+				// for arr and obj we must hash in a type qualifier
+				// since otherwise changes between these kinds of
+				// nodes will be considered equal
+				i = i * 31 + ArrNode.class.hashCode();
+			} else if (val.isJsonObject()) {
+				i = i * 31 + ObjNode.class.hashCode();
+			} else {
+				i = i * 31 + (val.isJsonPrimitive() || val.isJsonNull() ? val.hashCode() : 0);
+			}
+			return i;
+		}
+	},
+
+	/**
+	 * 64 bit hashes with every step run through a strong mixing function. Primitive values are hashed from their JSON
+	 * text. Use this for documents with millions of leaves, where 32 bit hashes start matching unrelated leaves.
+	 */
+	BITS_64 {
+
+		@Override
+		long key(String key) {
+			return text(KEY, key);
+		}
+
+		@Override
+		long obj(long parent, long key) {
+			return mix(mix(parent, OBJ), key);
+		}
+
+		@Override
+		long arr(long parent) {
+			return mix(parent, ARR);
+		}
+
+		@Override
+		long index(long arr, int index) {
+			return mix(arr, index);
+		}
+
+		@Override
+		long leaf(long parent, JzonElement val) {
+			if (val.isJsonArray()) {
+				return mix(parent, ARR);
+			} else if (val.isJsonObject()) {
+				return mix(parent, OBJ);
+			} else if (val.isJsonNull()) {
+				return mix(parent, NULL);
+			} else if (val instanceof MappedValue) {
+				// hashed from its bytes
+				return mix(parent, ((MappedValue) val).hash);
+			}
+			return mix(parent, text(VALUE, val.toString()));
+		}
+	};
+
+	// arbitrary odd constants separating the kinds of hashed input
+	static final long OBJ = 0x8F1BBCDCCA62C1D6L;
+	static final long ARR = 0xC3EFE9DB5A827999L;
+	static final long NULL = 0xB5297A4D3C6EF372L;
+	static final long KEY = 0x6ED9EBA1A54FF53AL;
+	static final long VALUE = 0x510E527F9B05688CL;
+
+	/**
+	 * @return the hash of an object member key
+	 */
+	abstract long key(String key);
+
+	/**
+	 * @return the hash of an object member, given the hash of its parent and of its key
+	 */
+	abstract long obj(long parent, long key);
+
+	/**
+	 * @return the hash of an array element, given the hash of its parent
+	 */
+	abstract long arr(long parent);
+
+	/**
+	 * @return the hash of an array element qualified with its index
+	 */
+	abstract long index(long arr, int index);
+
+	/**
+	 * @return the hash identifying a leaf, given the hash of its node
+	 */
+	abstract long leaf(long parent, JzonElement val);
+
+	/**
+	 * Combines a hash with a value, finishing with the murmur3 64 bit mixer.
+	 */
+	static long mix(long h, long v) {
+		h ^= Long.rotateLeft(v * 0x87C37B91114253D5L, 31) * 0x4CF5AD432745937FL;
+		h = Long.rotateLeft(h, 27) * 5 + 0x52DCE729;
+		h ^= h >>> 33;
+		h *= 0xFF51AFD7ED558CCDL;
+		h ^= h >>> 33;
+		h *= 0xC4CEB9FE1A85EC53L;
+		h ^= h >>> 33;
+		return h;
+	}
+
+	static long text(long seed, String s) {
+		long h = seed ^ s.length();
+		int i = 0;
+		for (int n = s.length() - 3; i < n; i += 4) {
+			long chunk = ((long) s.charAt(i) << 48) | ((long) s.charAt(i + 1) << 32) | ((long) s.charAt(i + 2) << 16) | s.charAt(i + 3);
+			h = mix(h, chunk);
+		}
+		long tail = 0;
+		for (; i < s.length(); i++) {
+			tail = (tail << 16) | s.charAt(i);
+		}
+		return mix(h, tail);
+	}
+
+}
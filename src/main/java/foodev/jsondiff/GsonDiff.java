@@ -14,4 +14,8 @@ public class GsonDiff extends JsonDiff {
 	public JsonObject diff(JsonElement from, JsonElement to) throws IllegalArgumentException {
 		return (JsonObject) super.diff(from, to);
 	}
+
+	public JsonObject diff(DiffSnapshot from, JsonElement to) throws IllegalArgumentException {
+		return (JsonObject) super.diff(from, to);
+	}
 }
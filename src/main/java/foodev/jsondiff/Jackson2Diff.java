@@ -1,5 +1,13 @@
 package foodev.jsondiff;
 
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+
 import foodev.jsondiff.jsonwrap.jackson2.Jackson2Wrapper;
 
 public class Jackson2Diff extends JsonDiff {
@@ -8,4 +16,117 @@ public class Jackson2Diff extends JsonDiff {
 		super(new Jackson2Wrapper());
 	}
 
+	/**
+	 * Diffs two documents read from parsers, flattening them into the leaves the diff matches as their tokens are read,
+	 * instead of parsing them into trees and walking those again. Objects and arrays are only built as trees when they
+	 * end up in the patch. The patch is the same as the one {@link #diff(Object, Object)} gives for the parsed
+	 * documents. Diffs that look at both documents as trees, being {@link #setHierarchical(boolean) hierarchical},
+	 * {@link #setSkipIdenticalSubtrees(boolean) skipping identical subtrees}, pruned, keyed or spread over an
+	 * executor, read the documents as trees first.
+	 *
+	 * @param from
+	 *            Parser of the original document, before or at its first token. Left open.
+	 * @param to
+	 *            Parser of the document to diff against, before or at its first token. Left open.
+	 * @return the patch, a JsonNode
+	 * @throws IllegalArgumentException
+	 *             if either document is not an object.
+	 * @throws IOException
+	 *             if reading fails.
+	 */
+	public Object diff(JsonParser from, JsonParser to) throws IllegalArgumentException, IOException {
+
+		return LeafReader.diff(this, from, to).unwrap();
+	}
+
+	/**
+	 * Diffs two documents read as characters, see {@link #diff(JsonParser, JsonParser)}. Each document is expected to
+	 * be an object {}.
+	 *
+	 * @param from
+	 *            The original document. Left open.
+	 * @param to
+	 *            The document to diff against. Left open.
+	 * @return the patch
+	 * @throws IllegalArgumentException
+	 *             if either document is not an object.
+	 * @throws IOException
+	 *             if reading fails.
+	 */
+	public String diff(Reader from, Reader to) throws IllegalArgumentException, IOException {
+
+		JsonFactory json = jsonFactory();
+		JsonParser fromParser = json.createParser(from);
+		JsonParser toParser = json.createParser(to);
+		try {
+			return LeafReader.diff(this, fromParser, toParser).toString();
+		} finally {
+			fromParser.close();
+			toParser.close();
+		}
+	}
+
+	/**
+	 * Patches a document read from a parser in one pass, writing the result to a generator. Members and elements the
+	 * patch doesn't touch are copied token by token, only the values instructions change are read into trees, so
+	 * documents far larger than the heap can be patched. The result is the same as parsing the document, applying the
+	 * patch with {@link #apply(Object, Object)} and writing it out.
+	 *
+	 * @param parser
+	 *            Parser of the document to patch, before or at its first token. Left open.
+	 * @param patch
+	 *            Object holding patch instructions, a JsonNode.
+	 * @param generator
+	 *            Generator to write the patched document to. Flushed, but left open.
+	 * @throws IllegalArgumentException
+	 *             if the patch can't be applied to the document. Part of the document may have been written.
+	 * @throws IOException
+	 *             if reading or writing fails.
+	 */
+	public void apply(JsonParser parser, Object patch, JsonGenerator generator) throws IllegalArgumentException, IOException {
+
+		new StreamingApply(this, parser, generator).apply(factory.wrap(patch));
+	}
+
+	/**
+	 * Patches a document read as characters in one pass, see {@link #apply(JsonParser, Object, JsonGenerator)}. The
+	 * patch is expected to be an object {}.
+	 *
+	 * @param reader
+	 *            The document to patch. Left open.
+	 * @param patch
+	 *            The set of instructions to use.
+	 * @param writer
+	 *            Where the patched document is written. Flushed, but left open.
+	 * @throws IllegalArgumentException
+	 *             if the patch can't be applied to the document. Part of the document may have been written.
+	 * @throws IOException
+	 *             if reading or writing fails.
+	 */
+	public void apply(Reader reader, String patch, Writer writer) throws IllegalArgumentException, IOException {
+
+		JsonFactory json = jsonFactory();
+		JsonParser parser = json.createParser(reader);
+		JsonGenerator generator = json.createGenerator(writer);
+		try {
+			new StreamingApply(this, parser, generator).apply(factory.parse(patch));
+		} finally {
+			parser.close();
+			generator.close();
+		}
+	}
+
+	/**
+	 * @return a factory for parsers and generators over streams the caller closes, lenient as the wrapper's parser
+	 */
+	private static JsonFactory jsonFactory() {
+		JsonFactory json = new JsonFactory();
+		json.disable(JsonParser.Feature.AUTO_CLOSE_SOURCE);
+		json.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+		json.disable(JsonGenerator.Feature.AUTO_CLOSE_JSON_CONTENT);
+		json.enable(JsonParser.Feature.ALLOW_UNQUOTED_FIELD_NAMES);
+		json.enable(JsonParser.Feature.ALLOW_SINGLE_QUOTES);
+		return json;
+	}
+
 }
@@ -0,0 +1,237 @@
+package foodev.jsondiff;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
+
+/**
+ * UTF-8 JSON text held in buffers, typically a file mapped in chunks, so documents bigger than both the heap and a
+ * single buffer can be read. Offers the few scans needed to find values in the text without parsing them: where a
+ * value ends, the key a string holds, and a hash of a value's bytes.
+ */
+final class JsonBytes {
+
+	private final static Charset UTF_8 = Charset.forName("UTF-8");
+
+	// files are mapped in chunks of 1GB
+	private final static int CHUNK_BITS = 30;
+
+	private final static long CHUNK_MASK = (1L << CHUNK_BITS) - 1;
+
+	private final ByteBuffer[] chunks;
+
+	// the file mapped, if any
+	private final FileChannel channel;
+
+	final long size;
+
+	/**
+	 * Maps the whole file read only. The mapping outlives the channel, but bytes are only copied from the file while
+	 * the channel is open.
+	 */
+	JsonBytes(FileChannel channel) throws IOException {
+		this.channel = channel;
+		size = channel.size();
+		chunks = new ByteBuffer[(int) ((size + CHUNK_MASK) >>> CHUNK_BITS)];
+		for (int i = 0; i < chunks.length; i++) {
+			long start = (long) i << CHUNK_BITS;
+			chunks[i] = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(1L << CHUNK_BITS, size - start));
+		}
+	}
+
+	/**
+	 * Reads the remaining bytes of a buffer, leaving its position as it is.
+	 */
+	JsonBytes(ByteBuffer buf) {
+		channel = null;
+		size = buf.remaining();
+		chunks = new ByteBuffer[] { buf.slice() };
+	}
+
+	byte get(long pos) {
+		if (pos >= size) {
+			throw new IllegalArgumentException("Unexpected end of json at " + pos);
+		}
+		return chunks[(int) (pos >>> CHUNK_BITS)].get((int) (pos & CHUNK_MASK));
+	}
+
+	/**
+	 * @return the position of the first character from <code>pos</code> on that is not whitespace, or the size
+	 */
+	long skipSpace(long pos) {
+		while (pos < size) {
+			byte b = get(pos);
+			if (b != ' ' && b != '\n' && b != '\r' && b != '\t') {
+				break;
+			}
+			pos++;
+		}
+		return pos;
+	}
+
+	/**
+	 * @return the position after the value starting at <code>pos</code>. Primitives are only checked to start as one.
+	 */
+	long valueEnd(long pos) {
+		byte b = get(pos);
+		if (b == '"') {
+			return stringEnd(pos);
+		} else if (b == '{' || b == '[') {
+			int depth = 0;
+			do {
+				b = get(pos);
+				if (b == '"') {
+					pos = stringEnd(pos);
+					continue;
+				} else if (b == '{' || b == '[') {
+					depth++;
+				} else if (b == '}' || b == ']') {
+					depth--;
+				}
+				pos++;
+			} while (depth > 0);
+			return pos;
+		} else if (b == '-' || (b >= '0' && b <= '9') || b == 't' || b == 'f' || b == 'n') {
+			while (pos < size) {
+				b = get(pos);
+				if (b == ',' || b == '}' || b == ']' || b == ':' || b == ' ' || b == '\n' || b == '\r' || b == '\t') {
+					break;
+				}
+				pos++;
+			}
+			return pos;
+		}
+		throw unexpected(pos);
+	}
+
+	/**
+	 * @return the position after the string starting with the quote at <code>pos</code>
+	 */
+	long stringEnd(long pos) {
+		if (get(pos) != '"') {
+			throw unexpected(pos);
+		}
+		for (pos++;; pos++) {
+			byte b = get(pos);
+			if (b == '"') {
+				return pos + 1;
+			} else if (b == '\\') {
+				pos++;
+			}
+		}
+	}
+
+	/**
+	 * @return the text of the string between <code>start</code> and <code>end</code>, quotes included, with its
+	 *         escapes resolved
+	 */
+	String string(long start, long end) {
+		StringBuilder bld = new StringBuilder((int) (end - start));
+		for (long pos = start + 1; pos < end - 1;) {
+			byte b = get(pos);
+			if (b == '\\') {
+				char c = (char) get(pos + 1);
+				pos += 2;
+				switch (c) {
+				case 'b':
+					bld.append('\b');
+					break;
+				case 'f':
+					bld.append('\f');
+					break;
+				case 'n':
+					bld.append('\n');
+					break;
+				case 'r':
+					bld.append('\r');
+					break;
+				case 't':
+					bld.append('\t');
+					break;
+				case 'u':
+					bld.append((char) Integer.parseInt(text(pos, pos + 4), 16));
+					pos += 4;
+					break;
+				default:
+					bld.append(c);
+				}
+			} else if (b >= 0) {
+				bld.append((char) b);
+				pos++;
+			} else {
+				// decode a run of multi byte characters at once
+				long run = pos;
+				while (pos < end - 1 && get(pos) < 0) {
+					pos++;
+				}
+				bld.append(text(run, pos));
+			}
+		}
+		return bld.toString();
+	}
+
+	byte[] bytes(long start, long end) {
+		if (end - start > Integer.MAX_VALUE) {
+			throw new IllegalArgumentException("Value of " + (end - start) + " bytes at " + start);
+		}
+		byte[] bytes = new byte[(int) (end - start)];
+		for (int i = 0; i < bytes.length; i++) {
+			bytes[i] = get(start + i);
+		}
+		return bytes;
+	}
+
+	/**
+	 * Writes the bytes between <code>start</code> and <code>end</code> to a channel, by
+	 * {@link FileChannel#transferTo(long, long, WritableByteChannel)} while the file is open.
+	 */
+	void copy(long start, long end, WritableByteChannel out) throws IOException {
+		if (channel != null && channel.isOpen()) {
+			while (start < end) {
+				start += channel.transferTo(start, end - start, out);
+			}
+			return;
+		}
+		while (start < end) {
+			ByteBuffer chunk = chunks[(int) (start >>> CHUNK_BITS)].duplicate();
+			chunk.position((int) (start & CHUNK_MASK));
+			chunk.limit((int) Math.min(chunk.capacity(), chunk.position() + (end - start)));
+			start += chunk.remaining();
+			while (chunk.hasRemaining()) {
+				out.write(chunk);
+			}
+		}
+	}
+
+	String text(long start, long end) {
+		return new String(bytes(start, end), UTF_8);
+	}
+
+	/**
+	 * @return a 64 bit hash of the bytes between <code>start</code> and <code>end</code>, mixed as
+	 *         {@link Fingerprint#text(long, String)} mixes characters
+	 */
+	long hash(long start, long end) {
+		long h = Fingerprint.VALUE ^ (end - start);
+		long pos = start;
+		for (; pos + 8 <= end; pos += 8) {
+			long chunk = 0;
+			for (int i = 0; i < 8; i++) {
+				chunk = (chunk << 8) | (get(pos + i) & 0xff);
+			}
+			h = Fingerprint.mix(h, chunk);
+		}
+		long tail = 0;
+		for (; pos < end; pos++) {
+			tail = (tail << 8) | (get(pos) & 0xff);
+		}
+		return Fingerprint.mix(h, tail);
+	}
+
+	IllegalArgumentException unexpected(long pos) {
+		return new IllegalArgumentException("Unexpected character '" + (char) get(pos) + "' at " + pos);
+	}
+
+}
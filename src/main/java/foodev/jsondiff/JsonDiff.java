@@ -1,14 +1,34 @@
 package foodev.jsondiff;
 
-import foodev.jsondiff.incava.IncavaDiff;
 import foodev.jsondiff.incava.IncavaEntry;
+import foodev.jsondiff.incava.SequenceDiffer;
+import foodev.jsondiff.incava.SequenceDiffers;
+import foodev.jsondiff.jsonwrap.CopyingWrapper;
 import foodev.jsondiff.jsonwrap.JzonArray;
 import foodev.jsondiff.jsonwrap.JzonElement;
 import foodev.jsondiff.jsonwrap.JzonObject;
+import foodev.jsondiff.jsonwrap.StreamingWrapper;
 import foodev.jsondiff.jsonwrap.Wrapper;
 
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.*;
 import java.util.Map.Entry;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 import java.util.logging.Logger;
 
 /**
@@ -75,6 +95,8 @@ public class JsonDiff {
 
 	static final Logger LOG = Logger.getLogger(JsonDiff.class.getName());
 
+	private static final Charset UTF_8 = Charset.forName("UTF-8");
+
 	protected final Wrapper factory;
 
 	final static Comparator<Entry<String, JzonElement>> INSTRUCTIONS_COMPARATOR = new Comparator<Entry<String, JzonElement>>() {
@@ -102,20 +124,118 @@ public class JsonDiff {
 	@SuppressWarnings("rawtypes")
 	private Visitor visitor;
 
+	@SuppressWarnings("rawtypes")
+	private Pruner pruner;
+
+	private SequenceDiffer sequenceDiffer = SequenceDiffers.MYERS;
+
+	private Fingerprint fingerprint = Fingerprint.BITS_32;
+
+	private int linearSpaceThreshold = 100000;
+
+	private ExecutorService executor;
+
+	private boolean skipIdenticalSubtrees;
+
+	private boolean hierarchical;
+
+	// array path to the key field matching its elements
+	final Map<String, String> arrayKeys = new HashMap<String, String>();
+
+	// paths to ignore (true) or include (false), and the trie compiled from them
+	private final Map<String, Boolean> pathRules = new LinkedHashMap<String, Boolean>();
+	PathRules rules;
+
 	JsonDiff(Wrapper factory) {
 		this.factory = factory;
 	}
 
-	@SuppressWarnings({ "unchecked", "rawtypes" })
-	boolean accept(Leaf leaf, JzonArray instructions, JzonObject childPatch) {
-		JzonObject object = (JzonObject) factory.parse(leaf.val.toString());
+	/**
+	 * Matches the elements of the arrays at <code>path</code> by the value of a key field, such as <code>"id"</code>,
+	 * instead of by content. Pairs of elements with the same key are diffed with each other, so a moved or edited
+	 * element does not turn into a delete and an insert; elements whose key only occurs in one of the arrays are
+	 * inserted or deleted. The path is a JSON pointer to the array with <code>*</code> for every array index on the
+	 * way, e.g. <code>/orders/&#42;/lines</code>. Registering a key switches to the {@link #setHierarchical(boolean)
+	 * hierarchical} diff.
+	 * 
+	 * @param path
+	 *            - JSON pointer of the arrays
+	 * @param field
+	 *            - key field of the array elements
+	 */
+	public void addArrayKey(String path, String field) {
+		if (path == null || field == null) {
+			throw new IllegalArgumentException("path and field must not be null");
+		}
+		arrayKeys.put(path, field);
+	}
+
+	/**
+	 * Leaves the values at <code>path</code> out of the diff, in both documents, so the patch neither adds, removes
+	 * nor changes them. The path is a JSON pointer with <code>*</code> for the elements of an array, e.g.
+	 * <code>/items/&#42;/etag</code>. Ignored values and everything below them are never flattened, unless a path
+	 * below is {@link #includePath(String) included} again.
+	 * 
+	 * @param path
+	 *            - JSON pointer of the values to ignore
+	 */
+	public void ignorePath(String path) {
+		addPathRule(path, true);
+	}
+
+	/**
+	 * Diffs the values at <code>path</code> even though a path above it is {@link #ignorePath(String) ignored}, e.g.
+	 * <code>/meta/version</code> with <code>/meta</code> ignored. The closest rule on or above a path decides.
+	 * 
+	 * @param path
+	 *            - JSON pointer of the values to include
+	 */
+	public void includePath(String path) {
+		addPathRule(path, false);
+	}
+
+	private void addPathRule(String path, boolean ignore) {
+		if (path == null) {
+			throw new IllegalArgumentException("path must not be null");
+		}
+		PathRules.segments(path);
+		pathRules.put(path, ignore);
+		rules = PathRules.compile(pathRules);
+	}
+
+	@SuppressWarnings("unchecked")
+	boolean accept(JzonElement from, JzonArray instructions, JzonObject childPatch) {
+		JzonElement object = deepCopy(from);
 		JzonObject patch = factory.createJsonObject();
 		patch.add(MOD, instructions);
-		if (!childPatch.entrySet().isEmpty()) {
-			patch.entrySet().addAll((Collection) childPatch.entrySet());
+		for (Entry<String, JzonElement> e : childPatch.entrySet()) {
+			patch.add(e.getKey(), e.getValue());
 		}
 		apply(object, patch);
-		return visitor.shouldCreatePatch(leaf.val.unwrap(), object.unwrap());
+		return visitor.shouldCreatePatch(from.unwrap(), object.unwrap());
+	}
+
+	/**
+	 * @return a copy of <code>el</code>, made by the wrapper if it is a {@link CopyingWrapper}, otherwise parsed from
+	 *         its string form
+	 */
+	JzonElement deepCopy(JzonElement el) {
+		if (factory instanceof CopyingWrapper) {
+			return ((CopyingWrapper) factory).deepCopy(el);
+		}
+		return factory.parse(el.toString());
+	}
+
+	/**
+	 * Asks the pruner, if any, how to diff the values at <code>path</code>. Either value may be <code>null</code>.
+	 */
+	@SuppressWarnings("unchecked")
+	Pruner.Decision prune(String path, JzonElement from, JzonElement to) {
+		if (pruner == null) {
+			return Pruner.Decision.DIFF;
+		}
+		Pruner.Decision decision = pruner.prune(path, from == null ? null : from.unwrap(), to == null ? null : to.unwrap());
+		return decision == null ? Pruner.Decision.DIFF : decision;
 	}
 
 	void apply(JzonElement origEl, JzonElement patchEl) throws IllegalArgumentException {
@@ -218,6 +338,178 @@ public class JsonDiff {
 
 	}
 
+	/**
+	 * Patches the first argument with a patch compiled up front, see {@link #compile(Object)}. Accepts a GSON
+	 * JsonObject or (if jar is provided) a Jackson style ObjectNode.
+	 * 
+	 * @param orig
+	 *            Object to patch. One of JsonObject or ObjectNode (if jar available).
+	 * @param patch
+	 *            Patch compiled by a diff of the same kind.
+	 * @throws IllegalArgumentException
+	 *             if the given arguments are not accepted.
+	 */
+	public void apply(Object orig, CompiledPatch patch) {
+
+		checkPatch(patch);
+		patch.apply(factory.wrap(orig));
+
+	}
+
+	/**
+	 * Modifies the given original JSON object using a patch compiled up front and returns the result, see
+	 * {@link #compile(String)}.
+	 * 
+	 * @param orig
+	 *            The original JSON object to modify.
+	 * @param patch
+	 *            Patch compiled by a diff of the same kind.
+	 * @return The modified JSON object.
+	 * @throws IllegalArgumentException
+	 *             if the given arguments are not accepted.
+	 */
+	public String apply(String orig, CompiledPatch patch) throws IllegalArgumentException {
+
+		checkPatch(patch);
+		JzonElement origEl = factory.parse(orig);
+		patch.apply(origEl);
+		return origEl.toString();
+
+	}
+
+	/**
+	 * Patches every document of a batch, such as copies of a configuration, on the {@link #setExecutor(ExecutorService)
+	 * executor} if any. The patch is compiled once, see {@link #compile(Object)}, and every document patched in place
+	 * by its own task. A document the patch can't be applied to doesn't stop the others.
+	 * 
+	 * @param docs
+	 *            Objects to patch. Each one of JsonObject or ObjectNode (if jar available).
+	 * @param patch
+	 *            Object holding patch instructions. One of JsonObject or ObjectNode (if jar available).
+	 * @return per document in the order given, if it was patched
+	 * @throws IllegalArgumentException
+	 *             if the patch can't be applied to any document.
+	 */
+	public List<ApplyResult> applyAll(Collection<?> docs, Object patch) throws IllegalArgumentException {
+
+		return applyAll(docs, compile(patch));
+	}
+
+	/**
+	 * Patches every document of a batch with a patch compiled up front, on the {@link #setExecutor(ExecutorService)
+	 * executor} if any, see {@link #applyAll(Collection, Object)}.
+	 * 
+	 * @param docs
+	 *            Objects to patch. Each one of JsonObject or ObjectNode (if jar available).
+	 * @param patch
+	 *            Patch compiled by a diff of the same kind.
+	 * @return per document in the order given, if it was patched
+	 * @throws IllegalArgumentException
+	 *             if the patch was compiled by a different kind of diff.
+	 */
+	public List<ApplyResult> applyAll(Collection<?> docs, final CompiledPatch patch) throws IllegalArgumentException {
+
+		checkPatch(patch);
+
+		List<Future<ApplyResult>> futures = new ArrayList<Future<ApplyResult>>(docs.size());
+		for (final Object doc : docs) {
+			futures.add(MemberDiff.submit(executor, new Callable<ApplyResult>() {
+
+				@Override
+				public ApplyResult call() {
+					try {
+						patch.apply(factory.wrap(doc));
+						return new ApplyResult(doc, null);
+					} catch (RuntimeException e) {
+						return new ApplyResult(doc, e);
+					}
+				}
+			}));
+		}
+
+		List<ApplyResult> results = new ArrayList<ApplyResult>(futures.size());
+		for (Future<ApplyResult> future : futures) {
+			results.add(MemberDiff.get(future));
+		}
+		return results;
+	}
+
+	void checkPatch(CompiledPatch patch) {
+		if (patch.kind != getClass()) {
+			throw new IllegalArgumentException("Patch compiled by a different kind of diff");
+		}
+	}
+
+	/**
+	 * Parses and checks a patch once for any number of documents to apply it to, see {@link CompiledPatch}. Accepts a
+	 * GSON JsonObject or (if jar is provided) a Jackson style ObjectNode.
+	 * 
+	 * @param patch
+	 *            Object holding patch instructions. One of JsonObject or ObjectNode (if jar available).
+	 * @return the compiled patch
+	 * @throws IllegalArgumentException
+	 *             if the patch can't be applied to any document.
+	 */
+	public CompiledPatch compile(Object patch) throws IllegalArgumentException {
+
+		return CompiledPatch.of(this, factory.wrap(patch));
+	}
+
+	/**
+	 * Parses and checks a patch given as string once for any number of documents to apply it to, see
+	 * {@link CompiledPatch}. The patch is expected to be an object {}.
+	 * 
+	 * @param patch
+	 *            The set of instructions to compile.
+	 * @return the compiled patch
+	 * @throws IllegalArgumentException
+	 *             if the patch can't be applied to any document.
+	 */
+	public CompiledPatch compile(String patch) throws IllegalArgumentException {
+
+		return CompiledPatch.of(this, factory.parse(patch));
+	}
+
+	/**
+	 * Squashes patches meant to be applied one after the other into a single patch making the same changes, without
+	 * the document they apply to. Array indexes shifted by the inserts and deletes of earlier patches are worked out
+	 * against the original array. Accepts GSON JsonObjects or (if jar is provided) Jackson style ObjectNodes.
+	 *
+	 * @param patches
+	 *            Objects holding patch instructions, in the order they would be applied. One of JsonObject or
+	 *            ObjectNode (if jar available).
+	 * @return the composed patch, of the same type
+	 * @throws IllegalArgumentException
+	 *             if the patches can't be applied one after the other to any document.
+	 */
+	public Object compose(Object... patches) throws IllegalArgumentException {
+
+		List<JzonElement> patchEls = new ArrayList<JzonElement>(patches.length);
+		for (Object patch : patches) {
+			patchEls.add(factory.wrap(patch));
+		}
+		return new PatchComposer(this).compose(patchEls).unwrap();
+	}
+
+	/**
+	 * Squashes patches given as strings into a single patch making the same changes, see {@link #compose(Object...)}.
+	 * Each patch is expected to be an object {}.
+	 *
+	 * @param patches
+	 *            The sets of instructions, in the order they would be applied.
+	 * @return the composed patch
+	 * @throws IllegalArgumentException
+	 *             if the patches can't be applied one after the other to any document.
+	 */
+	public String compose(String... patches) throws IllegalArgumentException {
+
+		List<JzonElement> patchEls = new ArrayList<JzonElement>(patches.length);
+		for (String patch : patches) {
+			patchEls.add(factory.parse(patch));
+		}
+		return new PatchComposer(this).compose(patchEls).toString();
+	}
+
 	/**
 	 * Modifies the given original JSON object using the instructions provided and returns the result. Each argument is expected to be a JSON object {}.
 	 * 
@@ -241,6 +533,171 @@ public class JsonDiff {
 
 	}
 
+	/**
+	 * Modifies a JSON object read from characters using the instructions read after it, see
+	 * {@link #apply(String, String)}, writing the result to <code>out</code>.
+	 * 
+	 * @param orig
+	 *            The original JSON object to modify, left open
+	 * @param patch
+	 *            The set of instructions to use, left open
+	 * @param out
+	 *            Where the modified JSON object is written, flushed but left open
+	 * @throws IOException
+	 *             if reading or writing fails
+	 * @throws IllegalArgumentException
+	 *             if the given arguments are not accepted.
+	 */
+	public void apply(Reader orig, Reader patch, Writer out) throws IOException, IllegalArgumentException {
+
+		JzonElement origEl = parse(orig);
+		apply(origEl, parse(patch));
+		write(origEl, out);
+	}
+
+	/**
+	 * Modifies a JSON object read from bytes using the instructions read after it, see {@link #apply(String, String)},
+	 * writing the result in UTF-8 to <code>out</code>.
+	 * 
+	 * @param orig
+	 *            The original JSON object to modify, left open
+	 * @param patch
+	 *            The set of instructions to use, left open
+	 * @param out
+	 *            Where the modified JSON object is written, flushed but left open
+	 * @throws IOException
+	 *             if reading or writing fails
+	 * @throws IllegalArgumentException
+	 *             if the given arguments are not accepted.
+	 */
+	public void apply(InputStream orig, InputStream patch, OutputStream out) throws IOException, IllegalArgumentException {
+
+		JzonElement origEl = parse(orig);
+		apply(origEl, parse(patch));
+		write(origEl, out);
+	}
+
+	/**
+	 * Modifies a JSON object given as bytes, see {@link #apply(InputStream, InputStream, OutputStream)}.
+	 * 
+	 * @param orig
+	 *            The original JSON object to modify.
+	 * @param patch
+	 *            The set of instructions to use.
+	 * @param out
+	 *            Where the modified JSON object is written, flushed but left open
+	 * @throws IOException
+	 *             if writing fails
+	 * @throws IllegalArgumentException
+	 *             if the given arguments are not accepted.
+	 */
+	public void apply(byte[] orig, byte[] patch, OutputStream out) throws IOException, IllegalArgumentException {
+
+		JzonElement origEl = parse(orig, 0, orig.length);
+		apply(origEl, parse(patch, 0, patch.length));
+		write(origEl, out);
+	}
+
+	/**
+	 * Modifies a JSON object held in the remaining bytes of a buffer, see
+	 * {@link #apply(InputStream, InputStream, OutputStream)}. The positions of the buffers are left as they are.
+	 * 
+	 * @param orig
+	 *            The original JSON object to modify.
+	 * @param patch
+	 *            The set of instructions to use.
+	 * @param out
+	 *            Where the modified JSON object is written, flushed but left open
+	 * @throws IOException
+	 *             if writing fails
+	 * @throws IllegalArgumentException
+	 *             if the given arguments are not accepted.
+	 */
+	public void apply(ByteBuffer orig, ByteBuffer patch, OutputStream out) throws IOException, IllegalArgumentException {
+
+		JzonElement origEl = parse(orig);
+		apply(origEl, parse(patch));
+		write(origEl, out);
+	}
+
+	/**
+	 * Modifies a JSON object read from a file, see {@link #apply(InputStream, InputStream, OutputStream)}.
+	 * 
+	 * @param orig
+	 *            The original JSON object to modify.
+	 * @param patch
+	 *            The set of instructions to use.
+	 * @param out
+	 *            Where the modified JSON object is written, flushed but left open
+	 * @throws IOException
+	 *             if reading or writing fails
+	 * @throws IllegalArgumentException
+	 *             if the given arguments are not accepted.
+	 */
+	public void apply(Path orig, Path patch, OutputStream out) throws IOException, IllegalArgumentException {
+
+		JzonElement origEl = parse(orig);
+		apply(origEl, parse(patch));
+		write(origEl, out);
+	}
+
+	/**
+	 * Patches a JSON document given as UTF-8 bytes by splicing: only the objects and arrays the patch goes into are
+	 * scanned for where their members and elements are, and only the values it changes are parsed and written anew.
+	 * Everything else is copied as it is, so the cost follows the size of the patch rather than of the document, and the
+	 * layout of what wasn't changed is kept. The result is the same document {@link #apply(String, String)} gives. The
+	 * document must be strict JSON.
+	 * 
+	 * @param orig
+	 *            The original JSON document to patch.
+	 * @param patch
+	 *            The set of instructions to use.
+	 * @param out
+	 *            Where the patched document is written, flushed but left open
+	 * @throws IOException
+	 *             if writing fails
+	 * @throws IllegalArgumentException
+	 *             if the given arguments are not accepted. Part of the document may have been written.
+	 * @since 2.1.0
+	 */
+	public void splice(byte[] orig, String patch, OutputStream out) throws IOException, IllegalArgumentException {
+
+		new SpliceApply(this, new JsonBytes(ByteBuffer.wrap(orig)), Channels.newChannel(out)).apply(factory.parse(patch));
+	}
+
+	/**
+	 * Patches a JSON document file by splicing, see {@link #splice(byte[], String, OutputStream)}. The file is mapped
+	 * into memory to find what the patch is about, and what it leaves alone is copied to the result file by
+	 * {@link FileChannel#transferTo(long, long, java.nio.channels.WritableByteChannel)}.
+	 * 
+	 * @param orig
+	 *            The original JSON document to patch.
+	 * @param patch
+	 *            The set of instructions to use.
+	 * @param out
+	 *            The file the patched document is written to, replaced if it exists. Must not be <code>orig</code>.
+	 * @throws IOException
+	 *             if reading or writing fails
+	 * @throws IllegalArgumentException
+	 *             if the given arguments are not accepted.
+	 * @since 2.1.0
+	 */
+	public void splice(Path orig, String patch, Path out) throws IOException, IllegalArgumentException {
+
+		JzonElement patchEl = factory.parse(patch);
+		FileChannel in = FileChannel.open(orig, StandardOpenOption.READ);
+		try {
+			FileChannel target = FileChannel.open(out, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+			try {
+				new SpliceApply(this, new JsonBytes(in), target).apply(patchEl);
+			} finally {
+				target.close();
+			}
+		} finally {
+			in.close();
+		}
+	}
+
 	void applyPartial(JzonElement applyTo, Instruction instruction, JzonElement value) {
 		if (instruction.oper == Oper.DELETE) {
 			if (instruction.isIndexed()) {
@@ -306,21 +763,137 @@ public class JsonDiff {
 		JzonObject from = (JzonObject) fromEl;
 		JzonObject to = (JzonObject) toEl;
 
-		Root fromRoot = new Root();
-		Root toRoot = new Root();
+		if (executor != null) {
+			return new MemberDiff(this).diff(from, to);
+		}
+		return diff(from, to, null);
+	}
+
+	/**
+	 * Diffs two objects. If <code>flattenOn</code> is given, <code>from</code> is flattened there while
+	 * <code>to</code> is flattened on the calling thread.
+	 */
+	JzonObject diff(final JzonObject from, final JzonObject to, ExecutorService flattenOn) {
+
+		if (hierarchical || !arrayKeys.isEmpty()) {
+			return new TreeDiff(this).diff(from, to);
+		}
+
+		final Root fromRoot = new Root(fingerprint);
+		Root toRoot = new Root(fingerprint);
+
+		final LeafSequence fromLeaves = new LeafSequence();
+		ArrayList<Leaf> toLeaves = new ArrayList<Leaf>();
+
+		final HashMap<Long, ArrNode> fromArrs = new HashMap<Long, ArrNode>();
+		HashMap<Long, ArrNode> toArrs = new HashMap<Long, ArrNode>();
+
+		Merkle fromHashes = null;
+		Merkle toMerkle = null;
+		if (skipIdenticalSubtrees) {
+			// both sides are hashed before either is flattened, since flattening looks at the other side's hashes
+			Future<Merkle> fromHashed = MemberDiff.submit(flattenOn, new Callable<Merkle>() {
+
+				@Override
+				public Merkle call() {
+					return Merkle.of(from, fingerprint);
+				}
+			});
+			toMerkle = Merkle.of(to, fingerprint);
+			fromHashes = MemberDiff.get(fromHashed);
+			Merkle.pair(fromHashes, toMerkle);
+		}
+
+		final Merkle fromMerkle = fromHashes;
+		final String pointer = pruner == null ? null : "";
+		Future<Leaf> fromFlattened = MemberDiff.submit(flattenOn, new Callable<Leaf>() {
+
+			@Override
+			public Leaf call() {
+				return findLeaves(fromRoot, from, fromLeaves, fromArrs, fromMerkle, rules, pointer, to, true);
+			}
+		});
+		findLeaves(toRoot, to, toLeaves, toArrs, toMerkle, rules, pointer, from, false);
+		MemberDiff.get(fromFlattened);
+
+		return diff(fromLeaves, toLeaves);
+	}
+
+	JzonObject diff(DiffSnapshot from, JzonElement toEl) {
+
+		checkSnapshot(from);
+		if (!toEl.isJsonObject()) {
+			throw new IllegalArgumentException("To is not a json object");
+		}
+
+		JzonObject to = (JzonObject) toEl;
+
+		if (hierarchical || !arrayKeys.isEmpty() || pruner != null) {
+			// nothing to reuse, or pruning needs both documents
+			return diff(from.root, to, null);
+		}
+
+		Merkle fromMerkle = null;
+		Merkle toMerkle = null;
+		if (skipIdenticalSubtrees) {
+			fromMerkle = from.merkle();
+			toMerkle = Merkle.of(to, fingerprint);
+			Merkle.pair(fromMerkle, toMerkle);
+		}
+
+		LeafSequence fromLeaves = new LeafSequence();
+		from.leaves(this, fromLeaves, fromMerkle);
+		ArrayList<Leaf> toLeaves = new ArrayList<Leaf>();
+		findLeaves(new Root(fingerprint), to, toLeaves, new HashMap<Long, ArrNode>(), toMerkle);
+
+		return diff(fromLeaves, toLeaves);
+	}
+
+	JzonObject diff(DiffSnapshot from, DiffSnapshot to) {
+
+		checkSnapshot(from);
+		checkSnapshot(to);
+
+		if (hierarchical || !arrayKeys.isEmpty() || pruner != null) {
+			return diff(from.root, to.root, null);
+		}
+
+		Merkle fromMerkle = null;
+		Merkle toMerkle = null;
+		if (skipIdenticalSubtrees) {
+			fromMerkle = from.merkle();
+			toMerkle = to.merkle();
+			Merkle.pair(fromMerkle, toMerkle);
+		}
 
-		ArrayList<Leaf> fromLeaves = new ArrayList<Leaf>();
+		LeafSequence fromLeaves = new LeafSequence();
+		from.leaves(this, fromLeaves, fromMerkle);
 		ArrayList<Leaf> toLeaves = new ArrayList<Leaf>();
+		to.leaves(this, toLeaves, toMerkle);
+
+		return diff(fromLeaves, toLeaves);
+	}
 
-		HashMap<Integer, ArrNode> fromArrs = new HashMap<Integer, ArrNode>();
-		HashMap<Integer, ArrNode> toArrs = new HashMap<Integer, ArrNode>();
+	/**
+	 * @return if whole documents are diffed as flattened leaf sequences by <code>diff(LeafSequence, List)</code>, with
+	 *         nothing looking at both trees first
+	 */
+	boolean isFlat() {
+		return !hierarchical && arrayKeys.isEmpty() && pruner == null && !skipIdenticalSubtrees && executor == null;
+	}
 
-		findLeaves(fromRoot, from, fromLeaves, fromArrs);
-		findLeaves(toRoot, to, toLeaves, toArrs);
+	void checkSnapshot(DiffSnapshot snapshot) {
+		if (snapshot.kind != getClass() || snapshot.fingerprint != fingerprint || snapshot.rules != rules) {
+			throw new IllegalArgumentException("Snapshot taken by a different kind of diff");
+		}
+	}
 
-		IncavaDiff<Leaf> idiff = new IncavaDiff<Leaf>(fromLeaves, toLeaves);
+	/**
+	 * Matches the flattened documents and rebuilds the graph of <code>from</code> into the patch.
+	 */
+	JzonObject diff(LeafSequence fromLeaves, List<Leaf> toLeaves) {
 
-		List<IncavaEntry> diff = idiff.diff();
+		List<IncavaEntry> diff = sequenceDiffer(fromLeaves.size() + toLeaves.size()).diff(fingerprints(fromLeaves), fingerprints(toLeaves));
 		int delta = 0;
 		// be careful with direct use of indexOf: need instance equality, not equals!
 		for (IncavaEntry incavaEntry : diff) {
@@ -410,6 +983,39 @@ public class JsonDiff {
 		return diff.unwrap();
 	}
 
+	/**
+	 * Runs a diff against a document flattened up front, see {@link #snapshot(Object)}. Accepts a GSON JsonObject or (if
+	 * jar is provided) a Jackson style ObjectNode. The returned type is the same as the received.
+	 * 
+	 * @param from
+	 *            Snapshot of the object to transform from, taken by a diff of the same kind and fingerprint.
+	 * @param to
+	 *            Object to transform to. One of JsonObject or ObjectNode (if jar available).
+	 * @return Object containing the instructions. The type will be the same as that passed in constructor.
+	 * @throws IllegalArgumentException
+	 *             if the given arguments are not accepted.
+	 */
+	public Object diff(DiffSnapshot from, Object to) throws IllegalArgumentException {
+
+		return diff(from, factory.wrap(to)).unwrap();
+	}
+
+	/**
+	 * Runs a diff against a document flattened up front, see {@link #snapshot(String)}.
+	 * 
+	 * @param from
+	 *            Snapshot of the origin to transform, taken by a diff of the same kind and fingerprint.
+	 * @param to
+	 *            The desired result
+	 * @return The set of instructions to go from to as a JSON object {}.
+	 * @throws IllegalArgumentException
+	 *             if the given arguments are not accepted.
+	 */
+	public String diff(DiffSnapshot from, String to) throws IllegalArgumentException {
+
+		return diff(from, factory.parse(to)).toString();
+	}
+
 	/**
 	 * Runs a diff on the two given JSON objects given as string to produce another JSON object with instructions of how to transform the first argument to the second. Both from/to
 	 * are expected to be objects {}.
@@ -431,15 +1037,358 @@ public class JsonDiff {
 
 	}
 
-	Leaf findLeaves(Node parent, JzonElement el, List<Leaf> leaves, HashMap<Integer, ArrNode> arrs) {
+	/**
+	 * Runs a diff on two JSON objects read from characters, see {@link #diff(String, String)}, writing the instructions
+	 * to <code>out</code>. Neither document is collected into a string on the way.
+	 * 
+	 * @param from
+	 *            The origin to transform, left open
+	 * @param to
+	 *            The desired result, left open
+	 * @param out
+	 *            Where the set of instructions is written, flushed but left open
+	 * @throws IOException
+	 *             if reading or writing fails
+	 * @throws IllegalArgumentException
+	 *             if the given arguments are not accepted.
+	 */
+	public void diff(Reader from, Reader to, Writer out) throws IOException, IllegalArgumentException {
+
+		write(diff(parse(from), parse(to)), out);
+	}
+
+	/**
+	 * Runs a diff on two JSON objects read from bytes, see {@link #diff(String, String)}, writing the instructions in
+	 * UTF-8 to <code>out</code>. The Jackson wrappers parse the bytes without decoding them to a string first.
+	 * 
+	 * @param from
+	 *            The origin to transform, left open
+	 * @param to
+	 *            The desired result, left open
+	 * @param out
+	 *            Where the set of instructions is written, flushed but left open
+	 * @throws IOException
+	 *             if reading or writing fails
+	 * @throws IllegalArgumentException
+	 *             if the given arguments are not accepted.
+	 */
+	public void diff(InputStream from, InputStream to, OutputStream out) throws IOException, IllegalArgumentException {
+
+		write(diff(parse(from), parse(to)), out);
+	}
+
+	/**
+	 * Runs a diff on two JSON objects given as bytes, see {@link #diff(InputStream, InputStream, OutputStream)}.
+	 * 
+	 * @param from
+	 *            The origin to transform
+	 * @param to
+	 *            The desired result
+	 * @param out
+	 *            Where the set of instructions is written, flushed but left open
+	 * @throws IOException
+	 *             if writing fails
+	 * @throws IllegalArgumentException
+	 *             if the given arguments are not accepted.
+	 */
+	public void diff(byte[] from, byte[] to, OutputStream out) throws IOException, IllegalArgumentException {
+
+		write(diff(parse(from, 0, from.length), parse(to, 0, to.length)), out);
+	}
+
+	/**
+	 * Runs a diff on the remaining bytes of two buffers, see {@link #diff(InputStream, InputStream, OutputStream)}. The
+	 * positions of the buffers are left as they are.
+	 * 
+	 * @param from
+	 *            The origin to transform
+	 * @param to
+	 *            The desired result
+	 * @param out
+	 *            Where the set of instructions is written, flushed but left open
+	 * @throws IOException
+	 *             if writing fails
+	 * @throws IllegalArgumentException
+	 *             if the given arguments are not accepted.
+	 */
+	public void diff(ByteBuffer from, ByteBuffer to, OutputStream out) throws IOException, IllegalArgumentException {
+
+		write(diff(parse(from), parse(to)), out);
+	}
+
+	/**
+	 * Runs a diff on two JSON objects read from files, see {@link #diff(InputStream, InputStream, OutputStream)}.
+	 * 
+	 * @param from
+	 *            The origin to transform
+	 * @param to
+	 *            The desired result
+	 * @param out
+	 *            Where the set of instructions is written, flushed but left open
+	 * @throws IOException
+	 *             if reading or writing fails
+	 * @throws IllegalArgumentException
+	 *             if the given arguments are not accepted.
+	 */
+	public void diff(Path from, Path to, OutputStream out) throws IOException, IllegalArgumentException {
+
+		write(diff(parse(from), parse(to)), out);
+	}
+
+	/**
+	 * Diffs two JSON object files into a patch file, for documents too big to parse. Both files are mapped into memory
+	 * and flattened straight from their bytes: only keys are decoded, primitive values are matched by a hash of their
+	 * text and only parsed if they end up in the patch, as are the objects and arrays in it. What is kept on the heap
+	 * is the flattened leaves, not the text. As values are compared by how they are written, a value written
+	 * differently, such as <code>1.0</code> for <code>1</code> or an escaped character, is reported as changed. The
+	 * files must be strict UTF-8 JSON.
+	 * <p>
+	 * Diffs that look at both documents as trees, being {@link #setHierarchical(boolean) hierarchical},
+	 * {@link #setSkipIdenticalSubtrees(boolean) skipping identical subtrees}, pruned, keyed or spread over an executor,
+	 * parse the files as {@link #diff(Path, Path, OutputStream)} does.
+	 * 
+	 * @param from
+	 *            The origin to transform
+	 * @param to
+	 *            The desired result
+	 * @param patch
+	 *            The file the set of instructions is written to in UTF-8, replaced if it exists
+	 * @throws IOException
+	 *             if reading or writing fails
+	 * @throws IllegalArgumentException
+	 *             if the given arguments are not accepted.
+	 * @since 2.1.0
+	 */
+	public void diff(Path from, Path to, Path patch) throws IOException, IllegalArgumentException {
+
+		JzonObject diff;
+		if (isFlat()) {
+			diff = MappedLeafReader.diff(this, map(from), map(to));
+		} else {
+			diff = diff(parse(from), parse(to));
+		}
+		OutputStream out = new BufferedOutputStream(Files.newOutputStream(patch));
+		try {
+			write(diff, out);
+		} finally {
+			out.close();
+		}
+	}
+
+	static JsonBytes map(Path file) throws IOException {
+		FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+		try {
+			return new JsonBytes(channel);
+		} finally {
+			channel.close();
+		}
+	}
+
+	private JzonElement parse(ByteBuffer json) throws IOException {
+		if (json.hasArray()) {
+			return parse(json.array(), json.arrayOffset() + json.position(), json.remaining());
+		}
+		return parse(new ByteBufferInput(json.duplicate()));
+	}
+
+	private JzonElement parse(Path json) throws IOException {
+		InputStream in = Files.newInputStream(json);
+		try {
+			return parse(in);
+		} finally {
+			in.close();
+		}
+	}
+
+	/**
+	 * @return the element read, by the wrapper if it is a {@link StreamingWrapper}, otherwise parsed from the text
+	 *         collected into a string. Bytes are read as UTF-8 then.
+	 */
+	JzonElement parse(Reader json) throws IOException {
+		if (factory instanceof StreamingWrapper) {
+			return ((StreamingWrapper) factory).parse(json);
+		}
+		StringBuilder text = new StringBuilder();
+		char[] buf = new char[8192];
+		for (int n; (n = json.read(buf)) >= 0;) {
+			text.append(buf, 0, n);
+		}
+		return factory.parse(text.toString());
+	}
+
+	JzonElement parse(InputStream json) throws IOException {
+		if (factory instanceof StreamingWrapper) {
+			return ((StreamingWrapper) factory).parse(json);
+		}
+		return parse(new InputStreamReader(json, UTF_8));
+	}
+
+	JzonElement parse(byte[] json, int offset, int length) {
+		if (factory instanceof StreamingWrapper) {
+			return ((StreamingWrapper) factory).parse(json, offset, length);
+		}
+		return factory.parse(new String(json, offset, length, UTF_8));
+	}
+
+	/**
+	 * Writes an element by the wrapper if it is a {@link StreamingWrapper}, otherwise as its string form, in UTF-8 for
+	 * bytes.
+	 */
+	void write(JzonElement el, Writer out) throws IOException {
+		if (factory instanceof StreamingWrapper) {
+			((StreamingWrapper) factory).write(el, out);
+		} else {
+			out.write(el.toString());
+			out.flush();
+		}
+	}
+
+	void write(JzonElement el, OutputStream out) throws IOException {
+		if (factory instanceof StreamingWrapper) {
+			((StreamingWrapper) factory).write(el, out);
+		} else {
+			out.write(el.toString().getBytes(UTF_8));
+			out.flush();
+		}
+	}
+
+	/**
+	 * Reads the remaining bytes of a buffer without an array behind it.
+	 */
+	private static class ByteBufferInput extends InputStream {
+
+		private final ByteBuffer buf;
+
+		ByteBufferInput(ByteBuffer buf) {
+			this.buf = buf;
+		}
+
+		@Override
+		public int read() {
+			return buf.hasRemaining() ? buf.get() & 0xff : -1;
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) {
+			if (len == 0) {
+				return 0;
+			}
+			if (!buf.hasRemaining()) {
+				return -1;
+			}
+			len = Math.min(len, buf.remaining());
+			buf.get(b, off, len);
+			return len;
+		}
+
+		@Override
+		public int available() {
+			return buf.remaining();
+		}
+
+	}
+
+	/**
+	 * Starts diffing a chain of versions of a document, see {@link DiffSession}. Accepts a GSON JsonObject or (if jar
+	 * is provided) a Jackson style ObjectNode.
+	 * 
+	 * @param first
+	 *            First version. One of JsonObject or ObjectNode (if jar available).
+	 * @return the session, to pass the following versions to
+	 * @throws IllegalArgumentException
+	 *             if the given argument is not accepted.
+	 */
+	public DiffSession session(Object first) throws IllegalArgumentException {
+
+		return new DiffSession(this, snapshot(first));
+	}
+
+	/**
+	 * Starts diffing a chain of versions of a document given as strings, see {@link DiffSession}. The document is
+	 * expected to be an object {}.
+	 * 
+	 * @param first
+	 *            First version
+	 * @return the session, to pass the following versions to
+	 * @throws IllegalArgumentException
+	 *             if the given argument is not accepted.
+	 */
+	public DiffSession session(String first) throws IllegalArgumentException {
+
+		return new DiffSession(this, snapshot(first));
+	}
+
+	/**
+	 * Flattens and hashes a document once for any number of diffs against it, see {@link DiffSnapshot}. Accepts a GSON
+	 * JsonObject or (if jar is provided) a Jackson style ObjectNode.
+	 * 
+	 * @param doc
+	 *            Object to snapshot. One of JsonObject or ObjectNode (if jar available).
+	 * @return the snapshot
+	 * @throws IllegalArgumentException
+	 *             if the given argument is not accepted.
+	 */
+	public DiffSnapshot snapshot(Object doc) throws IllegalArgumentException {
+
+		return DiffSnapshot.of(this, factory.wrap(doc));
+	}
+
+	/**
+	 * Flattens and hashes a document given as string once for any number of diffs against it, see
+	 * {@link DiffSnapshot}. The document is expected to be an object {}.
+	 * 
+	 * @param doc
+	 *            The document to snapshot
+	 * @return the snapshot
+	 * @throws IllegalArgumentException
+	 *             if the given argument is not accepted.
+	 */
+	public DiffSnapshot snapshot(String doc) throws IllegalArgumentException {
+
+		return DiffSnapshot.of(this, factory.parse(doc));
+	}
+
+	static long[] fingerprints(List<Leaf> leaves) {
+		long[] fingerprints = new long[leaves.size()];
+		int i = 0;
+		for (Leaf leaf : leaves) {
+			fingerprints[i++] = leaf.fingerprint;
+		}
+		return fingerprints;
+	}
+
+	Leaf findLeaves(Node parent, JzonElement el, List<Leaf> leaves, HashMap<Long, ArrNode> arrs) {
+		return findLeaves(parent, el, leaves, arrs, null);
+	}
+
+	Leaf findLeaves(Node parent, JzonElement el, List<Leaf> leaves, HashMap<Long, ArrNode> arrs, Merkle merkle) {
+		return findLeaves(parent, el, leaves, arrs, merkle, rules, null, null, false);
+	}
+
+	/**
+	 * Flattens <code>el</code> into <code>leaves</code>, leaving out what <code>rules</code> skip. If
+	 * <code>pointer</code> is given, the pruner is consulted for every value below, with <code>other</code> the value
+	 * at the same path in the other document.
+	 */
+	Leaf findLeaves(Node parent, JzonElement el, List<Leaf> leaves, HashMap<Long, ArrNode> arrs, Merkle merkle, PathRules rules,
+			String pointer, JzonElement other, boolean isFrom) {
 
 		// create leaf for this part
-		Leaf leaf = new Leaf(parent, el);
-		leaf.factory = factory;
-		if (visitor != null) {
-			leaf.visitor = this;
+		Leaf leaf = leaf(parent, el, leaves);
+
+		if (merkle != null) {
+			int index = merkle.cursor++;
+			if (index > 0 && (el.isJsonObject() || el.isJsonArray())) {
+				long path = parent.doHash(false);
+				if (merkle.isShared(index, path)) {
+					// unchanged subtree: one opaque leaf that only matches its twin
+					merkle.cursor = index + merkle.size[index];
+					leaf.init();
+					leaf.fingerprint = Fingerprint.mix(leaf.fingerprint, merkle.content[index]);
+					return leaf;
+				}
+			}
 		}
-		leaves.add(leaf);
 
 		if (el.isJsonObject()) {
 
@@ -447,23 +1396,51 @@ public class JsonDiff {
 			memb.addAll(((JzonObject) el).entrySet());
 			for (Entry<String, JzonElement> e : memb) {
 
+				PathRules childRules = rules == null ? null : rules.member(e.getKey());
+				if (childRules != null && childRules.isSkipped()) {
+					skip(merkle);
+					continue;
+				}
+
 				ObjNode newParent = new ObjNode(parent, e.getKey());
-				Leaf child = findLeaves(newParent, e.getValue(), leaves, arrs);
+				Leaf child;
+				if (pointer == null) {
+					child = findLeaves(newParent, e.getValue(), leaves, arrs, merkle, childRules, null, null, false);
+				} else {
+					JzonElement otherChild = other != null && other.isJsonObject() && ((JzonObject) other).has(e.getKey()) ? ((JzonObject) other).get(e.getKey()) : null;
+					child = findChild(newParent, e.getValue(), leaves, arrs, merkle, childRules, pointer + '/' + TreeDiff.escape(e.getKey()), otherChild, isFrom);
+					if (child == null) {
+						continue;
+					}
+				}
 				leaf.children.add(child);
 			}
 
 		} else if (el.isJsonArray()) {
 
 			JzonArray arr = (JzonArray) el;
+			PathRules childRules = rules == null ? null : rules.elements();
 			for (int i = 0, n = arr.size(); i < n; i++) {
 
+				if (childRules != null && childRules.isSkipped()) {
+					// all elements alike, so no index shifts
+					skip(merkle);
+					continue;
+				}
+
 				ArrNode newParent = new ArrNode(parent, i);
 
 				// this array saves a reference to all arrnodes
 				// which is used to adjust arr node indexes.
 				arrs.put(newParent.doHash(true), newParent);
 
-				Leaf child = findLeaves(newParent, arr.get(i), leaves, arrs);
+				Leaf child;
+				if (pointer == null) {
+					child = findLeaves(newParent, arr.get(i), leaves, arrs, merkle, childRules, null, null, false);
+				} else {
+					JzonElement otherChild = other != null && other.isJsonArray() && ((JzonArray) other).size() > i ? ((JzonArray) other).get(i) : null;
+					child = findChild(newParent, arr.get(i), leaves, arrs, merkle, childRules, pointer + '/' + i, otherChild, isFrom);
+				}
 				leaf.children.add(child);
 			}
 
@@ -472,6 +1449,99 @@ public class JsonDiff {
 		return leaf;
 	}
 
+	/**
+	 * Flattens a member or element as the pruner decides: normally, as a single opaque leaf, or not at all for skipped
+	 * object members, returning <code>null</code>.
+	 */
+	Leaf findChild(Node parent, JzonElement el, List<Leaf> leaves, HashMap<Long, ArrNode> arrs, Merkle merkle, PathRules rules,
+			String pointer, JzonElement other, boolean isFrom) {
+
+		Pruner.Decision decision = isFrom ? prune(pointer, el, other) : prune(pointer, other, el);
+
+		if (decision == Pruner.Decision.SKIP && parent instanceof ObjNode) {
+			skip(merkle);
+			return null;
+		}
+		if (decision == Pruner.Decision.DIFF) {
+			return findLeaves(parent, el, leaves, arrs, merkle, rules, pointer, other, isFrom);
+		}
+
+		Leaf leaf = leaf(parent, el, leaves);
+		long content;
+		if (merkle != null) {
+			int index = merkle.cursor;
+			merkle.cursor += merkle.size[index];
+			content = merkle.content[index];
+		} else {
+			content = Merkle.content(el);
+		}
+		leaf.init();
+		if (el.isJsonObject() || el.isJsonArray()) {
+			// matches only a leaf with the same content
+			leaf.fingerprint = Fingerprint.mix(leaf.fingerprint, content);
+		}
+		return leaf;
+	}
+
+	/**
+	 * Moves past the subtree left out at the cursor.
+	 */
+	private static void skip(Merkle merkle) {
+		if (merkle != null) {
+			merkle.cursor += merkle.size[merkle.cursor];
+		}
+	}
+
+	Leaf leaf(Node parent, JzonElement el, List<Leaf> leaves) {
+		Leaf leaf = new Leaf(parent, el);
+		leaf.factory = factory;
+		if (visitor != null) {
+			leaf.visitor = this;
+		}
+		leaves.add(leaf);
+		return leaf;
+	}
+
+	/**
+	 * @return the executor diffs are spread over, if any
+	 * @see #setExecutor(ExecutorService)
+	 */
+	public ExecutorService getExecutor() {
+		return executor;
+	}
+
+	/**
+	 * @return how nodes and leaves are hashed when matching both documents
+	 * @see Fingerprint
+	 */
+	public Fingerprint getFingerprint() {
+		return fingerprint;
+	}
+
+	/**
+	 * @return the number of leaves above which the linear space sequence diff is used from the start
+	 * @see #setLinearSpaceThreshold(int)
+	 */
+	public int getLinearSpaceThreshold() {
+		return linearSpaceThreshold;
+	}
+
+	/**
+	 * @return the registered pruner if any
+	 * @see Pruner
+	 */
+	public Pruner<?> getPruner() {
+		return pruner;
+	}
+
+	/**
+	 * @return the algorithm used to match the flattened leaves of both documents
+	 * @see SequenceDiffers
+	 */
+	public SequenceDiffer getSequenceDiffer() {
+		return sequenceDiffer;
+	}
+
 	/**
 	 * @return the registered visitor if any
 	 * @see Visitor
@@ -480,6 +1550,29 @@ public class JsonDiff {
 		return visitor;
 	}
 
+	/**
+	 * @return if both documents are diffed container by container instead of as flattened sequences
+	 */
+	public boolean isHierarchical() {
+		return hierarchical;
+	}
+
+	/**
+	 * @return if subtrees found unchanged in both documents are skipped when diffing
+	 */
+	public boolean isSkipIdenticalSubtrees() {
+		return skipIdenticalSubtrees;
+	}
+
+	/**
+	 * @return the algorithm to match two sequences of <code>size</code> elements in total: the linear space diff above
+	 *         the threshold unless another algorithm than the default was set. Below it the Myers diff still falls back
+	 *         to the linear space diff when the differences turn out too many.
+	 */
+	SequenceDiffer sequenceDiffer(int size) {
+		return size > linearSpaceThreshold && sequenceDiffer == SequenceDiffers.MYERS ? SequenceDiffers.LINEAR_MYERS : sequenceDiffer;
+	}
+
 	int isIndexed(String childKey) {
 		try {
 			return Integer.parseInt(childKey);
@@ -488,6 +1581,115 @@ public class JsonDiff {
 		}
 	}
 
+	/**
+	 * Sets an executor to spread diffs over. The members of the root objects found in both documents are then diffed
+	 * as independent tasks and their patches merged, so a change in one member does not hold up the others, and
+	 * values moved from one member to another become a delete and an insert. When there are fewer than two members to
+	 * split on, both documents are flattened concurrently instead. The documents of a batch given to
+	 * {@link #applyAll(Collection, Object)} are patched concurrently as well. Everything runs on the calling thread if
+	 * <code>null</code>, the default.
+	 * 
+	 * <p>
+	 * Tasks never wait for other tasks, so any executor works, including a <code>ForkJoinPool</code>, a single thread
+	 * or virtual threads. The settings of the diff must not be changed while its tasks run.
+	 * </p>
+	 * 
+	 * @param executor
+	 *            - executor to run on, or <code>null</code>
+	 */
+	public void setExecutor(ExecutorService executor) {
+		this.executor = executor;
+	}
+
+	/**
+	 * Sets how nodes and leaves are hashed when matching both documents. Defaults to {@link Fingerprint#BITS_32}.
+	 * 
+	 * @param fingerprint
+	 *            - hashing to use
+	 * @see Fingerprint
+	 */
+	public void setFingerprint(Fingerprint fingerprint) {
+		if (fingerprint == null) {
+			throw new IllegalArgumentException("fingerprint must not be null");
+		}
+		this.fingerprint = fingerprint;
+	}
+
+	/**
+	 * Sets the number of leaves, counting both documents, above which {@link SequenceDiffers#LINEAR_MYERS} is used
+	 * from the start instead of the default {@link SequenceDiffers#MYERS}. Memory is not what this bounds: the Myers
+	 * diff records paths growing with the square of the number of differences, whatever the size of the documents,
+	 * and switches to the linear space diff by itself once they pass a fixed budget, after about 2000 differences.
+	 * Above the threshold that attempt is skipped, trading the faster diff of similar documents for never searching
+	 * twice. An algorithm set with {@link #setSequenceDiffer(SequenceDiffer)} is used at any size. Defaults to
+	 * 100000.
+	 * 
+	 * @param leaves
+	 *            - threshold in leaves, 0 to always use the linear space diff
+	 */
+	public void setLinearSpaceThreshold(int leaves) {
+		if (leaves < 0) {
+			throw new IllegalArgumentException("leaves must not be negative");
+		}
+		this.linearSpaceThreshold = leaves;
+	}
+
+	/**
+	 * Registers a pruner, consulted for every value below the root objects before it is flattened or compared, see
+	 * {@link Pruner}. Both documents are walked together to give it the values at the same path; within arrays that is
+	 * the element at the same index. Diffs against a {@link DiffSnapshot} then flatten the snapshot again.
+	 * 
+	 * @param pruner
+	 *            - pruner to register, or <code>null</code>
+	 * @see Pruner
+	 */
+	public void setPruner(Pruner<?> pruner) {
+		this.pruner = pruner;
+	}
+
+	/**
+	 * Sets the algorithm used to match the flattened leaves of both documents. Defaults to {@link SequenceDiffers#MYERS},
+	 * which gives way to {@link SequenceDiffers#LINEAR_MYERS} when the differences turn out too many to record, or
+	 * from the start above the {@link #setLinearSpaceThreshold(int) linear space threshold}; any other algorithm set
+	 * is used for documents of every size.
+	 * 
+	 * @param sequenceDiffer
+	 *            - algorithm to use
+	 * @see SequenceDiffers
+	 */
+	public void setSequenceDiffer(SequenceDiffer sequenceDiffer) {
+		if (sequenceDiffer == null) {
+			throw new IllegalArgumentException("sequenceDiffer must not be null");
+		}
+		this.sequenceDiffer = sequenceDiffer;
+	}
+
+	/**
+	 * Sets if both documents are diffed container by container. Object members are matched by key and only the elements
+	 * of arrays at the same place in both documents go through the {@link #setSequenceDiffer(SequenceDiffer) sequence
+	 * diff}, with elements compared by content. This keeps the cost close to linear in the size of the documents, at
+	 * the price of not detecting values moved between containers. Off by default.
+	 * 
+	 * @param hierarchical
+	 *            - whether to diff container by container
+	 */
+	public void setHierarchical(boolean hierarchical) {
+		this.hierarchical = hierarchical;
+	}
+
+	/**
+	 * Sets if subtrees found unchanged in both documents are skipped when diffing. Every subtree is hashed by content up
+	 * front; an object or array present with the same content at the same path in both documents is then treated as a
+	 * single element instead of being expanded. For large documents with few changes this shrinks the diffed sequence
+	 * from the size of the document to the size of the changes. Off by default.
+	 * 
+	 * @param skipIdenticalSubtrees
+	 *            - whether to skip identical subtrees
+	 */
+	public void setSkipIdenticalSubtrees(boolean skipIdenticalSubtrees) {
+		this.skipIdenticalSubtrees = skipIdenticalSubtrees;
+	}
+
 	/**
 	 * Registers a new visitor.
 	 * 
@@ -0,0 +1,86 @@
+package foodev.jsondiff;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import foodev.jsondiff.jsonwrap.JzonArray;
+import foodev.jsondiff.jsonwrap.JzonElement;
+import foodev.jsondiff.jsonwrap.JzonObject;
+import foodev.jsondiff.jsonwrap.Wrapper;
+
+/**
+ * An object or array read by {@link LeafReader}, known by its members or elements until its tree is asked for. The
+ * tree is only built on {@link #unwrap()}, when the value is put into a patch or handed to a visitor, and then kept.
+ */
+final class LazyContainer implements JzonElement {
+
+	private final Wrapper factory;
+
+	// members in document order, or null for an array
+	private final Map<String, JzonElement> members;
+
+	// elements, or null for an object
+	private final List<JzonElement> elements;
+
+	private Object tree;
+
+	LazyContainer(Wrapper factory, Map<String, JzonElement> members, List<JzonElement> elements) {
+		this.factory = factory;
+		this.members = members;
+		this.elements = elements;
+	}
+
+	@Override
+	public boolean isJsonObject() {
+		return members != null;
+	}
+
+	@Override
+	public boolean isJsonArray() {
+		return elements != null;
+	}
+
+	@Override
+	public boolean isJsonPrimitive() {
+		return false;
+	}
+
+	@Override
+	public boolean isJsonNull() {
+		return false;
+	}
+
+	/**
+	 * @return if the tree was built
+	 */
+	boolean isBuilt() {
+		return tree != null;
+	}
+
+	@Override
+	public Object unwrap() {
+		if (tree == null) {
+			if (members != null) {
+				JzonObject obj = factory.createJsonObject();
+				for (Entry<String, JzonElement> e : members.entrySet()) {
+					obj.add(e.getKey(), e.getValue());
+				}
+				tree = obj.unwrap();
+			} else {
+				JzonArray arr = factory.createJsonArray();
+				for (JzonElement el : elements) {
+					arr.insert(arr.size(), el);
+				}
+				tree = arr.unwrap();
+			}
+		}
+		return tree;
+	}
+
+	@Override
+	public String toString() {
+		return unwrap().toString();
+	}
+
+}
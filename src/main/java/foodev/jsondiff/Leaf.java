@@ -3,7 +3,6 @@ package foodev.jsondiff;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Iterator;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.logging.Level;
 
@@ -20,8 +19,15 @@ class Leaf implements Comparable<Leaf> {
 	JzonElement val;
 	Oper oper;
 
-	List<Leaf> children = new LinkedList<Leaf>();
-	List<Leaf> newStructure = new LinkedList<Leaf>();
+	// identity used when matching leaves, computed once in init()
+	long fingerprint;
+
+	ChildList children = new ChildList();
+	ChildList newStructure = new ChildList();
+
+	// the child list this leaf was last added to and its position there, maintained by ChildList
+	ChildList owner;
+	int position;
 
 	Leaf(Node parent, JzonElement val) {
 		this.parent = parent;
@@ -117,7 +123,7 @@ class Leaf implements Comparable<Leaf> {
 
 	@Override
 	public int compareTo(Leaf o) {
-		return hashCode() - o.hashCode();
+		return fingerprint < o.fingerprint ? -1 : (fingerprint == o.fingerprint ? 0 : 1);
 	}
 
 	JsonDiff visitor;
@@ -154,7 +160,7 @@ class Leaf implements Comparable<Leaf> {
 					JzonObject childPatch = factory.createJsonObject();
 					JzonArray childInstructions = child.createPatch(childPatch);
 					if (childInstructions.size() > 0) {
-						if (visitor != null && !child.val.isJsonPrimitive() && !visitor.accept(child, childInstructions, childPatch)) {
+						if (visitor != null && !child.val.isJsonPrimitive() && !visitor.accept(child.val, childInstructions, childPatch)) {
 							continue;
 						}
 						patch.add("~" + key, childInstructions);
@@ -186,34 +192,28 @@ class Leaf implements Comparable<Leaf> {
 
 	@Override
 	public boolean equals(Object obj) {
-		return hashCode() == ((Leaf) obj).hashCode();
+		return fingerprint == ((Leaf) obj).fingerprint;
 	}
 
 	@Override
 	public int hashCode() {
-		int i = parent.hashCode;
-		if (val.isJsonArray()) {
-			// for arr and obj we must hash in a type qualifier
-			// since otherwise changes between these kinds of
-			// nodes will be considered equal
-			i = i * 31 + ArrNode.class.hashCode();
-		} else if (val.isJsonObject()) {
-			i = i * 31 + ObjNode.class.hashCode();
-		} else {
-			i = i * 31 + (val.isJsonPrimitive() || val.isJsonNull() ? val.hashCode() : 0);
-		}
-		return i;
+		return (int) fingerprint;
+	}
+
+	long doHash() {
+		return parent.fingerprint.leaf(parent.hashCode, val);
 	}
 
 	void init() {
 		this.parent.hashCode = this.parent.doHash(false);
 		this.parent.parentHashCode = (this.parent.parent == null) ? 0 : this.parent.parent.doHash(false);
+		this.fingerprint = doHash();
 		this.newStructure.addAll(children);
 	}
 
 	void insert(Leaf leaf, Leaf where) {
-		int hashCode = parent.hashCode;
-		int insCode = leaf.parent.parent.hashCode;
+		long hashCode = parent.hashCode;
+		long insCode = leaf.parent.parent.hashCode;
 		if (hashCode == 0 || insCode == hashCode) {
 			// eligible for insertion - check for sets after building the new graph
 			leaf.oper = Oper.INSERT;
@@ -254,6 +254,7 @@ class Leaf implements Comparable<Leaf> {
 					orphan.parent.parent = null;
 					Node clone = orphan.parent.clone();
 					Leaf leafClone = new Leaf(clone, orphan.val);
+					leafClone.fingerprint = orphan.fingerprint;
 					leafClone.visitor = visitor;
 					clone.leaf = leafClone;
 					leafClone.oper = Oper.DELETE;
@@ -300,6 +301,10 @@ class Leaf implements Comparable<Leaf> {
 	}
 
 	protected static int exactIndex(Collection<Leaf> c, Leaf check) {
+		if (c instanceof ChildList) {
+			int i = ((ChildList) c).position(check);
+			return i < 0 ? c.size() - 1 : i;
+		}
 		int i = -1;
 		for (Leaf l : c) {
 			i++;
@@ -310,9 +315,13 @@ class Leaf implements Comparable<Leaf> {
 		return i;
 	}
 
-	void recover(List<Leaf> fromLeaves) {
+	void recover(LeafSequence fromLeaves) {
 		if (isOrphan()) {
-			int thisIndex = exactIndex(fromLeaves, this);
+			int thisIndex = fromLeaves.position(this);
+			if (thisIndex < 0) {
+				// as exactIndex, search from the end for leaves not in the sequence
+				thisIndex = fromLeaves.size() - 1;
+			}
 			recover(thisIndex, fromLeaves);
 		}
 		if (parent.parent != null) {
@@ -320,7 +329,7 @@ class Leaf implements Comparable<Leaf> {
 		}
 	}
 
-	void recover(int thisIndex, List<Leaf> fromLeaves) {
+	void recover(int thisIndex, LeafSequence fromLeaves) {
 		if (isOrphan()) {
 			Leaf newParent = null;
 			while (newParent == null || (oper != Oper.DELETE && newParent.oper == Oper.DELETE)) {
@@ -0,0 +1,147 @@
+package foodev.jsondiff;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import foodev.jsondiff.jsonwrap.JzonElement;
+import foodev.jsondiff.jsonwrap.JzonObject;
+import foodev.jsondiff.jsonwrap.jackson2.Jackson2Wrapper;
+
+/**
+ * Flattens a document read token by token into leaves, as <code>JsonDiff.findLeaves</code> flattens a tree, without
+ * building the tree first. Primitives are read as values, objects and arrays become {@link LazyContainer}s holding the
+ * values of their members or elements, so trees are only built for the containers that end up in the patch. The
+ * members of an object are flattened apart and added in key order once the object is read, as findLeaves visits them.
+ * Values left out by the path rules are read as trees, since a container holding them may still end up in the patch.
+ */
+class LeafReader {
+
+	private final static ObjectMapper JSON = new ObjectMapper();
+
+	final JsonDiff owner;
+
+	final JsonParser parser;
+
+	LeafReader(JsonDiff owner, JsonParser parser) {
+		this.owner = owner;
+		this.parser = parser;
+	}
+
+	/**
+	 * Diffs two documents read from parsers, flattening them as they are read if the diff works on leaf sequences,
+	 * otherwise reading them as trees.
+	 */
+	static JzonObject diff(JsonDiff owner, JsonParser from, JsonParser to) throws IOException {
+
+		LeafReader fromReader = new LeafReader(owner, from);
+		LeafReader toReader = new LeafReader(owner, to);
+
+		if (!owner.isFlat()) {
+			return owner.diff(fromReader.tree("From"), toReader.tree("To"));
+		}
+
+		LeafSequence fromLeaves = new LeafSequence();
+		fromReader.read(fromLeaves, "From");
+		List<Leaf> toLeaves = new ArrayList<Leaf>();
+		toReader.read(toLeaves, "To");
+
+		return owner.diff(fromLeaves, toLeaves);
+	}
+
+	/**
+	 * Flattens the document into <code>leaves</code>, the root first.
+	 */
+	void read(List<Leaf> leaves, String name) throws IOException {
+		if (start() != JsonToken.START_OBJECT) {
+			throw new IllegalArgumentException(name + " is not a json object");
+		}
+		read(new Root(owner.getFingerprint()), leaves, owner.rules);
+	}
+
+	JzonElement tree(String name) throws IOException {
+		if (start() == null) {
+			throw new IllegalArgumentException(name + " is empty");
+		}
+		return tree();
+	}
+
+	private JsonToken start() throws IOException {
+		return parser.getCurrentToken() != null ? parser.getCurrentToken() : parser.nextToken();
+	}
+
+	/**
+	 * Flattens the value at the current token.
+	 */
+	Leaf read(Node parent, List<Leaf> leaves, PathRules rules) throws IOException {
+
+		JsonToken token = parser.getCurrentToken();
+
+		if (token == JsonToken.START_OBJECT) {
+
+			Leaf leaf = owner.leaf(parent, null, leaves);
+			Map<String, JzonElement> members = new LinkedHashMap<String, JzonElement>();
+			Map<String, List<Leaf>> flattened = new TreeMap<String, List<Leaf>>();
+			while (parser.nextToken() == JsonToken.FIELD_NAME) {
+				String key = parser.getCurrentName();
+				parser.nextToken();
+				PathRules childRules = rules == null ? null : rules.member(key);
+				if (childRules != null && childRules.isSkipped()) {
+					flattened.remove(key);
+					members.put(key, tree());
+					continue;
+				}
+				List<Leaf> memberLeaves = new ArrayList<Leaf>();
+				Leaf child = read(new ObjNode(parent, key), memberLeaves, childRules);
+				flattened.put(key, memberLeaves);
+				members.put(key, child.val);
+			}
+			for (List<Leaf> memberLeaves : flattened.values()) {
+				leaf.children.add(memberLeaves.get(0));
+				leaves.addAll(memberLeaves);
+			}
+			leaf.val = new LazyContainer(owner.factory, members, null);
+			leaf.init();
+			return leaf;
+
+		} else if (token == JsonToken.START_ARRAY) {
+
+			Leaf leaf = owner.leaf(parent, null, leaves);
+			List<JzonElement> elements = new ArrayList<JzonElement>();
+			PathRules childRules = rules == null ? null : rules.elements();
+			for (int i = 0; parser.nextToken() != JsonToken.END_ARRAY; i++) {
+				if (childRules != null && childRules.isSkipped()) {
+					elements.add(tree());
+					continue;
+				}
+				Leaf child = read(new ArrNode(parent, i), leaves, childRules);
+				leaf.children.add(child);
+				elements.add(child.val);
+			}
+			leaf.val = new LazyContainer(owner.factory, null, elements);
+			leaf.init();
+			return leaf;
+
+		}
+
+		Leaf leaf = owner.leaf(parent, tree(), leaves);
+		leaf.init();
+		return leaf;
+	}
+
+	/**
+	 * @return the value at the current token as a tree
+	 */
+	JzonElement tree() throws IOException {
+		return Jackson2Wrapper.wrap((JsonNode) JSON.readTree(parser));
+	}
+
+}
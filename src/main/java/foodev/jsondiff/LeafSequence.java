@@ -0,0 +1,143 @@
+package foodev.jsondiff;
+
+import java.util.AbstractList;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * The sequence of leaves worked on by <code>JsonDiff.diff</code>, kept in an implicit treap: a balanced tree ordered by
+ * position, where every node knows the size of its subtree. Inserting at an index, reading an index and finding the
+ * position of a leaf all take O(log n), where an <code>ArrayList</code> would shift or scan the whole list.
+ */
+final class LeafSequence extends AbstractList<Leaf> {
+
+	static final class Entry {
+
+		final Leaf leaf;
+		final int priority;
+		int size = 1;
+		Entry left, right, parent;
+
+		Entry(Leaf leaf, int priority) {
+			this.leaf = leaf;
+			this.priority = priority;
+		}
+	}
+
+	private Entry root;
+
+	// entry of every leaf, by identity since leaves with equal fingerprints are equal
+	private final Map<Leaf, Entry> entries = new IdentityHashMap<Leaf, Entry>();
+
+	// xorshift state for the priorities, fixed so diffs are reproducible
+	private int seed = 0x2545F491;
+
+	@Override
+	public int size() {
+		return size(root);
+	}
+
+	@Override
+	public Leaf get(int index) {
+		if (index < 0 || index >= size()) {
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size());
+		}
+		Entry e = root;
+		while (true) {
+			int left = size(e.left);
+			if (index < left) {
+				e = e.left;
+			} else if (index == left) {
+				return e.leaf;
+			} else {
+				index -= left + 1;
+				e = e.right;
+			}
+		}
+	}
+
+	@Override
+	public void add(int index, Leaf leaf) {
+		if (index < 0 || index > size()) {
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size());
+		}
+		seed ^= seed << 13;
+		seed ^= seed >>> 17;
+		seed ^= seed << 5;
+		Entry e = new Entry(leaf, seed);
+		entries.put(leaf, e);
+		root = insert(root, index, e);
+		root.parent = null;
+		modCount++;
+	}
+
+	/**
+	 * Returns the position of the given leaf instance, or -1 if it isn't part of the sequence.
+	 */
+	int position(Leaf leaf) {
+		Entry e = entries.get(leaf);
+		if (e == null) {
+			return -1;
+		}
+		int index = size(e.left);
+		for (; e.parent != null; e = e.parent) {
+			if (e == e.parent.right) {
+				index += size(e.parent.left) + 1;
+			}
+		}
+		return index;
+	}
+
+	private static Entry insert(Entry t, int index, Entry e) {
+		if (t == null) {
+			return e;
+		}
+		int left = size(t.left);
+		if (index <= left) {
+			t.left = insert(t.left, index, e);
+			if (t.left.priority > t.priority) {
+				return rotateRight(t);
+			}
+		} else {
+			t.right = insert(t.right, index - left - 1, e);
+			if (t.right.priority > t.priority) {
+				return rotateLeft(t);
+			}
+		}
+		update(t);
+		return t;
+	}
+
+	private static Entry rotateRight(Entry t) {
+		Entry l = t.left;
+		t.left = l.right;
+		l.right = t;
+		update(t);
+		update(l);
+		return l;
+	}
+
+	private static Entry rotateLeft(Entry t) {
+		Entry r = t.right;
+		t.right = r.left;
+		r.left = t;
+		update(t);
+		update(r);
+		return r;
+	}
+
+	private static void update(Entry t) {
+		t.size = 1 + size(t.left) + size(t.right);
+		if (t.left != null) {
+			t.left.parent = t;
+		}
+		if (t.right != null) {
+			t.right.parent = t;
+		}
+	}
+
+	private static int size(Entry e) {
+		return e == null ? 0 : e.size;
+	}
+
+}
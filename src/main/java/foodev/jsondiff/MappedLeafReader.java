@@ -0,0 +1,161 @@
+package foodev.jsondiff;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import foodev.jsondiff.jsonwrap.JzonElement;
+import foodev.jsondiff.jsonwrap.JzonObject;
+
+/**
+ * Flattens a document straight from its UTF-8 bytes into leaves, as {@link LeafReader} does from parser tokens. Keys
+ * are decoded, but primitives are {@link MappedValue}s pointing back into the bytes, and objects and arrays are
+ * {@link LazyContainer}s of those, so neither strings nor trees are made for values that don't end up in the patch.
+ * Values left out by the path rules are kept as text. Only strict JSON is read.
+ */
+class MappedLeafReader {
+
+	final JsonDiff owner;
+
+	final JsonBytes json;
+
+	// position of the next character to read
+	long pos;
+
+	MappedLeafReader(JsonDiff owner, JsonBytes json) {
+		this.owner = owner;
+		this.json = json;
+	}
+
+	/**
+	 * Diffs two documents given as bytes. The diff must work on leaf sequences, see <code>JsonDiff.isFlat()</code>.
+	 */
+	static JzonObject diff(JsonDiff owner, JsonBytes from, JsonBytes to) {
+
+		LeafSequence fromLeaves = new LeafSequence();
+		new MappedLeafReader(owner, from).read(fromLeaves, "From");
+		List<Leaf> toLeaves = new ArrayList<Leaf>();
+		new MappedLeafReader(owner, to).read(toLeaves, "To");
+
+		return owner.diff(fromLeaves, toLeaves);
+	}
+
+	/**
+	 * Flattens the document into <code>leaves</code>, the root first.
+	 */
+	void read(List<Leaf> leaves, String name) {
+		pos = json.skipSpace(0);
+		if (pos == json.size || json.get(pos) != '{') {
+			throw new IllegalArgumentException(name + " is not a json object");
+		}
+		read(new Root(owner.getFingerprint()), leaves, owner.rules);
+		if (json.skipSpace(pos) != json.size) {
+			throw json.unexpected(json.skipSpace(pos));
+		}
+	}
+
+	/**
+	 * Flattens the value at the current position, moving past it.
+	 */
+	Leaf read(Node parent, List<Leaf> leaves, PathRules rules) {
+
+		byte b = json.get(pos);
+
+		if (b == '{') {
+
+			Leaf leaf = owner.leaf(parent, null, leaves);
+			Map<String, JzonElement> members = new LinkedHashMap<String, JzonElement>();
+			Map<String, List<Leaf>> flattened = new TreeMap<String, List<Leaf>>();
+			pos = json.skipSpace(pos + 1);
+			boolean more = json.get(pos) != '}';
+			while (more) {
+				long keyEnd = json.stringEnd(pos);
+				String key = json.string(pos, keyEnd);
+				pos = json.skipSpace(keyEnd);
+				expect(':');
+				PathRules childRules = rules == null ? null : rules.member(key);
+				if (childRules != null && childRules.isSkipped()) {
+					flattened.remove(key);
+					members.put(key, raw());
+				} else {
+					List<Leaf> memberLeaves = new ArrayList<Leaf>();
+					Leaf child = read(new ObjNode(parent, key), memberLeaves, childRules);
+					flattened.put(key, memberLeaves);
+					members.put(key, child.val);
+				}
+				more = next('}');
+			}
+			pos++;
+			for (List<Leaf> memberLeaves : flattened.values()) {
+				leaf.children.add(memberLeaves.get(0));
+				leaves.addAll(memberLeaves);
+			}
+			leaf.val = new LazyContainer(owner.factory, members, null);
+			leaf.init();
+			return leaf;
+
+		} else if (b == '[') {
+
+			Leaf leaf = owner.leaf(parent, null, leaves);
+			List<JzonElement> elements = new ArrayList<JzonElement>();
+			PathRules childRules = rules == null ? null : rules.elements();
+			pos = json.skipSpace(pos + 1);
+			boolean more = json.get(pos) != ']';
+			for (int i = 0; more; i++) {
+				if (childRules != null && childRules.isSkipped()) {
+					elements.add(raw());
+				} else {
+					Leaf child = read(new ArrNode(parent, i), leaves, childRules);
+					leaf.children.add(child);
+					elements.add(child.val);
+				}
+				more = next(']');
+			}
+			pos++;
+			leaf.val = new LazyContainer(owner.factory, null, elements);
+			leaf.init();
+			return leaf;
+
+		}
+
+		Leaf leaf = owner.leaf(parent, raw(), leaves);
+		leaf.init();
+		return leaf;
+	}
+
+	/**
+	 * @return the value at the current position as text, moving past it
+	 */
+	private MappedValue raw() {
+		long start = pos;
+		pos = json.valueEnd(start);
+		return new MappedValue(owner, json, start, pos);
+	}
+
+	/**
+	 * Moves past the expected character and any whitespace after it.
+	 */
+	private void expect(char c) {
+		if (json.get(pos) != c) {
+			throw json.unexpected(pos);
+		}
+		pos = json.skipSpace(pos + 1);
+	}
+
+	/**
+	 * Moves past a separator after a member or element, or up to the closing character.
+	 *
+	 * @return if another member or element follows
+	 */
+	private boolean next(char close) {
+		pos = json.skipSpace(pos);
+		if (json.get(pos) == close) {
+			return false;
+		}
+		expect(',');
+		return true;
+	}
+
+}
@@ -0,0 +1,76 @@
+package foodev.jsondiff;
+
+import foodev.jsondiff.jsonwrap.JzonElement;
+
+/**
+ * A value read by {@link MappedLeafReader}, known by where its text is in the document until its tree is asked for.
+ * Primitives are identified by a hash of their bytes, so two values are only equal if written the same way. The text
+ * is only parsed on {@link #unwrap()}, when the value is put into a patch, and then kept.
+ */
+final class MappedValue implements JzonElement {
+
+	private final JsonDiff owner;
+
+	private final JsonBytes json;
+
+	private final long start;
+
+	private final long end;
+
+	// first character, telling the kind of value
+	private final byte kind;
+
+	// hash of the text of a primitive or null
+	final long hash;
+
+	private Object tree;
+
+	MappedValue(JsonDiff owner, JsonBytes json, long start, long end) {
+		this.owner = owner;
+		this.json = json;
+		this.start = start;
+		this.end = end;
+		this.kind = json.get(start);
+		this.hash = kind == '{' || kind == '[' ? 0 : json.hash(start, end);
+	}
+
+	@Override
+	public boolean isJsonObject() {
+		return kind == '{';
+	}
+
+	@Override
+	public boolean isJsonArray() {
+		return kind == '[';
+	}
+
+	@Override
+	public boolean isJsonPrimitive() {
+		return kind != '{' && kind != '[' && kind != 'n';
+	}
+
+	@Override
+	public boolean isJsonNull() {
+		return kind == 'n';
+	}
+
+	@Override
+	public Object unwrap() {
+		if (tree == null) {
+			byte[] text = json.bytes(start, end);
+			tree = owner.parse(text, 0, text.length).unwrap();
+		}
+		return tree;
+	}
+
+	@Override
+	public int hashCode() {
+		return (int) (hash ^ (hash >>> 32));
+	}
+
+	@Override
+	public String toString() {
+		return json.text(start, end);
+	}
+
+}
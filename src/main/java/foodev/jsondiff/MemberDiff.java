@@ -0,0 +1,188 @@
+package foodev.jsondiff;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+
+import foodev.jsondiff.jsonwrap.JzonArray;
+import foodev.jsondiff.jsonwrap.JzonElement;
+import foodev.jsondiff.jsonwrap.JzonObject;
+import foodev.jsondiff.jsonwrap.Wrapper;
+
+/**
+ * Diffs the members of two root objects as independent tasks on the executor of a {@link JsonDiff}. Members that are
+ * containers in both documents are each diffed as a single member object; the instructions of these partial patches
+ * are concatenated in key order into the root instructions and their child patches copied, giving the patch of the
+ * whole documents. Members added, removed or replaced are handled on the calling thread.
+ */
+class MemberDiff {
+
+	final JsonDiff owner;
+
+	final Wrapper factory;
+
+	MemberDiff(JsonDiff owner) {
+		this.owner = owner;
+		this.factory = owner.factory;
+	}
+
+	JzonObject diff(JzonObject from, JzonObject to) {
+
+		List<Entry<String, JzonElement>> fromMembers = TreeDiff.sorted(from);
+		List<Entry<String, JzonElement>> toMembers = TreeDiff.sorted(to);
+
+		// per member in key order: a finished instruction, or the task diffing it
+		List<Object> results = new ArrayList<Object>();
+		List<Callable<JzonObject>> tasks = new ArrayList<Callable<JzonObject>>();
+
+		int i = 0, j = 0;
+		while (i < fromMembers.size() || j < toMembers.size()) {
+			int cmp;
+			if (i == fromMembers.size()) {
+				cmp = 1;
+			} else if (j == toMembers.size()) {
+				cmp = -1;
+			} else {
+				cmp = fromMembers.get(i).getKey().compareTo(toMembers.get(j).getKey());
+			}
+			String key = cmp < 0 ? fromMembers.get(i).getKey() : toMembers.get(j).getKey();
+			PathRules rules = owner.rules == null ? null : owner.rules.member(key);
+			if (rules != null && rules.isSkipped()) {
+				// ignored
+				if (cmp <= 0) {
+					i++;
+				}
+				if (cmp >= 0) {
+					j++;
+				}
+			} else if (cmp < 0) {
+				if (owner.prune('/' + TreeDiff.escape(key), fromMembers.get(i).getValue(), null) != Pruner.Decision.SKIP) {
+					results.add(instruction("-" + key, null));
+				}
+				i++;
+			} else if (cmp > 0) {
+				if (owner.prune('/' + TreeDiff.escape(key), null, toMembers.get(j).getValue()) != Pruner.Decision.SKIP) {
+					results.add(instruction("+" + key, toMembers.get(j).getValue()));
+				}
+				j++;
+			} else {
+				JzonElement f = fromMembers.get(i).getValue();
+				JzonElement t = toMembers.get(j).getValue();
+				Pruner.Decision decision = owner.prune('/' + TreeDiff.escape(key), f, t);
+				if (decision == Pruner.Decision.SKIP) {
+					// left out
+				} else if (decision == Pruner.Decision.OPAQUE && TreeDiff.sameContainer(f, t)) {
+					if (Merkle.content(f) != Merkle.content(t)) {
+						results.add(instruction(key, t));
+					}
+				} else if (TreeDiff.sameContainer(f, t)) {
+					Callable<JzonObject> task = task(key, f, t);
+					tasks.add(task);
+					results.add(task);
+				} else if (!f.unwrap().equals(t.unwrap())) {
+					results.add(instruction(key, t));
+				}
+				i++;
+				j++;
+			}
+		}
+
+		if (tasks.size() < 2) {
+			// nothing to split on, spread the flattening instead
+			return owner.diff(from, to, owner.getExecutor());
+		}
+
+		List<Future<JzonObject>> futures = new ArrayList<Future<JzonObject>>();
+		for (Callable<JzonObject> task : tasks) {
+			futures.add(submit(owner.getExecutor(), task));
+		}
+
+		JzonObject patch = factory.createJsonObject();
+		JzonArray instructions = factory.createJsonArray();
+		int next = 0;
+		for (Object result : results) {
+			if (result instanceof JzonObject) {
+				instructions.insert(instructions.size(), (JzonObject) result);
+				continue;
+			}
+			JzonObject partial = get(futures.get(next++));
+			for (Entry<String, JzonElement> e : partial.entrySet()) {
+				if (e.getKey().equals(JsonDiff.MOD)) {
+					JzonArray partialInstructions = (JzonArray) e.getValue();
+					for (int k = 0; k < partialInstructions.size(); k++) {
+						instructions.insert(instructions.size(), partialInstructions.get(k));
+					}
+				} else {
+					patch.add(e.getKey(), e.getValue());
+				}
+			}
+		}
+		if (instructions.size() > 0) {
+			patch.add(JsonDiff.MOD, instructions);
+		}
+		return patch;
+	}
+
+	Callable<JzonObject> task(final String key, final JzonElement from, final JzonElement to) {
+		return new Callable<JzonObject>() {
+
+			@Override
+			public JzonObject call() {
+				JzonObject fromMember = factory.createJsonObject();
+				fromMember.add(key, from);
+				JzonObject toMember = factory.createJsonObject();
+				toMember.add(key, to);
+				return owner.diff(fromMember, toMember, null);
+			}
+		};
+	}
+
+	JzonObject instruction(String key, JzonElement value) {
+		JzonObject instruction = factory.createJsonObject();
+		if (value == null) {
+			instruction.addProperty(key, 0);
+		} else {
+			instruction.add(key, value);
+		}
+		return instruction;
+	}
+
+	/**
+	 * Runs a task on the executor, or right away on the calling thread if there is none.
+	 */
+	static <T> Future<T> submit(ExecutorService executor, Callable<T> task) {
+		FutureTask<T> future = new FutureTask<T>(task);
+		if (executor == null) {
+			future.run();
+		} else {
+			executor.execute(future);
+		}
+		return future;
+	}
+
+	/**
+	 * Waits for a task, rethrowing what it threw.
+	 */
+	static <T> T get(Future<T> future) {
+		try {
+			return future.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted while diffing", e);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+			if (e.getCause() instanceof Error) {
+				throw (Error) e.getCause();
+			}
+			throw new IllegalStateException(e.getCause());
+		}
+	}
+
+}
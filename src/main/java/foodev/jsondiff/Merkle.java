@@ -0,0 +1,158 @@
+package foodev.jsondiff;
+
+import java.util.Arrays;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.TreeSet;
+
+import foodev.jsondiff.jsonwrap.JzonArray;
+import foodev.jsondiff.jsonwrap.JzonElement;
+import foodev.jsondiff.jsonwrap.JzonObject;
+
+/**
+ * Content hashes of every subtree in a document, computed bottom-up in the order <code>JsonDiff.findLeaves</code>
+ * visits the elements. A container whose path and content also occur in the other document is flattened to a single
+ * opaque leaf, so unchanged parts of large documents never reach the sequence diff.
+ *
+ * <p>
+ * Content hashes are always 64 bit, independent of the {@link Fingerprint} used for paths, since a collision would
+ * hide a change.
+ * </p>
+ */
+final class Merkle {
+
+	// per element in visiting order: content hash and size of the subtree rooted there
+	long[] content = new long[64];
+	int[] size = new int[64];
+	int count;
+
+	// sorted hashes of path and content for every container but the root
+	long[] containers = new long[16];
+	int containerCount;
+
+	// the document diffed against, and the element findLeaves is at
+	Merkle other;
+	int cursor;
+
+	static Merkle of(JzonElement root, Fingerprint fingerprint) {
+		Merkle merkle = new Merkle();
+		merkle.walk(root, 0, fingerprint);
+		merkle.containers = Arrays.copyOf(merkle.containers, merkle.containerCount);
+		Arrays.sort(merkle.containers);
+		return merkle;
+	}
+
+	/**
+	 * @return a fresh copy to pair with another document, sharing the hashes of this one
+	 */
+	Merkle copy() {
+		Merkle copy = new Merkle();
+		copy.content = content;
+		copy.size = size;
+		copy.count = count;
+		copy.containers = containers;
+		copy.containerCount = containerCount;
+		return copy;
+	}
+
+	static void pair(Merkle from, Merkle to) {
+		from.other = to;
+		to.other = from;
+	}
+
+	/**
+	 * Returns if the subtree at <code>index</code>, found at a node hashed to <code>path</code>, is present unchanged
+	 * in the other document.
+	 */
+	boolean isShared(int index, long path) {
+		return index > 0 && Arrays.binarySearch(other.containers, Fingerprint.mix(path, content[index])) >= 0;
+	}
+
+	/**
+	 * @return the content hash of an object so far, extended with a member (objects are hashed in key order)
+	 */
+	static long member(long h, String key, long child) {
+		return Fingerprint.mix(Fingerprint.mix(h, Fingerprint.text(Fingerprint.KEY, key)), child);
+	}
+
+	/**
+	 * @return the content hash of an array so far, extended with an element
+	 */
+	static long element(long h, long child) {
+		return Fingerprint.mix(h, child);
+	}
+
+	/**
+	 * @return the content hash of a primitive or null
+	 */
+	static long value(JzonElement el) {
+		return el.isJsonNull() ? Fingerprint.NULL : Fingerprint.text(Fingerprint.VALUE, el.toString());
+	}
+
+	/**
+	 * @return the content hash of a single element, as stored for it by {@link #of(JzonElement, Fingerprint)}
+	 */
+	static long content(JzonElement el) {
+		if (el.isJsonObject()) {
+			long h = Fingerprint.OBJ;
+			for (Entry<String, JzonElement> e : TreeDiff.sorted((JzonObject) el)) {
+				h = member(h, e.getKey(), content(e.getValue()));
+			}
+			return h;
+		} else if (el.isJsonArray()) {
+			long h = Fingerprint.ARR;
+			JzonArray arr = (JzonArray) el;
+			for (int i = 0, n = arr.size(); i < n; i++) {
+				h = element(h, content(arr.get(i)));
+			}
+			return h;
+		}
+		return value(el);
+	}
+
+	private void walk(JzonElement el, long path, Fingerprint fingerprint) {
+
+		int index = count++;
+		if (index == content.length) {
+			content = Arrays.copyOf(content, index * 2);
+			size = Arrays.copyOf(size, index * 2);
+		}
+
+		long h;
+		if (el.isJsonObject()) {
+
+			h = Fingerprint.OBJ;
+			Set<Entry<String, JzonElement>> memb = new TreeSet<Entry<String, JzonElement>>(JsonDiff.OBJECT_KEY_COMPARATOR);
+			memb.addAll(((JzonObject) el).entrySet());
+			for (Entry<String, JzonElement> e : memb) {
+				int child = count;
+				walk(e.getValue(), fingerprint.obj(path, fingerprint.key(e.getKey())), fingerprint);
+				h = member(h, e.getKey(), content[child]);
+			}
+
+		} else if (el.isJsonArray()) {
+
+			h = Fingerprint.ARR;
+			JzonArray arr = (JzonArray) el;
+			for (int i = 0, n = arr.size(); i < n; i++) {
+				int child = count;
+				walk(arr.get(i), fingerprint.arr(path), fingerprint);
+				h = element(h, content[child]);
+			}
+
+		} else {
+			h = value(el);
+		}
+
+		content[index] = h;
+		size[index] = count - index;
+
+		if (index > 0 && (el.isJsonObject() || el.isJsonArray())) {
+			if (containerCount == containers.length) {
+				containers = Arrays.copyOf(containers, containerCount * 2);
+			}
+			containers[containerCount++] = Fingerprint.mix(path, h);
+		}
+	}
+
+}
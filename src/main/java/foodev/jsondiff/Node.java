@@ -3,13 +3,20 @@ package foodev.jsondiff;
 abstract class Node implements Cloneable {
 
 	// keep the original hash code since we'll be unsetting the parent leaf
-	int hashCode, parentHashCode;
+	long hashCode, parentHashCode;
+
+	final Fingerprint fingerprint;
 
 	Node parent;
 	Leaf leaf;
 
 	Node(Node parent) {
+		this(parent, parent.fingerprint);
+	}
+
+	Node(Node parent, Fingerprint fingerprint) {
 		this.parent = parent;
+		this.fingerprint = fingerprint;
 	}
 
 	@Override
@@ -21,13 +28,13 @@ abstract class Node implements Cloneable {
 		}
 	}
 
-	abstract int doHash(boolean indexed);
+	abstract long doHash(boolean indexed);
 	
 	abstract void rehash(Node newParent);
 
 	@Override
 	public int hashCode() {
-		return doHash(false);
+		return (int) doHash(false);
 	}
 
 	boolean isOrphan() {
@@ -43,4 +50,4 @@ abstract class Node implements Cloneable {
 			leaf.newStructure.clear();
 		}
 	}
-}
\ No newline at end of file
+}
@@ -4,33 +4,34 @@ class ObjNode extends Node {
 
 	final String key;
 
+	final long keyHash;
+
 	ObjNode(Node parent, String key) {
 		super(parent);
 		this.key = key;
+		this.keyHash = fingerprint.key(key);
+	}
+
+	ObjNode(Node parent, String key, long keyHash) {
+		super(parent);
+		this.key = key;
+		this.keyHash = keyHash;
 	}
 	
 	@Override
 	void rehash(Node newParent) {
 		this.parent = newParent;
 		this.parentHashCode = newParent.hashCode;
-		int i = this.parentHashCode;
-
-		i = i * 31 + ObjNode.class.hashCode();
-		i = i * 31 + key.hashCode();
-		hashCode = i;
+		hashCode = fingerprint.obj(this.parentHashCode, keyHash);
 	}
 	
 
 	@Override
-	int doHash(boolean indexed) {
+	long doHash(boolean indexed) {
 
 		// just pass through the arguments as is since
 		// it's the arr node that alters them.
-		int i = parent.doHash(indexed);
-
-		i = i * 31 + ObjNode.class.hashCode();
-		i = i * 31 + key.hashCode();
-		return i;
+		return fingerprint.obj(parent.doHash(indexed), keyHash);
 
 	}
 
@@ -39,4 +40,4 @@ class ObjNode extends Node {
 		return key;
 	}
 
-}
\ No newline at end of file
+}
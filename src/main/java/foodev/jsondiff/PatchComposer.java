@@ -0,0 +1,354 @@
+package foodev.jsondiff;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import foodev.jsondiff.JsonDiff.Instruction;
+import foodev.jsondiff.jsonwrap.JzonArray;
+import foodev.jsondiff.jsonwrap.JzonElement;
+import foodev.jsondiff.jsonwrap.JzonObject;
+import foodev.jsondiff.jsonwrap.Wrapper;
+
+/**
+ * Squashes patches meant to be applied one after the other into a single patch, without the document they apply to.
+ * The patches are followed in the order <code>JsonDiff.apply</code> carries them out, building a model of what happens
+ * to the values of the unknown document:
+ * <ul>
+ * <li>an object keeps, per changed member, whether it was deleted, replaced by a value, or changed in place;</li>
+ * <li>an array keeps a list of its elements as far as the patches reached into it, each one either an element of the
+ * original array, possibly changed in place, or a value added by a patch. Elements behind the list are kept as they
+ * are, so indexes shift as inserts and deletes are replayed on the list;</li>
+ * <li>values added by a patch are known, later patches are simply applied to them.</li>
+ * </ul>
+ * The model is then written out as instructions in the same layout as a diff: changes in place first, as nested
+ * patches addressing array elements by their original index, then per container the deletes, inserts and
+ * replacements of its own members or elements.
+ *
+ * <p>
+ * The document is assumed to hold an object or array wherever the patches change members or elements, as any document
+ * the patches were diffed from does.
+ * </p>
+ */
+class PatchComposer {
+
+	// member deleted from an object of the document
+	static final Object DELETED = new Object();
+
+	static final int ANY = 0, OBJ = 1, ARR = 2;
+
+	/**
+	 * A value of the document, changed in place by the patches.
+	 */
+	static final class Node {
+
+		// index in the original array, -1 for object members and the root
+		final int index;
+
+		// object or array, as soon as a patch tells
+		int kind = ANY;
+
+		// OBJ: changed members, each a Node, a value added by a patch, or DELETED
+		Map<String, Object> members;
+
+		// ARR: the first elements, each a Node for an original element or a value added by a patch
+		List<Object> items;
+
+		// ARR: number of original elements reached by the list, the others follow it unchanged
+		int reached;
+
+		Node(int index) {
+			this.index = index;
+		}
+	}
+
+	final JsonDiff owner;
+
+	final Wrapper factory;
+
+	PatchComposer(JsonDiff owner) {
+		this.owner = owner;
+		this.factory = owner.factory;
+	}
+
+	JzonObject compose(List<JzonElement> patches) {
+
+		Node root = new Node(-1);
+		root.kind = OBJ;
+		root.members = new TreeMap<String, Object>();
+
+		for (JzonElement patch : patches) {
+			if (!patch.isJsonObject()) {
+				throw new IllegalArgumentException("Patch is not a json object");
+			}
+			apply(root, (JzonObject) patch);
+		}
+
+		JzonObject patch = factory.createJsonObject();
+		JzonArray instructions = factory.createJsonArray();
+		write(root, instructions, patch);
+		if (instructions.size() > 0) {
+			patch.add(JsonDiff.MOD, instructions);
+		}
+		return patch;
+	}
+
+	/**
+	 * Follows a patch applied to a value of the document, as <code>JsonDiff.apply</code> does.
+	 */
+	void apply(Node node, JzonObject patch) {
+
+		Set<Entry<String, JzonElement>> memb = new TreeSet<Entry<String, JzonElement>>(JsonDiff.INSTRUCTIONS_COMPARATOR);
+		memb.addAll(patch.entrySet());
+		for (Entry<String, JzonElement> entry : memb) {
+			String key = entry.getKey();
+			JzonElement value = entry.getValue();
+			if (key.startsWith(JsonDiff.MOD)) {
+				if (!value.isJsonArray()) {
+					throw new IllegalArgumentException("Instructions of " + key + " are not an array");
+				}
+				Object applyTo = key.equals(JsonDiff.MOD) ? node : child(node, key.substring(1));
+				JzonArray array = (JzonArray) value;
+				for (int i = 0; i < array.size(); i++) {
+					JzonElement partial = array.get(i);
+					Iterator<? extends Entry<String, JzonElement>> it = partial.isJsonObject() ? ((JzonObject) partial).entrySet().iterator() : null;
+					if (it == null || !it.hasNext()) {
+						throw new IllegalArgumentException("Instruction " + partial + " of " + key + " is not a single member object");
+					}
+					Entry<String, JzonElement> childentry = it.next();
+					Instruction instruction = owner.create(childentry.getKey());
+					if (!fits(applyTo, instruction)) {
+						// replaced by a new container, as apply does
+						applyTo = instruction.isIndexed() ? factory.createJsonArray() : factory.createJsonObject();
+						if (node.kind == ARR) {
+							throw new IllegalArgumentException("Can't replace element " + key + " by a new container");
+						}
+						node.members.put(key.substring(1), applyTo);
+					}
+					partial(applyTo, instruction, childentry.getValue());
+				}
+			} else {
+				Instruction instruction = owner.create(key);
+				if (instruction.oper == Oper.INSERT || instruction.oper == Oper.DELETE) {
+					partial(node, instruction, value);
+				} else if (instruction.isIndexed()) {
+					kind(node, ARR);
+					if (value.isJsonPrimitive()) {
+						reach(node, instruction.index + 1);
+						node.items.set(instruction.index, value);
+					} else {
+						nested(element(node, instruction.index), key, value);
+					}
+				} else {
+					kind(node, OBJ);
+					if (value.isJsonPrimitive() || value.isJsonNull()) {
+						node.members.put(key, value);
+					} else {
+						nested(member(node, key), key, value);
+					}
+				}
+			}
+		}
+	}
+
+	void nested(Object child, String key, JzonElement patch) {
+		if (!patch.isJsonObject()) {
+			throw new IllegalArgumentException("Patch of " + key + " is not a json object");
+		}
+		if (child instanceof Node) {
+			apply((Node) child, (JzonObject) patch);
+		} else {
+			// apply puts the values of the patch itself in place, later patches must not change them
+			owner.apply((JzonElement) child, owner.deepCopy(patch));
+		}
+	}
+
+	/**
+	 * Carries out a single instruction on a value of the document or added by a patch.
+	 */
+	void partial(Object applyTo, Instruction instruction, JzonElement value) {
+
+		if (!(applyTo instanceof Node)) {
+			owner.applyPartial((JzonElement) applyTo, instruction, copy(value));
+			return;
+		}
+
+		Node node = (Node) applyTo;
+		kind(node, instruction.isIndexed() ? ARR : OBJ);
+		if (instruction.isIndexed() != (node.kind == ARR)) {
+			throw new IllegalArgumentException("Instruction for " + instruction.key + " doesn't fit an " + (node.kind == ARR ? "array" : "object"));
+		}
+
+		if (node.kind == OBJ) {
+			node.members.put(instruction.key, instruction.oper == Oper.DELETE ? DELETED : copy(value));
+		} else if (instruction.oper == Oper.DELETE) {
+			reach(node, instruction.index + 1);
+			node.items.remove(instruction.index);
+		} else if (instruction.oper == Oper.INSERT) {
+			reach(node, instruction.index);
+			node.items.add(instruction.index, copy(value));
+		} else {
+			reach(node, instruction.index + 1);
+			node.items.set(instruction.index, copy(value));
+		}
+	}
+
+	/**
+	 * @return if an instruction can be carried out on a value, instead of replacing it by a new container first
+	 */
+	static boolean fits(Object applyTo, Instruction instruction) {
+		if (applyTo instanceof Node) {
+			int kind = ((Node) applyTo).kind;
+			return kind == ANY || instruction.isIndexed() == (kind == ARR);
+		}
+		JzonElement el = (JzonElement) applyTo;
+		return instruction.isIndexed() ? el.isJsonArray() : el.isJsonObject();
+	}
+
+	/**
+	 * @return the member or element of a value of the document that <code>"~" + key</code> instructions apply to
+	 */
+	Object child(Node node, String key) {
+		kind(node, isIndex(key) ? ARR : OBJ);
+		return node.kind == ARR ? element(node, Integer.parseInt(key)) : member(node, key);
+	}
+
+	Object member(Node node, String key) {
+		Object member = node.members.get(key);
+		if (member == null) {
+			member = new Node(-1);
+			node.members.put(key, member);
+		} else if (member == DELETED) {
+			// as apply, getting a missing member
+			member = factory.parse("null");
+		}
+		return member;
+	}
+
+	Object element(Node node, int index) {
+		reach(node, index + 1);
+		return node.items.get(index);
+	}
+
+	/**
+	 * Makes sure the list of an array holds at least <code>size</code> elements, taking them from the original array.
+	 */
+	static void reach(Node node, int size) {
+		while (node.items.size() < size) {
+			node.items.add(new Node(node.reached++));
+		}
+	}
+
+	static void kind(Node node, int kind) {
+		if (node.kind != ANY) {
+			return;
+		}
+		node.kind = kind;
+		if (kind == OBJ) {
+			node.members = new TreeMap<String, Object>();
+		} else {
+			node.items = new ArrayList<Object>();
+		}
+	}
+
+	static boolean isIndex(String key) {
+		if (key.length() == 0) {
+			return false;
+		}
+		for (int i = 0; i < key.length(); i++) {
+			if (!Character.isDigit(key.charAt(i))) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Writes the changes to a value of the document: its own instructions to <code>instructions</code>, the patches of
+	 * its members or elements to <code>patch</code>.
+	 */
+	void write(Node node, JzonArray instructions, JzonObject patch) {
+
+		if (node.kind == OBJ) {
+
+			for (Entry<String, Object> e : node.members.entrySet()) {
+				if (e.getValue() == DELETED) {
+					instruction(instructions, "-" + e.getKey(), null);
+				} else if (e.getValue() instanceof Node) {
+					writeChild(e.getKey(), (Node) e.getValue(), patch);
+				} else {
+					instruction(instructions, e.getKey(), (JzonElement) e.getValue());
+				}
+			}
+
+		} else if (node.kind == ARR) {
+
+			// position in the array as the instructions are applied, and the next original element
+			int pos = 0;
+			int next = 0;
+			List<JzonElement> added = new ArrayList<JzonElement>();
+			for (int i = 0; i <= node.items.size(); i++) {
+				Object item = i < node.items.size() ? node.items.get(i) : null;
+				if (item != null && !(item instanceof Node)) {
+					added.add((JzonElement) item);
+					continue;
+				}
+				// original elements up to this one were deleted, then the values added are inserted
+				int end = item == null ? node.reached : ((Node) item).index;
+				int deleted = end - next;
+				int k = 0;
+				for (; k < deleted && k < added.size(); k++) {
+					instruction(instructions, String.valueOf(pos++), added.get(k));
+				}
+				for (int d = k; d < deleted; d++) {
+					instruction(instructions, "-" + pos, null);
+				}
+				for (; k < added.size(); k++) {
+					instruction(instructions, "+" + pos++, added.get(k));
+				}
+				added.clear();
+				if (item != null) {
+					writeChild(String.valueOf(end), (Node) item, patch);
+					pos++;
+					next = end + 1;
+				}
+			}
+
+		}
+	}
+
+	void writeChild(String key, Node child, JzonObject patch) {
+		JzonArray childInstructions = factory.createJsonArray();
+		JzonObject childPatch = factory.createJsonObject();
+		write(child, childInstructions, childPatch);
+		if (!childPatch.entrySet().isEmpty()) {
+			patch.add(key, childPatch);
+		}
+		if (childInstructions.size() > 0) {
+			patch.add(JsonDiff.MOD + key, childInstructions);
+		}
+	}
+
+	void instruction(JzonArray instructions, String key, JzonElement value) {
+		JzonObject instruction = factory.createJsonObject();
+		if (value == null) {
+			instruction.addProperty(key, 0);
+		} else {
+			instruction.add(key, value);
+		}
+		instructions.insert(instructions.size(), instruction);
+	}
+
+	JzonElement copy(JzonElement value) {
+		if (value != null && (value.isJsonObject() || value.isJsonArray())) {
+			return owner.deepCopy(value);
+		}
+		return value;
+	}
+
+}
@@ -0,0 +1,263 @@
+package foodev.jsondiff;
+
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+
+import foodev.jsondiff.JsonDiff.Instruction;
+import foodev.jsondiff.jsonwrap.JzonArray;
+import foodev.jsondiff.jsonwrap.JzonElement;
+import foodev.jsondiff.jsonwrap.JzonObject;
+
+/**
+ * Splits the patch of an object or array into the parts about each of its members or elements, for applies that write
+ * a document piece by piece instead of patching it as a tree: {@link StreamingApply} over parser tokens and
+ * {@link SpliceApply} over bytes. Each decides first whether a container can be done piece by piece, then patches the
+ * pieces that change with <code>JsonDiff.apply</code> on a holder of just those pieces.
+ */
+final class PatchParts {
+
+	private PatchParts() {
+	}
+
+	/**
+	 * @return if an object or array can be patched piece by piece with the nested patch and own instructions given,
+	 *         instead of as a tree
+	 */
+	static boolean isStreamed(JsonDiff owner, boolean object, JzonElement patch, JzonElement instructions) {
+
+		if (patch != null && !patch.isJsonObject()) {
+			return false;
+		}
+
+		if (object) {
+
+			Set<String> deleted = new HashSet<String>();
+			Set<String> changed = new HashSet<String>();
+			if (patch != null) {
+				for (Entry<String, JzonElement> entry : ((JzonObject) patch).entrySet()) {
+					String key = entry.getKey();
+					if (key.equals(JsonDiff.MOD)) {
+						if (!collect(owner, entry.getValue(), false, deleted, changed)) {
+							return false;
+						}
+					} else if (key.startsWith(JsonDiff.MOD)) {
+						changed.add(key.substring(1));
+					} else {
+						Instruction instruction = owner.create(key);
+						if (instruction.isIndexed()) {
+							return false;
+						}
+						(instruction.oper == Oper.DELETE ? deleted : changed).add(instruction.key);
+					}
+				}
+			}
+			if (instructions != null && !collect(owner, instructions, false, deleted, changed)) {
+				return false;
+			}
+			// a member deleted and set again may move to the end
+			deleted.retainAll(changed);
+			return deleted.isEmpty();
+
+		}
+
+		if (patch != null) {
+			for (Entry<String, JzonElement> entry : ((JzonObject) patch).entrySet()) {
+				String key = entry.getKey();
+				if (key.startsWith(JsonDiff.MOD)) {
+					// instructions applied to the array before its nested patches are done
+					if (!PatchComposer.isIndex(key.substring(1)) || !entry.getValue().isJsonArray()) {
+						return false;
+					}
+				} else {
+					Instruction instruction = owner.create(key);
+					if (!instruction.isIndexed() || instruction.oper != Oper.SET) {
+						return false;
+					}
+				}
+			}
+		}
+		return instructions == null || collect(owner, instructions, true, null, null);
+	}
+
+	/**
+	 * Collects the members a list of instructions deletes and changes otherwise.
+	 *
+	 * @return false if an instruction doesn't fit the container
+	 */
+	static boolean collect(JsonDiff owner, JzonElement instructions, boolean indexed, Set<String> deleted, Set<String> changed) {
+		if (!instructions.isJsonArray()) {
+			return false;
+		}
+		JzonArray array = (JzonArray) instructions;
+		for (int i = 0; i < array.size(); i++) {
+			Entry<String, JzonElement> entry = first(array.get(i));
+			if (entry == null) {
+				return false;
+			}
+			Instruction instruction = owner.create(entry.getKey());
+			if (instruction.isIndexed() != indexed) {
+				return false;
+			}
+			if (deleted != null) {
+				(instruction.oper == Oper.DELETE ? deleted : changed).add(instruction.key);
+			}
+		}
+		return true;
+	}
+
+	static Entry<String, JzonElement> first(JzonElement instruction) {
+		if (!instruction.isJsonObject()) {
+			return null;
+		}
+		Iterator<? extends Entry<String, JzonElement>> it = ((JzonObject) instruction).entrySet().iterator();
+		return it.hasNext() ? it.next() : null;
+	}
+
+	/**
+	 * Sorts out the patch of an object that {@link #isStreamed} accepted: the nested patches and own instructions of
+	 * members go to <code>patches</code> and <code>lists</code>, members changed by anything else to
+	 * <code>changed</code>.
+	 *
+	 * @return every member the patch is about
+	 */
+	static Set<String> members(JsonDiff owner, JzonObject patch, JzonArray instructions, Map<String, JzonElement> patches, Map<String, JzonElement> lists, Set<String> changed) {
+		if (patch != null) {
+			for (Entry<String, JzonElement> entry : patch.entrySet()) {
+				String key = entry.getKey();
+				if (key.equals(JsonDiff.MOD)) {
+					collect(owner, entry.getValue(), false, changed, changed);
+				} else if (key.startsWith(JsonDiff.MOD)) {
+					lists.put(key.substring(1), entry.getValue());
+				} else {
+					Instruction instruction = owner.create(key);
+					if (instruction.oper == Oper.SET && entry.getValue().isJsonObject()) {
+						patches.put(key, entry.getValue());
+					} else {
+						changed.add(instruction.key);
+					}
+				}
+			}
+		}
+		if (instructions != null) {
+			collect(owner, instructions, false, changed, changed);
+		}
+		Set<String> pending = new LinkedHashSet<String>(changed);
+		pending.addAll(patches.keySet());
+		pending.addAll(lists.keySet());
+		return pending;
+	}
+
+	/**
+	 * Patches the members of a holder object with the part of the patch and own instructions about them.
+	 */
+	static void apply(JsonDiff owner, JzonObject holder, JzonObject patch, JzonArray instructions, Set<String> keys) {
+
+		if (patch != null) {
+			JzonObject slice = owner.factory.createJsonObject();
+			for (Entry<String, JzonElement> entry : patch.entrySet()) {
+				String key = entry.getKey();
+				if (key.equals(JsonDiff.MOD)) {
+					JzonArray list = slice(owner, (JzonArray) entry.getValue(), keys);
+					if (list.size() > 0) {
+						slice.add(key, list);
+					}
+				} else if (keys.contains(key.startsWith(JsonDiff.MOD) ? key.substring(1) : owner.create(key).key)) {
+					slice.add(key, entry.getValue());
+				}
+			}
+			owner.apply(holder, slice);
+		}
+		if (instructions != null) {
+			JzonArray list = slice(owner, instructions, keys);
+			if (list.size() > 0) {
+				JzonObject slice = owner.factory.createJsonObject();
+				slice.add(JsonDiff.MOD, list);
+				owner.apply(holder, slice);
+			}
+		}
+	}
+
+	static JzonArray slice(JsonDiff owner, JzonArray instructions, Set<String> keys) {
+		JzonArray slice = owner.factory.createJsonArray();
+		for (int i = 0; i < instructions.size(); i++) {
+			if (keys.contains(owner.create(first(instructions.get(i)).getKey()).key)) {
+				slice.insert(slice.size(), instructions.get(i));
+			}
+		}
+		return slice;
+	}
+
+	/**
+	 * Sorts out the patch of an array that {@link #isStreamed} accepted: the nested patches and own instructions of
+	 * elements, by original index.
+	 *
+	 * @return the highest index the patch is about, or -1
+	 */
+	static int elements(JsonDiff owner, JzonObject patch, Map<Integer, JzonElement> patches, Map<Integer, JzonElement> lists) {
+		int last = -1;
+		if (patch != null) {
+			for (Entry<String, JzonElement> entry : patch.entrySet()) {
+				String key = entry.getKey();
+				if (key.startsWith(JsonDiff.MOD)) {
+					int index = Integer.parseInt(key.substring(1));
+					lists.put(index, entry.getValue());
+					last = Math.max(last, index);
+				} else {
+					int index = owner.create(key).index;
+					patches.put(index, entry.getValue());
+					last = Math.max(last, index);
+				}
+			}
+		}
+		return last;
+	}
+
+	/**
+	 * Replays the own instructions of an array on its first elements, filling <code>items</code> with the original
+	 * indexes kept and the values added.
+	 *
+	 * @return how many original elements the instructions reach into the array
+	 */
+	static int replay(JsonDiff owner, JzonArray instructions, List<Object> items) {
+		int reached = 0;
+		if (instructions != null) {
+			for (int i = 0; i < instructions.size(); i++) {
+				Entry<String, JzonElement> entry = first(instructions.get(i));
+				Instruction instruction = owner.create(entry.getKey());
+				int size = instruction.oper == Oper.INSERT ? instruction.index : instruction.index + 1;
+				while (items.size() < size) {
+					items.add(reached++);
+				}
+				if (instruction.oper == Oper.DELETE) {
+					items.remove(instruction.index);
+				} else if (instruction.oper == Oper.INSERT) {
+					items.add(instruction.index, entry.getValue());
+				} else {
+					items.set(instruction.index, entry.getValue());
+				}
+			}
+		}
+		return reached;
+	}
+
+	/**
+	 * @return the slice of the patch applying an element's nested patch and own instructions to it, as the only
+	 *         element of a holder array
+	 */
+	static JzonObject element(JsonDiff owner, JzonElement patch, JzonElement instructions) {
+		JzonObject slice = owner.factory.createJsonObject();
+		if (patch != null) {
+			slice.add("0", patch);
+		}
+		if (instructions != null) {
+			slice.add(JsonDiff.MOD + "0", instructions);
+		}
+		return slice;
+	}
+
+}
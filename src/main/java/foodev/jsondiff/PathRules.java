@@ -0,0 +1,125 @@
+package foodev.jsondiff;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+
+/**
+ * Ignore and include rules compiled into a trie, walked alongside the documents while flattening. Every node stands
+ * for an object member or, with <code>*</code>, for the elements of an array. A path is ignored if the closest rule on
+ * it or above it is an ignore rule; anything ignored with nothing included below is left out without being looked at.
+ *
+ * <p>
+ * Compiled rules are never changed, so diffs running concurrently may share them.
+ * </p>
+ */
+final class PathRules {
+
+	// left out, as is anything below
+	static final PathRules SKIPPED = new PathRules(null);
+
+	static {
+		SKIPPED.ignored = true;
+		SKIPPED.skip = true;
+	}
+
+	private final Map<String, PathRules> members = new HashMap<String, PathRules>();
+	private PathRules elements;
+
+	// the rule given for this path, if any: TRUE to ignore, FALSE to include
+	private Boolean rule;
+
+	private boolean ignored;
+	private boolean skip;
+
+	private PathRules(Boolean rule) {
+		this.rule = rule;
+	}
+
+	/**
+	 * Compiles rules given per JSON pointer, <code>true</code> to ignore the path and <code>false</code> to include it.
+	 */
+	static PathRules compile(Map<String, Boolean> rules) {
+		PathRules root = new PathRules(null);
+		for (Entry<String, Boolean> e : rules.entrySet()) {
+			PathRules node = root;
+			for (String segment : segments(e.getKey())) {
+				PathRules next = segment == null ? node.elements : node.members.get(segment);
+				if (next == null) {
+					next = new PathRules(null);
+					if (segment == null) {
+						node.elements = next;
+					} else {
+						node.members.put(segment, next);
+					}
+				}
+				node = next;
+			}
+			node.rule = e.getValue();
+		}
+		root.resolve(false);
+		return root;
+	}
+
+	/**
+	 * @return the rules for a member of the object at this path, {@link #SKIPPED}, or <code>null</code> if no rule
+	 *         applies to it or below it
+	 */
+	PathRules member(String key) {
+		PathRules next = members.get(key);
+		return next != null ? next : (ignored ? SKIPPED : null);
+	}
+
+	/**
+	 * @return the rules for the elements of the array at this path, {@link #SKIPPED}, or <code>null</code> if no rule
+	 *         applies to them or below them
+	 */
+	PathRules elements() {
+		return elements != null ? elements : (ignored ? SKIPPED : null);
+	}
+
+	/**
+	 * @return if the value at this path and everything below it are left out
+	 */
+	boolean isSkipped() {
+		return skip;
+	}
+
+	/**
+	 * Works out from the rules given which paths are ignored and which are left out entirely.
+	 * 
+	 * @return if anything at or below this path is kept
+	 */
+	private boolean resolve(boolean parentIgnored) {
+		ignored = rule != null ? rule : parentIgnored;
+		boolean kept = !ignored;
+		for (PathRules member : members.values()) {
+			kept |= member.resolve(ignored);
+		}
+		if (elements != null) {
+			kept |= elements.resolve(ignored);
+		}
+		skip = !kept;
+		return kept;
+	}
+
+	/**
+	 * Splits a JSON pointer into unescaped object keys, with <code>null</code> for a <code>*</code> standing for array
+	 * elements.
+	 */
+	static String[] segments(String path) {
+		if (!path.startsWith("/")) {
+			throw new IllegalArgumentException("Not a JSON pointer: " + path);
+		}
+		String[] segments = path.substring(1).split("/", -1);
+		for (int i = 0; i < segments.length; i++) {
+			if (segments[i].equals("*")) {
+				segments[i] = null;
+			} else {
+				segments[i] = segments[i].replace("~1", "/").replace("~0", "~");
+			}
+		}
+		return segments;
+	}
+
+}
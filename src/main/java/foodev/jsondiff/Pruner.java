@@ -0,0 +1,47 @@
+package foodev.jsondiff;
+
+/**
+ * Interface deciding, before anything below it is flattened or compared, how the value at a path is diffed. Unlike a
+ * {@link Visitor}, which filters instructions once they have been computed, a pruned subtree costs nothing but the call
+ * to the pruner.
+ * 
+ * @since 2.1.0
+ */
+public interface Pruner<E> {
+
+	/**
+	 * How to diff a value.
+	 */
+	enum Decision {
+
+		/**
+		 * Diff the value and everything below it as usual.
+		 */
+		DIFF,
+
+		/**
+		 * Compare the value by content only: it is left alone if equal in both documents and replaced as a whole
+		 * otherwise.
+		 */
+		OPAQUE,
+
+		/**
+		 * Leave the value out of the diff, in both documents. The patch neither adds, removes nor changes it. Array
+		 * elements can't be left out without shifting the others and are treated as {@link #OPAQUE}.
+		 */
+		SKIP
+	}
+
+	/**
+	 * Decides how to diff the value found at <code>path</code> in either document. The root object is always diffed.
+	 * 
+	 * @param path
+	 *            - JSON pointer of the value, e.g. <code>/orders/3/audit</code>
+	 * @param from
+	 *            - value in the from document, or <code>null</code> if it has none at this path
+	 * @param to
+	 *            - value in the to document, or <code>null</code> if it has none at this path
+	 * @return how to diff the value, <code>null</code> meaning {@link Decision#DIFF}
+	 */
+	Decision prune(String path, E from, E to);
+}
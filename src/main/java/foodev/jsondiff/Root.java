@@ -2,8 +2,8 @@ package foodev.jsondiff;
 
 class Root extends Node {
 
-	Root() {
-		super(null);
+	Root(Fingerprint fingerprint) {
+		super(null, fingerprint);
 	}
 
 	@Override
@@ -12,7 +12,7 @@ class Root extends Node {
 	}
 
 	@Override
-	int doHash(boolean indexed) {
+	long doHash(boolean indexed) {
 		return 0;
 	}
 
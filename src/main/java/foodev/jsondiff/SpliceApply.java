@@ -0,0 +1,357 @@
+package foodev.jsondiff;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import foodev.jsondiff.jsonwrap.JzonArray;
+import foodev.jsondiff.jsonwrap.JzonElement;
+import foodev.jsondiff.jsonwrap.JzonObject;
+
+/**
+ * Applies a patch to a document given as UTF-8 bytes, splicing the text the patch changes into the text it leaves
+ * alone. Only the containers the patch goes into are scanned for where their members and elements are; runs of
+ * members and elements the patch doesn't mention are copied as they are, whitespace included, and values the patch
+ * never reaches aren't looked into at all. Values changed are parsed on their own, patched as {@link StreamingApply}
+ * patches them, with the part of the patch about them, and written in their place. A container the patch can't take
+ * piece by piece, as {@link PatchParts} decides, is parsed and patched as a whole.
+ *
+ * <p>
+ * An empty patch thus gives the document back byte for byte, and the result of any patch is the same document as
+ * <code>JsonDiff.apply</code> gives, but keeping the layout of what wasn't changed. A patch that can't be applied fails
+ * as <code>JsonDiff.apply</code> does, but possibly only after part of the document was written.
+ * </p>
+ */
+class SpliceApply {
+
+	// runs shorter than this are buffered with the values written rather than copied on their own
+	private final static int COPY_THRESHOLD = 8192;
+
+	final JsonDiff owner;
+
+	final JsonBytes json;
+
+	final WritableByteChannel channel;
+
+	final OutputStream out;
+
+	// position of the next character to read
+	long pos;
+
+	SpliceApply(JsonDiff owner, JsonBytes json, WritableByteChannel channel) {
+		this.owner = owner;
+		this.json = json;
+		this.channel = channel;
+		this.out = new BufferedOutputStream(Channels.newOutputStream(channel), COPY_THRESHOLD);
+	}
+
+	void apply(JzonElement patchEl) throws IOException {
+
+		if (!patchEl.isJsonObject()) {
+			throw new IllegalArgumentException("Patch is not a json object");
+		}
+		JzonObject patch = (JzonObject) patchEl;
+
+		pos = json.skipSpace(0);
+		if (pos == json.size) {
+			throw new IllegalArgumentException("No document to patch");
+		}
+		copy(0, pos);
+		if (isStreamed(patch, null)) {
+			stream(patch, null);
+		} else {
+			JzonElement doc = read();
+			owner.apply(doc, patch);
+			owner.write(doc, out);
+		}
+		long end = json.skipSpace(pos);
+		if (end != json.size) {
+			throw json.unexpected(end);
+		}
+		copy(pos, end);
+		out.flush();
+	}
+
+	boolean isStreamed(JzonElement patch, JzonElement instructions) {
+		byte b = json.get(pos);
+		return (b == '{' || b == '[') && PatchParts.isStreamed(owner, b == '{', patch, instructions);
+	}
+
+	void stream(JzonElement patch, JzonElement instructions) throws IOException {
+		if (json.get(pos) == '{') {
+			object((JzonObject) patch, (JzonArray) instructions);
+		} else {
+			array((JzonObject) patch, (JzonArray) instructions);
+		}
+	}
+
+	void object(JzonObject patch, JzonArray instructions) throws IOException {
+
+		Map<String, JzonElement> patches = new HashMap<String, JzonElement>();
+		Map<String, JzonElement> lists = new HashMap<String, JzonElement>();
+		Set<String> changed = new HashSet<String>();
+		Set<String> pending = PatchParts.members(owner, patch, instructions, patches, lists, changed);
+
+		out.write('{');
+		Run run = new Run(pos + 1);
+		pos = json.skipSpace(pos + 1);
+		boolean more = json.get(pos) != '}';
+		while (more) {
+			long keyEnd = json.stringEnd(pos);
+			String key = json.string(pos, keyEnd);
+			pos = json.skipSpace(keyEnd);
+			expect(':');
+			if (!pending.remove(key)) {
+				pos = json.valueEnd(pos);
+				run.keep(pos);
+			} else if (!changed.contains(key) && isStreamed(patches.get(key), lists.get(key))) {
+				// the key as it is
+				run.item();
+				copy(run.gap, pos);
+				stream(patches.get(key), lists.get(key));
+			} else {
+				JzonObject holder = owner.factory.createJsonObject();
+				holder.add(key, read());
+				members(run, holder, patch, instructions, Collections.singleton(key));
+			}
+			more = next(run, '}');
+		}
+		long close = pos++;
+		if (!pending.isEmpty()) {
+			// members the document doesn't have
+			members(run, owner.factory.createJsonObject(), patch, instructions, pending);
+		}
+		run.close(close);
+		run.flush();
+		out.write('}');
+	}
+
+	/**
+	 * Patches the members of a holder object, see <code>PatchParts.apply</code>, then writes them.
+	 */
+	void members(Run run, JzonObject holder, JzonObject patch, JzonArray instructions, Set<String> keys) throws IOException {
+		PatchParts.apply(owner, holder, patch, instructions, keys);
+		inside(run, holder);
+	}
+
+	void array(JzonObject patch, JzonArray instructions) throws IOException {
+
+		Map<Integer, JzonElement> patches = new HashMap<Integer, JzonElement>();
+		Map<Integer, JzonElement> lists = new HashMap<Integer, JzonElement>();
+		int last = PatchParts.elements(owner, patch, patches, lists);
+
+		List<Object> items = new ArrayList<Object>();
+		int reached = PatchParts.replay(owner, instructions, items);
+
+		out.write('[');
+		Run run = new Run(pos + 1);
+		pos = json.skipSpace(pos + 1);
+		boolean more = json.get(pos) != ']';
+		int next = 0;
+		for (Object item : items) {
+			if (item instanceof Integer) {
+				for (; next < (Integer) item; next++) {
+					more = skip(run, more, reached);
+				}
+				nextElement(more, reached);
+				more = element(run, patches.get(next), lists.get(next));
+				next++;
+			} else {
+				JzonArray holder = owner.factory.createJsonArray();
+				holder.insert(0, (JzonElement) item);
+				inside(run, holder);
+			}
+		}
+		for (; next < reached; next++) {
+			more = skip(run, more, reached);
+		}
+		for (; more; next++) {
+			more = element(run, patches.get(next), lists.get(next));
+		}
+		run.close(pos++);
+		if (last >= next) {
+			throw new IllegalArgumentException("Wrong index " + last + " for an array of " + next);
+		}
+		run.flush();
+		out.write(']');
+	}
+
+	void nextElement(boolean more, int reached) {
+		if (!more) {
+			throw new IllegalArgumentException("Wrong index " + (reached - 1) + " for a shorter array");
+		}
+	}
+
+	/**
+	 * Moves past an element deleted or replaced.
+	 *
+	 * @return if another element follows
+	 */
+	boolean skip(Run run, boolean more, int reached) throws IOException {
+		nextElement(more, reached);
+		run.flush();
+		pos = json.valueEnd(pos);
+		return next(run, ']');
+	}
+
+	/**
+	 * Writes the element at the current position with its nested patch and own instructions.
+	 *
+	 * @return if another element follows
+	 */
+	boolean element(Run run, JzonElement patch, JzonElement instructions) throws IOException {
+		if (patch == null && instructions == null) {
+			pos = json.valueEnd(pos);
+			run.keep(pos);
+		} else if (isStreamed(patch, instructions)) {
+			run.item();
+			copy(run.gap, pos);
+			stream(patch, instructions);
+		} else {
+			JzonArray holder = owner.factory.createJsonArray();
+			holder.insert(0, read());
+			owner.apply(holder, PatchParts.element(owner, patch, instructions));
+			inside(run, holder);
+		}
+		return next(run, ']');
+	}
+
+	/**
+	 * Writes what is inside a holder object or array, its members or elements in order.
+	 */
+	void inside(Run run, JzonElement holder) throws IOException {
+		ByteArrayOutputStream text = new ByteArrayOutputStream();
+		owner.write(holder, text);
+		byte[] bytes = text.toByteArray();
+		run.flush();
+		if (bytes.length > 2) {
+			run.item();
+			out.write(bytes, 1, bytes.length - 2);
+		}
+	}
+
+	/**
+	 * @return the value at the current position parsed, moving past it
+	 */
+	JzonElement read() {
+		long start = pos;
+		pos = json.valueEnd(start);
+		byte[] text = json.bytes(start, pos);
+		return owner.parse(text, 0, text.length);
+	}
+
+	void copy(long start, long end) throws IOException {
+		if (end - start < COPY_THRESHOLD) {
+			for (long i = start; i < end; i++) {
+				out.write(json.get(i));
+			}
+		} else {
+			out.flush();
+			json.copy(start, end, channel);
+		}
+	}
+
+	/**
+	 * Moves past the expected character and any whitespace after it.
+	 */
+	private void expect(char c) {
+		if (json.get(pos) != c) {
+			throw json.unexpected(pos);
+		}
+		pos = json.skipSpace(pos + 1);
+	}
+
+	/**
+	 * Moves past a separator after a member or element, or up to the closing character.
+	 *
+	 * @return if another member or element follows
+	 */
+	private boolean next(Run run, char close) {
+		pos = json.skipSpace(pos);
+		if (json.get(pos) == close) {
+			return false;
+		}
+		if (json.get(pos) != ',') {
+			throw json.unexpected(pos);
+		}
+		run.gap = pos + 1;
+		pos = json.skipSpace(pos + 1);
+		return true;
+	}
+
+	/**
+	 * The members or elements written to a container so far, and the stretch of text kept as it is that is yet to be
+	 * copied. Whitespace before a member or element goes with it, whitespace behind the last one with the stretch
+	 * reaching it.
+	 */
+	class Run {
+
+		// where the current member or element starts, behind the separator before it
+		long gap;
+
+		private boolean empty = true;
+
+		private long start = -1;
+
+		private long end;
+
+		Run(long gap) {
+			this.gap = gap;
+		}
+
+		/**
+		 * Adds the member or element kept as it is, ending at <code>to</code>, to the stretch to copy.
+		 */
+		void keep(long to) {
+			if (start < 0) {
+				start = gap;
+			}
+			end = to;
+		}
+
+		/**
+		 * Takes the whitespace up to the closing character into a stretch reaching the last member or element, or
+		 * keeps it in a container that was empty.
+		 */
+		void close(long at) {
+			if (start >= 0) {
+				end = at;
+			} else if (empty && json.skipSpace(gap) == at) {
+				start = gap;
+				end = at;
+			}
+		}
+
+		/**
+		 * Starts a member or element written otherwise, separating it from the ones before.
+		 */
+		void item() throws IOException {
+			flush();
+			if (!empty) {
+				out.write(',');
+			}
+			empty = false;
+		}
+
+		void flush() throws IOException {
+			if (start >= 0) {
+				long from = start;
+				start = -1;
+				item();
+				copy(from, end);
+			}
+		}
+
+	}
+
+}
@@ -0,0 +1,226 @@
+package foodev.jsondiff;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import foodev.jsondiff.jsonwrap.JzonArray;
+import foodev.jsondiff.jsonwrap.JzonElement;
+import foodev.jsondiff.jsonwrap.JzonObject;
+import foodev.jsondiff.jsonwrap.Wrapper;
+import foodev.jsondiff.jsonwrap.jackson2.Jackson2Wrapper;
+
+/**
+ * Applies a patch to a document read token by token, writing the patched document as it goes. Members and elements
+ * the patch doesn't mention are copied from the parser to the generator without being read into a tree. Objects and
+ * arrays only changed by nested patches or their own instructions are streamed the same way, one level down:
+ * <ul>
+ * <li>in an object, a member deleted, set or added by an instruction is read into a holder object and patched there by
+ * <code>JsonDiff.apply</code>, with the part of the patch about that member. Members the document lacks are added
+ * behind the others, as apply adds them;</li>
+ * <li>in an array, the array's own instructions are replayed up front on a list of original indexes and values added,
+ * as far as they reach into the array. Elements deleted or replaced are skipped, the ones kept are streamed with their
+ * nested patches, values added are written in between. Elements behind the list are kept as they are.</li>
+ * </ul>
+ * Anything else, such as a container replaced by one of another type or members deleted and added again in the same
+ * patch, is read into a tree and patched by <code>JsonDiff.apply</code> as a whole. Memory use thus depends on the patch
+ * and the values it replaces, not on the size of the document.
+ *
+ * <p>
+ * A patch that can't be applied fails as <code>JsonDiff.apply</code> does, but possibly only after part of the
+ * document was written.
+ * </p>
+ */
+class StreamingApply {
+
+	private final static ObjectMapper JSON = new ObjectMapper();
+
+	final JsonDiff owner;
+
+	final Wrapper factory;
+
+	final JsonParser parser;
+
+	final JsonGenerator generator;
+
+	StreamingApply(JsonDiff owner, JsonParser parser, JsonGenerator generator) {
+		this.owner = owner;
+		this.factory = owner.factory;
+		this.parser = parser;
+		this.generator = generator;
+	}
+
+	void apply(JzonElement patchEl) throws IOException {
+
+		if (!patchEl.isJsonObject()) {
+			throw new IllegalArgumentException("Patch is not a json object");
+		}
+		JzonObject patch = (JzonObject) patchEl;
+
+		JsonToken token = parser.getCurrentToken() != null ? parser.getCurrentToken() : parser.nextToken();
+		if (token == null) {
+			throw new IllegalArgumentException("No document to patch");
+		}
+		if (isStreamed(token, patch, null)) {
+			stream(patch, null);
+		} else {
+			JzonElement doc = read();
+			owner.apply(doc, patch);
+			write(doc);
+		}
+		generator.flush();
+	}
+
+	/**
+	 * @return if the value starting at <code>token</code> can be streamed with the nested patch and own instructions
+	 *         given, instead of being patched as a tree
+	 */
+	boolean isStreamed(JsonToken token, JzonElement patch, JzonElement instructions) {
+		if (token != JsonToken.START_OBJECT && token != JsonToken.START_ARRAY) {
+			return false;
+		}
+		return PatchParts.isStreamed(owner, token == JsonToken.START_OBJECT, patch, instructions);
+	}
+
+	void stream(JzonElement patch, JzonElement instructions) throws IOException {
+		if (parser.getCurrentToken() == JsonToken.START_OBJECT) {
+			object((JzonObject) patch, (JzonArray) instructions);
+		} else {
+			array((JzonObject) patch, (JzonArray) instructions);
+		}
+	}
+
+	void object(JzonObject patch, JzonArray instructions) throws IOException {
+
+		// nested patches and own instructions of members, and the members changed by anything else
+		Map<String, JzonElement> patches = new HashMap<String, JzonElement>();
+		Map<String, JzonElement> lists = new HashMap<String, JzonElement>();
+		Set<String> changed = new HashSet<String>();
+		Set<String> pending = PatchParts.members(owner, patch, instructions, patches, lists, changed);
+
+		generator.writeStartObject();
+		while (parser.nextToken() == JsonToken.FIELD_NAME) {
+			String key = parser.getCurrentName();
+			JsonToken token = parser.nextToken();
+			if (!pending.remove(key)) {
+				generator.writeFieldName(key);
+				generator.copyCurrentStructure(parser);
+			} else if (!changed.contains(key) && isStreamed(token, patches.get(key), lists.get(key))) {
+				generator.writeFieldName(key);
+				stream(patches.get(key), lists.get(key));
+			} else {
+				JzonObject holder = factory.createJsonObject();
+				holder.add(key, read());
+				members(holder, patch, instructions, Collections.singleton(key));
+			}
+		}
+		if (!pending.isEmpty()) {
+			// members the document doesn't have
+			members(factory.createJsonObject(), patch, instructions, pending);
+		}
+		generator.writeEndObject();
+	}
+
+	/**
+	 * Patches the members of a holder object with the part of the patch and own instructions about them, then writes
+	 * them.
+	 */
+	void members(JzonObject holder, JzonObject patch, JzonArray instructions, Set<String> keys) throws IOException {
+
+		PatchParts.apply(owner, holder, patch, instructions, keys);
+
+		// in the order of the object, which entrySet doesn't keep
+		Iterator<Entry<String, JsonNode>> it = ((JsonNode) holder.unwrap()).fields();
+		while (it.hasNext()) {
+			Entry<String, JsonNode> entry = it.next();
+			generator.writeFieldName(entry.getKey());
+			JSON.writeTree(generator, entry.getValue());
+		}
+	}
+
+	void array(JzonObject patch, JzonArray instructions) throws IOException {
+
+		// nested patches and own instructions of elements, by original index
+		Map<Integer, JzonElement> patches = new HashMap<Integer, JzonElement>();
+		Map<Integer, JzonElement> lists = new HashMap<Integer, JzonElement>();
+		int last = PatchParts.elements(owner, patch, patches, lists);
+
+		// own instructions replayed on the first elements: original indexes and values added
+		List<Object> items = new ArrayList<Object>();
+		int reached = PatchParts.replay(owner, instructions, items);
+
+		generator.writeStartArray();
+		int next = 0;
+		for (Object item : items) {
+			if (item instanceof Integer) {
+				for (; next < (Integer) item; next++) {
+					nextElement(reached);
+					parser.skipChildren();
+				}
+				nextElement(reached);
+				element(patches.get(next), lists.get(next));
+				next++;
+			} else {
+				write((JzonElement) item);
+			}
+		}
+		for (; next < reached; next++) {
+			nextElement(reached);
+			parser.skipChildren();
+		}
+		while (parser.nextToken() != JsonToken.END_ARRAY) {
+			element(patches.get(next), lists.get(next));
+			next++;
+		}
+		if (last >= next) {
+			throw new IllegalArgumentException("Wrong index " + last + " for an array of " + next);
+		}
+		generator.writeEndArray();
+	}
+
+	/**
+	 * Moves to the next element of an array the instructions reach <code>reached</code> elements into.
+	 */
+	void nextElement(int reached) throws IOException {
+		if (parser.nextToken() == JsonToken.END_ARRAY) {
+			throw new IllegalArgumentException("Wrong index " + (reached - 1) + " for a shorter array");
+		}
+	}
+
+	void element(JzonElement patch, JzonElement instructions) throws IOException {
+		if (patch == null && instructions == null) {
+			generator.copyCurrentStructure(parser);
+		} else if (isStreamed(parser.getCurrentToken(), patch, instructions)) {
+			stream(patch, instructions);
+		} else {
+			JzonArray holder = factory.createJsonArray();
+			holder.insert(0, read());
+			owner.apply(holder, PatchParts.element(owner, patch, instructions));
+			for (int i = 0; i < holder.size(); i++) {
+				write(holder.get(i));
+			}
+		}
+	}
+
+	JzonElement read() throws IOException {
+		return Jackson2Wrapper.wrap((JsonNode) JSON.readTree(parser));
+	}
+
+	void write(JzonElement el) throws IOException {
+		JSON.writeTree(generator, (JsonNode) el.unwrap());
+	}
+
+}
@@ -0,0 +1,361 @@
+package foodev.jsondiff;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import foodev.jsondiff.incava.IncavaEntry;
+import foodev.jsondiff.incava.Matches;
+import foodev.jsondiff.jsonwrap.JzonArray;
+import foodev.jsondiff.jsonwrap.JzonElement;
+import foodev.jsondiff.jsonwrap.JzonObject;
+import foodev.jsondiff.jsonwrap.Wrapper;
+
+/**
+ * Hierarchical diff walking both documents together. Object members are paired by key with a merge join over the
+ * sorted keys, and a sequence diff is only run over the elements of each pair of arrays, comparing elements by content
+ * hash. The cost is roughly linear in the size of the documents instead of depending on one global LCS.
+ *
+ * <p>
+ * Produces the same instruction syntax as the flattened diff: per container a list of instructions under
+ * <code>~key</code>, and the patches of nested containers under <code>key</code>, which are applied before the
+ * instructions and therefore address array elements by their original index.
+ * </p>
+ *
+ * <p>
+ * Arrays registered with {@link JsonDiff#addArrayKey(String, String)} are matched by the value of the key field
+ * instead, with a hash join over both arrays. The longest run of pairs in the same order in both arrays is kept and
+ * diffed, everything else becomes plain inserts, deletes and replacements.
+ * </p>
+ */
+class TreeDiff {
+
+	final JsonDiff owner;
+
+	final Wrapper factory;
+
+	// content hashes of the containers already hashed, by unwrapped element
+	final Map<Object, Long> hashes = new IdentityHashMap<Object, Long>();
+
+	TreeDiff(JsonDiff owner) {
+		this.owner = owner;
+		this.factory = owner.factory;
+	}
+
+	JzonObject diff(JzonObject from, JzonObject to) {
+		JzonObject patch = factory.createJsonObject();
+		JzonArray instructions = diffObject("", "", owner.rules, from, to, patch);
+		if (instructions.size() > 0) {
+			patch.add(JsonDiff.MOD, instructions);
+		}
+		return patch;
+	}
+
+	/**
+	 * Diffs two objects found at <code>pointer</code>, adding the patches of nested containers to <code>patch</code>
+	 * and returning the instructions for the object itself. <code>path</code> is the pointer with <code>*</code> for
+	 * array indexes, and <code>rules</code> the path rules found there.
+	 */
+	JzonArray diffObject(String path, String pointer, PathRules rules, JzonObject from, JzonObject to, JzonObject patch) {
+
+		JzonArray instructions = factory.createJsonArray();
+
+		List<Entry<String, JzonElement>> fromMembers = sorted(from);
+		List<Entry<String, JzonElement>> toMembers = sorted(to);
+
+		int i = 0, j = 0;
+		while (i < fromMembers.size() || j < toMembers.size()) {
+			int cmp;
+			if (i == fromMembers.size()) {
+				cmp = 1;
+			} else if (j == toMembers.size()) {
+				cmp = -1;
+			} else {
+				cmp = fromMembers.get(i).getKey().compareTo(toMembers.get(j).getKey());
+			}
+			String key = cmp < 0 ? fromMembers.get(i).getKey() : toMembers.get(j).getKey();
+			PathRules childRules = rules == null ? null : rules.member(key);
+			if (childRules != null && childRules.isSkipped()) {
+				// ignored
+				if (cmp <= 0) {
+					i++;
+				}
+				if (cmp >= 0) {
+					j++;
+				}
+			} else if (cmp < 0) {
+				if (owner.prune(pointer + '/' + escape(key), fromMembers.get(i).getValue(), null) != Pruner.Decision.SKIP) {
+					instruction(instructions, "-" + key, null);
+				}
+				i++;
+			} else if (cmp > 0) {
+				if (owner.prune(pointer + '/' + escape(key), null, toMembers.get(j).getValue()) != Pruner.Decision.SKIP) {
+					instruction(instructions, "+" + key, toMembers.get(j).getValue());
+				}
+				j++;
+			} else {
+				JzonElement f = fromMembers.get(i).getValue();
+				JzonElement t = toMembers.get(j).getValue();
+				String childPointer = pointer + '/' + escape(key);
+				Pruner.Decision decision = owner.prune(childPointer, f, t);
+				if (decision == Pruner.Decision.SKIP) {
+					// left out
+				} else if (decision == Pruner.Decision.DIFF && sameContainer(f, t)) {
+					diffChild(path + '/' + escape(key), childPointer, childRules, key, f, t, patch);
+				} else if (hash(f) != hash(t)) {
+					instruction(instructions, key, t);
+				}
+				i++;
+				j++;
+			}
+		}
+
+		return instructions;
+	}
+
+	/**
+	 * Diffs two arrays found at <code>pointer</code>, adding the patches of nested containers to <code>patch</code>
+	 * and returning the instructions for the array itself.
+	 */
+	JzonArray diffArray(String path, String pointer, PathRules rules, JzonArray from, JzonArray to, JzonObject patch) {
+
+		JzonArray instructions = factory.createJsonArray();
+
+		PathRules elementRules = rules == null ? null : rules.elements();
+		if (elementRules != null && elementRules.isSkipped()) {
+			// all elements ignored
+			return instructions;
+		}
+
+		String keyField = owner.arrayKeys.get(path);
+		String elementPath = path + "/*";
+
+		long[] fromHashes = new long[from.size()];
+		for (int i = 0; i < fromHashes.length; i++) {
+			fromHashes[i] = hash(from.get(i));
+		}
+		long[] toHashes = new long[to.size()];
+		for (int i = 0; i < toHashes.length; i++) {
+			toHashes[i] = hash(to.get(i));
+		}
+
+		List<IncavaEntry> entries;
+		if (keyField == null) {
+			entries = owner.sequenceDiffer(fromHashes.length + toHashes.length).diff(fromHashes, toHashes);
+		} else {
+			entries = Matches.toEntries(matchKeys(keyField, from, to), from.size(), to.size());
+		}
+
+		// position of the next element in the array as the instructions are applied
+		int pos = 0;
+		int fromIndex = 0;
+		int toIndex = 0;
+		for (IncavaEntry entry : entries) {
+
+			// matched elements up to the hunk, only keyed ones can differ
+			for (; fromIndex < entry.getDeletedStart(); fromIndex++, toIndex++, pos++) {
+				if (fromHashes[fromIndex] != toHashes[toIndex]) {
+					diffElement(elementPath, pointer, elementRules, fromIndex, pos, from.get(fromIndex), to.get(toIndex), instructions, patch);
+				}
+			}
+
+			int deleted = entry.getDeletedEnd() == IncavaEntry.NONE ? 0 : entry.getDeletedEnd() - entry.getDeletedStart() + 1;
+			int added = entry.getAddedEnd() == IncavaEntry.NONE ? 0 : entry.getAddedEnd() - entry.getAddedStart() + 1;
+			int paired = Math.min(deleted, added);
+
+			for (int k = 0; k < paired; k++) {
+				JzonElement f = from.get(fromIndex + k);
+				JzonElement t = to.get(entry.getAddedStart() + k);
+				if (keyField == null) {
+					diffElement(elementPath, pointer, elementRules, fromIndex + k, pos, f, t, instructions, patch);
+				} else {
+					instruction(instructions, String.valueOf(pos), t);
+				}
+				pos++;
+			}
+			for (int k = paired; k < deleted; k++) {
+				instruction(instructions, "-" + pos, null);
+			}
+			for (int k = paired; k < added; k++) {
+				instruction(instructions, "+" + pos, to.get(entry.getAddedStart() + k));
+				pos++;
+			}
+
+			fromIndex += deleted;
+			toIndex += added;
+		}
+
+		for (; fromIndex < from.size(); fromIndex++, toIndex++, pos++) {
+			if (fromHashes[fromIndex] != toHashes[toIndex]) {
+				diffElement(elementPath, pointer, elementRules, fromIndex, pos, from.get(fromIndex), to.get(toIndex), instructions, patch);
+			}
+		}
+
+		return instructions;
+	}
+
+	/**
+	 * Diffs two differing array elements paired up, the one in <code>from</code> at <code>index</code>, replacing it
+	 * at <code>pos</code> unless both are containers to be diffed.
+	 */
+	void diffElement(String path, String pointer, PathRules rules, int index, int pos, JzonElement from, JzonElement to, JzonArray instructions,
+			JzonObject patch) {
+		String key = String.valueOf(index);
+		if (sameContainer(from, to) && owner.prune(pointer + '/' + key, from, to) == Pruner.Decision.DIFF) {
+			diffChild(path, pointer + '/' + key, rules, key, from, to, patch);
+		} else {
+			instruction(instructions, String.valueOf(pos), to);
+		}
+	}
+
+	/**
+	 * Diffs two containers of the same kind found at <code>key</code>, adding their instructions and nested patches to
+	 * the patch of the parent.
+	 */
+	void diffChild(String path, String pointer, PathRules rules, String key, JzonElement from, JzonElement to, JzonObject patch) {
+
+		if (hash(from) == hash(to)) {
+			return;
+		}
+
+		JzonObject childPatch = factory.createJsonObject();
+		JzonArray childInstructions;
+		if (from.isJsonObject()) {
+			childInstructions = diffObject(path, pointer, rules, (JzonObject) from, (JzonObject) to, childPatch);
+		} else {
+			childInstructions = diffArray(path, pointer, rules, (JzonArray) from, (JzonArray) to, childPatch);
+		}
+
+		if (childInstructions.size() > 0) {
+			if (owner.getVisitor() != null && !owner.accept(from, childInstructions, childPatch)) {
+				return;
+			}
+			patch.add(JsonDiff.MOD + key, childInstructions);
+		}
+		if (!childPatch.entrySet().isEmpty()) {
+			patch.add(key, childPatch);
+		}
+	}
+
+	/**
+	 * Pairs the elements of two arrays having the same value for the key field, keeping the longest run of pairs in
+	 * the same order in both. Elements without the key, or sharing it with another element, are left unmatched.
+	 *
+	 * @return per element of <code>from</code> the index of its match in <code>to</code>, see {@link Matches}
+	 */
+	static int[] matchKeys(String keyField, JzonArray from, JzonArray to) {
+
+		// key to index in to, -1 for keys found more than once
+		Map<String, Integer> toKeys = new HashMap<String, Integer>();
+		for (int j = 0, n = to.size(); j < n; j++) {
+			String key = key(keyField, to.get(j));
+			if (key != null) {
+				toKeys.put(key, toKeys.containsKey(key) ? -1 : j);
+			}
+		}
+
+		int[] matches = Matches.none(from.size());
+		Map<String, Integer> fromKeys = new HashMap<String, Integer>();
+		for (int i = 0, n = from.size(); i < n; i++) {
+			String key = key(keyField, from.get(i));
+			if (key == null) {
+				continue;
+			}
+			Integer j = toKeys.get(key);
+			Integer seen = fromKeys.put(key, i);
+			if (seen != null) {
+				// repeated key, match neither
+				if (seen >= 0) {
+					matches[seen] = IncavaEntry.NONE;
+				}
+				fromKeys.put(key, -1);
+			} else if (j != null && j >= 0) {
+				matches[i] = j;
+			}
+		}
+
+		Matches.keepIncreasing(matches);
+		return matches;
+	}
+
+	/**
+	 * @return the JSON text of the key field of an element, or <code>null</code> if it has no primitive key
+	 */
+	static String key(String keyField, JzonElement el) {
+		if (!el.isJsonObject() || !((JzonObject) el).has(keyField)) {
+			return null;
+		}
+		JzonElement key = ((JzonObject) el).get(keyField);
+		if (!key.isJsonPrimitive()) {
+			return null;
+		}
+		return key.toString();
+	}
+
+	/**
+	 * Escapes an object key for use in a JSON pointer, see RFC 6901.
+	 */
+	static String escape(String key) {
+		if (key.indexOf('~') < 0 && key.indexOf('/') < 0) {
+			return key;
+		}
+		return key.replace("~", "~0").replace("/", "~1");
+	}
+
+	void instruction(JzonArray instructions, String key, JzonElement value) {
+		JzonObject instruction = factory.createJsonObject();
+		if (value == null) {
+			instruction.addProperty(key, 0);
+		} else {
+			instruction.add(key, value);
+		}
+		instructions.insert(instructions.size(), instruction);
+	}
+
+	/**
+	 * @return the content hash of an element, see {@link Merkle}
+	 */
+	long hash(JzonElement el) {
+
+		if (!el.isJsonObject() && !el.isJsonArray()) {
+			return Merkle.value(el);
+		}
+
+		Long known = hashes.get(el.unwrap());
+		if (known != null) {
+			return known;
+		}
+
+		long h;
+		if (el.isJsonObject()) {
+			h = Fingerprint.OBJ;
+			for (Entry<String, JzonElement> e : sorted((JzonObject) el)) {
+				h = Merkle.member(h, e.getKey(), hash(e.getValue()));
+			}
+		} else {
+			h = Fingerprint.ARR;
+			JzonArray arr = (JzonArray) el;
+			for (int i = 0, n = arr.size(); i < n; i++) {
+				h = Merkle.element(h, hash(arr.get(i)));
+			}
+		}
+
+		hashes.put(el.unwrap(), h);
+		return h;
+	}
+
+	static boolean sameContainer(JzonElement from, JzonElement to) {
+		return (from.isJsonObject() && to.isJsonObject()) || (from.isJsonArray() && to.isJsonArray());
+	}
+
+	static List<Entry<String, JzonElement>> sorted(JzonObject obj) {
+		List<Entry<String, JzonElement>> members = new ArrayList<Entry<String, JzonElement>>(obj.entrySet());
+		Collections.sort(members, JsonDiff.OBJECT_KEY_COMPARATOR);
+		return members;
+	}
+
+}
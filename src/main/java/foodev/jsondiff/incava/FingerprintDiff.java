@@ -0,0 +1,77 @@
+package foodev.jsondiff.incava;
+
+import java.util.List;
+
+/**
+ * Base for the diffs comparing two sequences of <code>long</code> fingerprints. Elements are considered equal when
+ * their fingerprints are equal. Common leading and trailing elements are matched here; subclasses only match what
+ * remains in between.
+ */
+public abstract class FingerprintDiff
+{
+
+    /**
+     * The source fingerprints, AKA the "from" values.
+     */
+    protected final long[] a;
+
+    /**
+     * The target fingerprints, AKA the "to" values.
+     */
+    protected final long[] b;
+
+
+    /**
+     * Constructs the Diff object for the two fingerprint arrays.
+     */
+    protected FingerprintDiff(long[] a, long[] b)
+    {
+        this.a = a;
+        this.b = b;
+    }
+
+
+    /**
+     * Runs diff and returns the results.
+     */
+    public List<IncavaEntry> diff()
+    {
+        return Matches.toEntries(getLongestCommonSubsequences(), a.length, b.length);
+    }
+
+
+    /**
+     * Returns an array holding, for each element in <code>a</code>, the index of its match in <code>b</code> or
+     * <code>IncavaEntry.NONE</code>.
+     */
+    public int[] getLongestCommonSubsequences()
+    {
+        int[] matches = Matches.none(a.length);
+
+        int aStart = 0;
+        int aEnd = a.length;
+        int bStart = 0;
+        int bEnd = b.length;
+
+        while (aStart < aEnd && bStart < bEnd && a[aStart] == b[bStart]) {
+            matches[aStart++] = bStart++;
+        }
+
+        while (aStart < aEnd && bStart < bEnd && a[aEnd - 1] == b[bEnd - 1]) {
+            matches[--aEnd] = --bEnd;
+        }
+
+        if (aStart < aEnd && bStart < bEnd) {
+            match(aStart, aEnd, bStart, bEnd, matches);
+        }
+
+        return matches;
+    }
+
+
+    /**
+     * Records the matches between <code>a[aStart, aEnd)</code> and <code>b[bStart, bEnd)</code>.
+     */
+    protected abstract void match(int aStart, int aEnd, int bStart, int bEnd, int[] matches);
+
+}
@@ -0,0 +1,103 @@
+package foodev.jsondiff.incava;
+
+/**
+ * Compares two sequences of fingerprints using the histogram algorithm. For each region the longest common run
+ * containing the least frequent elements is matched, and the regions before and after it are compared recursively.
+ * Regions where every common element is too frequent fall back to <code>MyersDiff</code>.
+ */
+public class HistogramDiff extends MyersDiff
+{
+
+    /**
+     * Elements occurring more often than this in a region are not considered as split points.
+     */
+    static final int MAX_CHAIN_LENGTH = 64;
+
+
+    /**
+     * Constructs the Diff object for the two fingerprint arrays.
+     */
+    public HistogramDiff(long[] a, long[] b)
+    {
+        super(a, b);
+    }
+
+
+    @Override
+    protected void match(int aStart, int aEnd, int bStart, int bEnd, int[] matches)
+    {
+        // previous occurrence of the same element in the region being compared
+        int[] chain = new int[a.length];
+
+        Regions regions = new Regions();
+        regions.push(aStart, aEnd, bStart, bEnd);
+
+        while (!regions.isEmpty()) {
+            int[] r = regions.pop();
+            int as = r[0], ae = r[1], bs = r[2], be = r[3];
+
+            while (as < ae && bs < be && a[as] == b[bs]) {
+                matches[as++] = bs++;
+            }
+            while (as < ae && bs < be && a[ae - 1] == b[be - 1]) {
+                matches[--ae] = --be;
+            }
+            if (as == ae || bs == be) {
+                continue;
+            }
+
+            LongIntMap counts = new LongIntMap(ae - as);
+            LongIntMap heads = new LongIntMap(ae - as);
+            for (int i = as; i < ae; i++) {
+                chain[i] = heads.get(a[i], -1);
+                heads.put(a[i], i);
+                counts.put(a[i], counts.get(a[i], 0) + 1);
+            }
+
+            int bestA = -1, bestB = -1, bestLength = 0, bestCount = MAX_CHAIN_LENGTH + 1;
+
+            for (int bi = bs; bi < be;) {
+                int next = bi + 1;
+                int count = counts.get(b[bi], 0);
+                if (count > 0 && count <= MAX_CHAIN_LENGTH) {
+                    for (int ai = heads.get(b[bi], -1); ai >= as; ai = chain[ai]) {
+                        int sa = ai, sb = bi, ea = ai + 1, eb = bi + 1;
+                        int rc = count;
+                        while (sa > as && sb > bs && a[sa - 1] == b[sb - 1]) {
+                            sa--;
+                            sb--;
+                            rc = Math.min(rc, counts.get(a[sa], 0));
+                        }
+                        while (ea < ae && eb < be && a[ea] == b[eb]) {
+                            rc = Math.min(rc, counts.get(a[ea], 0));
+                            ea++;
+                            eb++;
+                        }
+                        if (next < eb) {
+                            next = eb;
+                        }
+                        if (bestLength < ea - sa || rc < bestCount) {
+                            bestA = sa;
+                            bestB = sb;
+                            bestLength = ea - sa;
+                            bestCount = rc;
+                        }
+                    }
+                }
+                bi = next;
+            }
+
+            if (bestLength == 0) {
+                super.match(as, ae, bs, be, matches);
+                continue;
+            }
+
+            for (int i = 0; i < bestLength; i++) {
+                matches[bestA + i] = bestB + i;
+            }
+            regions.push(as, bestA, bs, bestB);
+            regions.push(bestA + bestLength, ae, bestB + bestLength, be);
+        }
+    }
+
+}
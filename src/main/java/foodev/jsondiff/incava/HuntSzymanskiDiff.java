@@ -0,0 +1,115 @@
+package foodev.jsondiff.incava;
+
+/**
+ * Compares two sequences of fingerprints using the Hunt-Szymanski algorithm, producing the same matches as
+ * <code>IncavaDiff</code>. The thresholds and back links are kept in primitive arrays instead of boxed maps.
+ */
+public class HuntSzymanskiDiff extends FingerprintDiff
+{
+
+    /**
+     * Constructs the Diff object for the two fingerprint arrays.
+     */
+    public HuntSzymanskiDiff(long[] a, long[] b)
+    {
+        super(a, b);
+    }
+
+
+    @Override
+    protected void match(int aStart, int aEnd, int bStart, int bEnd, int[] matches)
+    {
+        // positions of each element in b, walked from the last occurrence to the first
+        LongIntMap last = new LongIntMap(bEnd - bStart);
+        int[] previous = new int[bEnd - bStart];
+        for (int j = bStart; j < bEnd; j++) {
+            previous[j - bStart] = last.get(b[j], -1);
+            last.put(b[j], j);
+        }
+
+        // thresh[k] is the smallest b index ending a common subsequence of length k + 1
+        int[] thresh = new int[Math.min(aEnd - aStart, bEnd - bStart)];
+        int[] link = new int[thresh.length];
+        int size = 0;
+
+        // back links as parallel arrays: link to the previous node, a index and b index
+        Links links = new Links();
+
+        for (int i = aStart; i < aEnd; i++) {
+            int k = size;
+            for (int j = last.get(a[i], -1); j >= 0; j = previous[j - bStart]) {
+                // positions are descending, so the insertion point never moves right
+                int low = 0;
+                int high = Math.min(k, size - 1);
+                while (low <= high) {
+                    int mid = (low + high) >>> 1;
+                    if (thresh[mid] < j) {
+                        low = mid + 1;
+                    }
+                    else {
+                        high = mid - 1;
+                    }
+                }
+                k = low;
+                if (k < size && thresh[k] == j) {
+                    continue;
+                }
+                thresh[k] = j;
+                link[k] = links.add(k > 0 ? link[k - 1] : -1, i, j);
+                if (k == size) {
+                    size++;
+                }
+            }
+        }
+
+        for (int node = size > 0 ? link[size - 1] : -1; node >= 0; node = links.previous(node)) {
+            matches[links.a(node)] = links.b(node);
+        }
+    }
+
+    /**
+     * Growable storage for the back links.
+     */
+    private static final class Links
+    {
+
+        private int[] data = new int[48];
+
+        private int size;
+
+
+        int add(int previous, int a, int b)
+        {
+            if (size + 3 > data.length) {
+                int[] grown = new int[data.length * 2];
+                System.arraycopy(data, 0, grown, 0, size);
+                data = grown;
+            }
+            data[size] = previous;
+            data[size + 1] = a;
+            data[size + 2] = b;
+            size += 3;
+            return size - 3;
+        }
+
+
+        int previous(int node)
+        {
+            return data[node];
+        }
+
+
+        int a(int node)
+        {
+            return data[node + 1];
+        }
+
+
+        int b(int node)
+        {
+            return data[node + 2];
+        }
+
+    }
+
+}
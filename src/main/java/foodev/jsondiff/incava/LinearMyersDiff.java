@@ -0,0 +1,147 @@
+package foodev.jsondiff.incava;
+
+/**
+ * Compares two sequences of fingerprints using the linear space refinement of the O(ND) algorithm described by Eugene
+ * W. Myers in "An O(ND) Difference Algorithm and Its Variations". Instead of recording the furthest reaching paths of
+ * every edit distance, the search runs from both ends at once until the paths meet in a middle snake, which splits
+ * the sequences in two parts compared the same way.
+ *
+ * <p>
+ * Besides the input and the result only two <code>int</code> arrays of the size of the input are used, whatever the
+ * number of differences or of matching pairs. Takes about twice the time of <code>MyersDiff</code>, and finds an
+ * equally short edit script that is not necessarily the same one.
+ * </p>
+ */
+public class LinearMyersDiff extends FingerprintDiff
+{
+
+    // furthest reaching x per diagonal, forwards and backwards, shared by all regions
+    private int[] forward;
+    private int[] backward;
+
+    // the middle snake of the last region searched: start and end point
+    private int snakeX, snakeY, snakeU, snakeV;
+
+
+    /**
+     * Constructs the Diff object for the two fingerprint arrays.
+     */
+    public LinearMyersDiff(long[] a, long[] b)
+    {
+        super(a, b);
+    }
+
+
+    @Override
+    protected void match(int aStart, int aEnd, int bStart, int bEnd, int[] matches)
+    {
+        int size = aEnd - aStart + bEnd - bStart + 4;
+        forward = new int[size];
+        backward = new int[size];
+
+        Regions regions = new Regions();
+        regions.push(aStart, aEnd, bStart, bEnd);
+
+        while (!regions.isEmpty()) {
+            int[] r = regions.pop();
+            int as = r[0], ae = r[1], bs = r[2], be = r[3];
+
+            while (as < ae && bs < be && a[as] == b[bs]) {
+                matches[as++] = bs++;
+            }
+            while (as < ae && bs < be && a[ae - 1] == b[be - 1]) {
+                matches[--ae] = --be;
+            }
+            if (as == ae || bs == be) {
+                continue;
+            }
+
+            middleSnake(as, ae, bs, be);
+
+            for (int x = snakeX, y = snakeY; x < snakeU; x++, y++) {
+                matches[as + x] = bs + y;
+            }
+            regions.push(as + snakeU, ae, bs + snakeV, be);
+            regions.push(as, as + snakeX, bs, bs + snakeY);
+        }
+    }
+
+
+    /**
+     * Finds the middle snake of <code>a[as, ae)</code> and <code>b[bs, be)</code>, both non empty and differing in
+     * their first and last elements, storing its ends relative to the start of the region.
+     */
+    private void middleSnake(int as, int ae, int bs, int be)
+    {
+        int n = ae - as;
+        int m = be - bs;
+        int delta = n - m;
+        boolean odd = (delta & 1) != 0;
+        int offset = (n + m + 1) / 2 + 1;
+
+        // forward[offset + k]: furthest x on diagonal k = x - y from the start
+        // backward[offset + c]: furthest x' on diagonal c = x' - y' from the end, where x' = n - x and y' = m - y
+        forward[offset + 1] = 0;
+        backward[offset + 1] = 0;
+
+        for (int d = 0, max = (n + m + 1) / 2; d <= max; d++) {
+
+            for (int k = -d; k <= d; k += 2) {
+                int x;
+                if (k == -d || (k != d && forward[offset + k - 1] < forward[offset + k + 1])) {
+                    x = forward[offset + k + 1];
+                }
+                else {
+                    x = forward[offset + k - 1] + 1;
+                }
+                int y = x - k;
+                int x0 = x;
+                int y0 = y;
+                while (x < n && y < m && a[as + x] == b[bs + y]) {
+                    x++;
+                    y++;
+                }
+                forward[offset + k] = x;
+
+                int c = delta - k;
+                if (odd && c >= -(d - 1) && c <= d - 1 && x + backward[offset + c] >= n) {
+                    snakeX = x0;
+                    snakeY = y0;
+                    snakeU = x;
+                    snakeV = y;
+                    return;
+                }
+            }
+
+            for (int c = -d; c <= d; c += 2) {
+                int x;
+                if (c == -d || (c != d && backward[offset + c - 1] < backward[offset + c + 1])) {
+                    x = backward[offset + c + 1];
+                }
+                else {
+                    x = backward[offset + c - 1] + 1;
+                }
+                int y = x - c;
+                int x0 = x;
+                int y0 = y;
+                while (x < n && y < m && a[ae - 1 - x] == b[be - 1 - y]) {
+                    x++;
+                    y++;
+                }
+                backward[offset + c] = x;
+
+                int k = delta - c;
+                if (!odd && k >= -d && k <= d && forward[offset + k] + x >= n) {
+                    snakeX = n - x;
+                    snakeY = m - y;
+                    snakeU = n - x0;
+                    snakeV = m - y0;
+                    return;
+                }
+            }
+        }
+
+        throw new IllegalStateException("no middle snake");
+    }
+
+}
@@ -0,0 +1,58 @@
+package foodev.jsondiff.incava;
+
+/**
+ * Open addressing hash map from <code>long</code> fingerprints to <code>int</code> values, used by the sequence
+ * diffs to avoid boxing.
+ */
+final class LongIntMap
+{
+
+    private final long[] keys;
+
+    private final int[] values;
+
+    private final boolean[] used;
+
+    private final int mask;
+
+
+    LongIntMap(int expected)
+    {
+        int capacity = 2;
+        while (capacity < expected * 2) {
+            capacity <<= 1;
+        }
+        keys = new long[capacity];
+        values = new int[capacity];
+        used = new boolean[capacity];
+        mask = capacity - 1;
+    }
+
+
+    int get(long key, int missing)
+    {
+        int slot = slot(key);
+        return used[slot] ? values[slot] : missing;
+    }
+
+
+    void put(long key, int value)
+    {
+        int slot = slot(key);
+        keys[slot] = key;
+        values[slot] = value;
+        used[slot] = true;
+    }
+
+
+    private int slot(long key)
+    {
+        long h = key * 0x9E3779B97F4A7C15L;
+        int slot = (int) (h ^ (h >>> 32)) & mask;
+        while (used[slot] && keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+}
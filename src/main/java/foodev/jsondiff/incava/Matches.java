@@ -0,0 +1,143 @@
+package foodev.jsondiff.incava;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Turns an array of matching indexes into the list of differences produced by <code>IncavaDiff</code>. The array has
+ * one slot per element in the "from" sequence, holding the index of the matching element in the "to" sequence or
+ * <code>IncavaEntry.NONE</code>. Matches must be strictly increasing.
+ *
+ * <p>
+ * The traversal follows <code>IncavaDiff.traverseSequences</code>, so any engine that computes its matches through
+ * this class produces entries of exactly the same shape.
+ * </p>
+ */
+public final class Matches
+{
+
+    private Matches()
+    {
+    }
+
+
+    /**
+     * Creates an array of the given size with every slot set to <code>IncavaEntry.NONE</code>.
+     */
+    public static int[] none(int size)
+    {
+        int[] matches = new int[size];
+        for (int i = 0; i < size; i++) {
+            matches[i] = IncavaEntry.NONE;
+        }
+        return matches;
+    }
+
+
+    /**
+     * Returns the differences between a sequence of <code>aSize</code> and one of <code>bSize</code> elements, given
+     * the matches between them.
+     */
+    public static List<IncavaEntry> toEntries(int[] matches, int aSize, int bSize)
+    {
+        List<IncavaEntry> diffs = new ArrayList<IncavaEntry>();
+        IncavaEntry pending = null;
+
+        int ai = 0;
+        int bi = 0;
+
+        for (; ai < aSize; ++ai) {
+            int bLine = matches[ai];
+
+            if (bLine == IncavaEntry.NONE) {
+                pending = onANotB(pending, ai, bi);
+            }
+            else {
+                while (bi < bLine) {
+                    pending = onBNotA(pending, ai, bi++);
+                }
+
+                if (pending != null) {
+                    diffs.add(pending);
+                    pending = null;
+                }
+                bi++;
+            }
+        }
+
+        while (bi < bSize) {
+            pending = onBNotA(pending, ai, bi++);
+        }
+
+        if (pending != null) {
+            diffs.add(pending);
+        }
+
+        return diffs;
+    }
+
+
+    /**
+     * Keeps the longest run of matches that is increasing in both sequences and resets all others to
+     * <code>IncavaEntry.NONE</code>, for matches found by some other means than a common subsequence.
+     */
+    public static void keepIncreasing(int[] matches)
+    {
+        // patience sorting: tails[k] is the index ending the best run of length k + 1
+        int[] tails = new int[matches.length];
+        int[] prev = new int[matches.length];
+        int len = 0;
+        for (int i = 0; i < matches.length; i++) {
+            if (matches[i] == IncavaEntry.NONE) {
+                continue;
+            }
+            int low = 0;
+            int high = len;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (matches[tails[mid]] < matches[i]) {
+                    low = mid + 1;
+                }
+                else {
+                    high = mid;
+                }
+            }
+            prev[i] = low > 0 ? tails[low - 1] : -1;
+            tails[low] = i;
+            if (low == len) {
+                len++;
+            }
+        }
+
+        boolean[] kept = new boolean[matches.length];
+        for (int i = len > 0 ? tails[len - 1] : -1; i >= 0; i = prev[i]) {
+            kept[i] = true;
+        }
+        for (int i = 0; i < matches.length; i++) {
+            if (!kept[i]) {
+                matches[i] = IncavaEntry.NONE;
+            }
+        }
+    }
+
+
+    private static IncavaEntry onANotB(IncavaEntry pending, int ai, int bi)
+    {
+        if (pending == null) {
+            return new IncavaEntry(ai, ai, bi, IncavaEntry.NONE);
+        }
+        pending.setDeleted(ai);
+        return pending;
+    }
+
+
+    private static IncavaEntry onBNotA(IncavaEntry pending, int ai, int bi)
+    {
+        if (pending == null) {
+            return new IncavaEntry(ai, IncavaEntry.NONE, bi, bi);
+        }
+        pending.setAdded(bi);
+        return pending;
+    }
+
+}
@@ -0,0 +1,126 @@
+package foodev.jsondiff.incava;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Compares two sequences of fingerprints using the O(ND) algorithm described by Eugene W. Myers in "An O(ND)
+ * Difference Algorithm and Its Variations". Elements are considered equal when their fingerprints are equal.
+ *
+ * <p>
+ * All working state lives in primitive <code>int</code> arrays: the furthest reaching path of every diagonal is
+ * recorded once per edit distance, which takes O(D<sup>2</sup>) memory on top of the input, D being the number of
+ * differing elements. Once that record would grow past a fixed budget, the search is given up and the sequences are
+ * compared by {@link LinearMyersDiff} instead, so very different sequences never need more than the budget. The
+ * result has the same shape as the one returned by <code>IncavaDiff</code>.
+ * </p>
+ */
+public class MyersDiff extends FingerprintDiff
+{
+
+    /**
+     * The number of <code>int</code>s the recorded paths may take, 16MB. Reached at an edit distance of about 2000.
+     */
+    static final int TRACE_BUDGET = 1 << 22;
+
+    private final int traceBudget;
+
+    /**
+     * Constructs the Diff object for the two fingerprint arrays.
+     */
+    public MyersDiff(long[] a, long[] b)
+    {
+        this(a, b, TRACE_BUDGET);
+    }
+
+
+    /**
+     * Constructs the Diff object, giving up on recording paths beyond <code>traceBudget</code> <code>int</code>s.
+     */
+    MyersDiff(long[] a, long[] b, int traceBudget)
+    {
+        super(a, b);
+        this.traceBudget = traceBudget;
+    }
+
+
+    @Override
+    protected void match(int aStart, int aEnd, int bStart, int bEnd, int[] matches)
+    {
+        int n = aEnd - aStart;
+        int m = bEnd - bStart;
+        int max = n + m;
+        int offset = max + 1;
+
+        // v[k + offset] holds the furthest x reached on diagonal k = x - y
+        int[] v = new int[2 * max + 3];
+        List<int[]> trace = new ArrayList<int[]>();
+
+        int found = -1;
+        long traced = 0;
+        for (int d = 0; d <= max && found < 0; d++) {
+            traced += 2 * d + 1;
+            if (traced > traceBudget) {
+                // too many differences to record them all
+                new LinearMyersDiff(a, b).match(aStart, aEnd, bStart, bEnd, matches);
+                return;
+            }
+            for (int k = -d; k <= d; k += 2) {
+                int x;
+                if (k == -d || (k != d && v[offset + k - 1] < v[offset + k + 1])) {
+                    x = v[offset + k + 1];
+                }
+                else {
+                    x = v[offset + k - 1] + 1;
+                }
+                int y = x - k;
+                while (x < n && y < m && a[aStart + x] == b[bStart + y]) {
+                    x++;
+                    y++;
+                }
+                v[offset + k] = x;
+                if (x >= n && y >= m) {
+                    found = d;
+                    break;
+                }
+            }
+
+            // only the diagonals -d..d are reachable at this distance
+            int[] snapshot = new int[2 * d + 1];
+            System.arraycopy(v, offset - d, snapshot, 0, snapshot.length);
+            trace.add(snapshot);
+        }
+
+        int x = n;
+        int y = m;
+        for (int d = found; d > 0; d--) {
+            int[] prev = trace.get(d - 1);
+            int k = x - y;
+            int prevK;
+            if (k == -d || (k != d && prev[k - 1 + d - 1] < prev[k + 1 + d - 1])) {
+                prevK = k + 1;
+            }
+            else {
+                prevK = k - 1;
+            }
+            int prevX = prev[prevK + d - 1];
+            int prevY = prevX - prevK;
+
+            while (x > prevX && y > prevY) {
+                x--;
+                y--;
+                matches[aStart + x] = bStart + y;
+            }
+
+            x = prevX;
+            y = prevY;
+        }
+
+        while (x > 0 && y > 0) {
+            x--;
+            y--;
+            matches[aStart + x] = bStart + y;
+        }
+    }
+
+}
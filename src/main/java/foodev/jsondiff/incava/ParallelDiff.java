@@ -0,0 +1,119 @@
+package foodev.jsondiff.incava;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Compares two sequences of fingerprints on a <code>ForkJoinPool</code>. Elements occurring exactly once in both
+ * sequences are used as anchors, as in <code>PatienceDiff</code>; the longest increasing run of anchors is matched
+ * and the gaps between them are compared concurrently with <code>MyersDiff</code>.
+ *
+ * <p>
+ * Every gap writes to its own part of the match array, so the result is the same whatever the number of threads.
+ * Sequences without any anchor are compared on the calling thread.
+ * </p>
+ */
+public class ParallelDiff extends PatienceDiff
+{
+
+    /**
+     * Gaps are split over several tasks only above this number of elements in total.
+     */
+    static final int SEQUENTIAL_THRESHOLD = 8192;
+
+    private final ForkJoinPool pool;
+
+
+    /**
+     * Constructs the Diff object for the two fingerprint arrays, comparing the gaps between anchors on the given pool.
+     */
+    public ParallelDiff(long[] a, long[] b, ForkJoinPool pool)
+    {
+        super(a, b);
+        this.pool = pool;
+    }
+
+
+    @Override
+    protected void match(int aStart, int aEnd, int bStart, int bEnd, int[] matches)
+    {
+        int[] anchors = anchors(aStart, aEnd, bStart, bEnd);
+        if (anchors.length == 0) {
+            new MyersDiff(a, b).match(aStart, aEnd, bStart, bEnd, matches);
+            return;
+        }
+
+        // the gaps before, between and after the anchors, and the number of elements up to each
+        int count = anchors.length / 2 + 1;
+        int[] gaps = new int[count * 4];
+        long[] work = new long[count + 1];
+        int prevA = aStart;
+        int prevB = bStart;
+        for (int g = 0; g < count; g++) {
+            int ai = g < count - 1 ? anchors[g * 2] : aEnd;
+            int bi = g < count - 1 ? anchors[g * 2 + 1] : bEnd;
+            if (g < count - 1) {
+                matches[ai] = bi;
+            }
+            gaps[g * 4] = prevA;
+            gaps[g * 4 + 1] = ai;
+            gaps[g * 4 + 2] = prevB;
+            gaps[g * 4 + 3] = bi;
+            work[g + 1] = work[g] + (ai - prevA) + (bi - prevB);
+            prevA = ai + 1;
+            prevB = bi + 1;
+        }
+
+        pool.invoke(new Gaps(gaps, work, 0, count, matches));
+    }
+
+
+    /**
+     * Matches the gaps <code>[lo, hi)</code>, splitting them in two halves while they hold enough work.
+     */
+    private final class Gaps extends RecursiveAction
+    {
+
+        private static final long serialVersionUID = 1L;
+
+        private final int[] gaps;
+        private final long[] work;
+        private final int lo, hi;
+        private final int[] matches;
+
+
+        Gaps(int[] gaps, long[] work, int lo, int hi, int[] matches)
+        {
+            this.gaps = gaps;
+            this.work = work;
+            this.lo = lo;
+            this.hi = hi;
+            this.matches = matches;
+        }
+
+
+        @Override
+        protected void compute()
+        {
+            if (hi - lo > 1 && work[hi] - work[lo] > SEQUENTIAL_THRESHOLD) {
+                int mid = (lo + hi) >>> 1;
+                invokeAll(new Gaps(gaps, work, lo, mid, matches), new Gaps(gaps, work, mid, hi, matches));
+                return;
+            }
+
+            for (int g = lo; g < hi; g++) {
+                int as = gaps[g * 4], ae = gaps[g * 4 + 1], bs = gaps[g * 4 + 2], be = gaps[g * 4 + 3];
+                while (as < ae && bs < be && a[as] == b[bs]) {
+                    matches[as++] = bs++;
+                }
+                while (as < ae && bs < be && a[ae - 1] == b[be - 1]) {
+                    matches[--ae] = --be;
+                }
+                if (as < ae && bs < be) {
+                    new MyersDiff(a, b).match(as, ae, bs, be, matches);
+                }
+            }
+        }
+    }
+
+}
@@ -0,0 +1,121 @@
+package foodev.jsondiff.incava;
+
+/**
+ * Compares two sequences of fingerprints using the patience algorithm. Elements occurring exactly once in both
+ * sequences are used as anchors; the longest increasing run of anchors is matched and the gaps between them are
+ * compared recursively. Gaps without unique elements fall back to <code>MyersDiff</code>.
+ */
+public class PatienceDiff extends MyersDiff
+{
+
+    /**
+     * Constructs the Diff object for the two fingerprint arrays.
+     */
+    public PatienceDiff(long[] a, long[] b)
+    {
+        super(a, b);
+    }
+
+
+    @Override
+    protected void match(int aStart, int aEnd, int bStart, int bEnd, int[] matches)
+    {
+        Regions regions = new Regions();
+        regions.push(aStart, aEnd, bStart, bEnd);
+
+        while (!regions.isEmpty()) {
+            int[] r = regions.pop();
+            int as = r[0], ae = r[1], bs = r[2], be = r[3];
+
+            while (as < ae && bs < be && a[as] == b[bs]) {
+                matches[as++] = bs++;
+            }
+            while (as < ae && bs < be && a[ae - 1] == b[be - 1]) {
+                matches[--ae] = --be;
+            }
+            if (as == ae || bs == be) {
+                continue;
+            }
+
+            int[] anchors = anchors(as, ae, bs, be);
+            if (anchors.length == 0) {
+                super.match(as, ae, bs, be, matches);
+                continue;
+            }
+
+            int prevA = as;
+            int prevB = bs;
+            for (int i = 0; i < anchors.length; i += 2) {
+                int ai = anchors[i];
+                int bi = anchors[i + 1];
+                matches[ai] = bi;
+                regions.push(prevA, ai, prevB, bi);
+                prevA = ai + 1;
+                prevB = bi + 1;
+            }
+            regions.push(prevA, ae, prevB, be);
+        }
+    }
+
+
+    /**
+     * Returns the longest increasing run of unique common elements as pairs of a and b indexes.
+     */
+    int[] anchors(int aStart, int aEnd, int bStart, int bEnd)
+    {
+        // position of the element if unique in the range, -2 if repeated
+        LongIntMap inA = new LongIntMap(aEnd - aStart);
+        for (int i = aStart; i < aEnd; i++) {
+            inA.put(a[i], inA.get(a[i], -1) == -1 ? i : -2);
+        }
+        LongIntMap inB = new LongIntMap(bEnd - bStart);
+        for (int j = bStart; j < bEnd; j++) {
+            inB.put(b[j], inB.get(b[j], -1) == -1 ? j : -2);
+        }
+
+        int[] candA = new int[aEnd - aStart];
+        int[] candB = new int[aEnd - aStart];
+        int n = 0;
+        for (int i = aStart; i < aEnd; i++) {
+            if (inA.get(a[i], -1) == i) {
+                int j = inB.get(a[i], -1);
+                if (j >= 0) {
+                    candA[n] = i;
+                    candB[n] = j;
+                    n++;
+                }
+            }
+        }
+
+        // patience sorting: tails[k] is the candidate ending the best run of length k + 1
+        int[] tails = new int[n];
+        int[] prev = new int[n];
+        int len = 0;
+        for (int c = 0; c < n; c++) {
+            int low = 0;
+            int high = len;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (candB[tails[mid]] < candB[c]) {
+                    low = mid + 1;
+                }
+                else {
+                    high = mid;
+                }
+            }
+            prev[c] = low > 0 ? tails[low - 1] : -1;
+            tails[low] = c;
+            if (low == len) {
+                len++;
+            }
+        }
+
+        int[] anchors = new int[len * 2];
+        for (int c = len > 0 ? tails[len - 1] : -1, k = len - 1; c >= 0; c = prev[c], k--) {
+            anchors[k * 2] = candA[c];
+            anchors[k * 2 + 1] = candB[c];
+        }
+        return anchors;
+    }
+
+}
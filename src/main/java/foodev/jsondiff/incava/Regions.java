@@ -0,0 +1,35 @@
+package foodev.jsondiff.incava;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Work list of <code>[aStart, aEnd, bStart, bEnd]</code> regions, used instead of recursion so deeply split
+ * sequences cannot overflow the stack.
+ */
+final class Regions
+{
+
+    private final List<int[]> stack = new ArrayList<int[]>();
+
+
+    void push(int aStart, int aEnd, int bStart, int bEnd)
+    {
+        if (aStart < aEnd || bStart < bEnd) {
+            stack.add(new int[] { aStart, aEnd, bStart, bEnd });
+        }
+    }
+
+
+    int[] pop()
+    {
+        return stack.remove(stack.size() - 1);
+    }
+
+
+    boolean isEmpty()
+    {
+        return stack.isEmpty();
+    }
+
+}
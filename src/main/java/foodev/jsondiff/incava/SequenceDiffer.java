@@ -0,0 +1,25 @@
+package foodev.jsondiff.incava;
+
+import java.util.List;
+
+/**
+ * Computes the differences between two sequences of fingerprints. Two elements are considered equal when their
+ * fingerprints are equal.
+ *
+ * <p>
+ * Implementations must be stateless, so a single instance can be shared between diffs and threads. The built in
+ * algorithms are found in <code>SequenceDiffers</code>.
+ * </p>
+ *
+ * @since 2.1.0
+ */
+public interface SequenceDiffer
+{
+
+    /**
+     * Returns the differences needed to turn <code>from</code> into <code>to</code>, in the shape produced by
+     * <code>IncavaDiff</code>.
+     */
+    List<IncavaEntry> diff(long[] from, long[] to);
+
+}
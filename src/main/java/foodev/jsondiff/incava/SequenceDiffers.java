@@ -0,0 +1,156 @@
+package foodev.jsondiff.incava;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * The built in <code>SequenceDiffer</code> implementations.
+ *
+ * @since 2.1.0
+ */
+public final class SequenceDiffers
+{
+
+    /**
+     * The Hunt-Szymanski algorithm, matching the results of <code>IncavaDiff</code>. Fast when few elements match each
+     * other.
+     */
+    public static final SequenceDiffer HUNT_SZYMANSKI = new SequenceDiffer()
+    {
+
+        @Override
+        public List<IncavaEntry> diff(long[] from, long[] to)
+        {
+            return new HuntSzymanskiDiff(from, to).diff();
+        }
+
+
+        @Override
+        public String toString()
+        {
+            return "HUNT_SZYMANSKI";
+        }
+    };
+
+    /**
+     * The Myers O(ND) algorithm. Fast when the sequences are similar. Sequences with more than about 2000
+     * differences are compared as by <code>LINEAR_MYERS</code>, which bounds its memory use. This is the default.
+     */
+    public static final SequenceDiffer MYERS = new SequenceDiffer()
+    {
+
+        @Override
+        public List<IncavaEntry> diff(long[] from, long[] to)
+        {
+            return new MyersDiff(from, to).diff();
+        }
+
+
+        @Override
+        public String toString()
+        {
+            return "MYERS";
+        }
+    };
+
+    /**
+     * The linear space variant of the Myers algorithm. Uses memory proportional to the length of the sequences only,
+     * for inputs too large for the other algorithms, at about twice the time of <code>MYERS</code>.
+     */
+    public static final SequenceDiffer LINEAR_MYERS = new SequenceDiffer()
+    {
+
+        @Override
+        public List<IncavaEntry> diff(long[] from, long[] to)
+        {
+            return new LinearMyersDiff(from, to).diff();
+        }
+
+
+        @Override
+        public String toString()
+        {
+            return "LINEAR_MYERS";
+        }
+    };
+
+    /**
+     * The histogram algorithm, splitting on the least frequent common elements. Suited for long sequences with many
+     * repeated elements, such as arrays of similar objects.
+     */
+    public static final SequenceDiffer HISTOGRAM = new SequenceDiffer()
+    {
+
+        @Override
+        public List<IncavaEntry> diff(long[] from, long[] to)
+        {
+            return new HistogramDiff(from, to).diff();
+        }
+
+
+        @Override
+        public String toString()
+        {
+            return "HISTOGRAM";
+        }
+    };
+
+    /**
+     * The patience algorithm, splitting on elements that occur exactly once in both sequences. Tends to keep moved
+     * blocks apart rather than interleaving them.
+     */
+    public static final SequenceDiffer PATIENCE = new SequenceDiffer()
+    {
+
+        @Override
+        public List<IncavaEntry> diff(long[] from, long[] to)
+        {
+            return new PatienceDiff(from, to).diff();
+        }
+
+
+        @Override
+        public String toString()
+        {
+            return "PATIENCE";
+        }
+    };
+
+
+    private SequenceDiffers()
+    {
+    }
+
+
+    /**
+     * Returns a differ splitting the sequences at elements found exactly once in both, and comparing the parts in
+     * between concurrently on the given pool with the Myers algorithm. Suited for long sequences with scattered
+     * changes.
+     *
+     * @param pool
+     *            - pool to run on
+     */
+    public static SequenceDiffer parallel(final ForkJoinPool pool)
+    {
+        if (pool == null) {
+            throw new IllegalArgumentException("pool must not be null");
+        }
+        return new SequenceDiffer()
+        {
+
+            @Override
+            public List<IncavaEntry> diff(long[] from, long[] to)
+            {
+                return new ParallelDiff(from, to, pool).diff();
+            }
+
+
+            @Override
+            public String toString()
+            {
+                return "PARALLEL(" + pool.getParallelism() + ")";
+            }
+        };
+    }
+
+}
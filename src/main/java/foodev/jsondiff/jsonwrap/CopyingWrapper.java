@@ -0,0 +1,20 @@
+package foodev.jsondiff.jsonwrap;
+
+/**
+ * Wrapper that copies elements directly. Elements made by other wrappers are copied through their string form.
+ * 
+ * @since 2.1.0
+ */
+public interface CopyingWrapper extends Wrapper {
+
+	/**
+	 * Copies an element and everything it contains, without going through its string form. Immutable values may be
+	 * shared with the original.
+	 * 
+	 * @param el
+	 *            - element to copy
+	 * @return the copy
+	 */
+	JzonElement deepCopy(JzonElement el);
+
+}
@@ -0,0 +1,76 @@
+package foodev.jsondiff.jsonwrap;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.io.Writer;
+
+/**
+ * Wrapper that parses from and writes to streams directly. Other wrappers go through strings.
+ * 
+ * @since 2.1.0
+ */
+public interface StreamingWrapper extends Wrapper {
+
+	/**
+	 * Parses an element read from characters, without collecting them into a string first.
+	 * 
+	 * @param json
+	 *            - reader, left open
+	 * @return parsed element
+	 * @throws IOException
+	 *             if reading fails
+	 */
+	JzonElement parse(Reader json) throws IOException;
+
+	/**
+	 * Parses an element read from bytes in UTF-8, or any other encoding the implementation detects. Implementations
+	 * reading bytes directly do so without decoding them to characters first.
+	 * 
+	 * @param json
+	 *            - stream, left open
+	 * @return parsed element
+	 * @throws IOException
+	 *             if reading fails
+	 */
+	JzonElement parse(InputStream json) throws IOException;
+
+	/**
+	 * Parses an element from a range of bytes, see {@link #parse(InputStream)}.
+	 * 
+	 * @param json
+	 *            - bytes
+	 * @param offset
+	 *            - first byte of the element
+	 * @param length
+	 *            - number of bytes
+	 * @return parsed element
+	 */
+	JzonElement parse(byte[] json, int offset, int length);
+
+	/**
+	 * Writes an element as the characters of its string form, without building the string.
+	 * 
+	 * @param el
+	 *            - element to write
+	 * @param out
+	 *            - writer, flushed but left open
+	 * @throws IOException
+	 *             if writing fails
+	 */
+	void write(JzonElement el, Writer out) throws IOException;
+
+	/**
+	 * Writes an element as its string form in UTF-8, see {@link #write(JzonElement, Writer)}.
+	 * 
+	 * @param el
+	 *            - element to write
+	 * @param out
+	 *            - stream, flushed but left open
+	 * @throws IOException
+	 *             if writing fails
+	 */
+	void write(JzonElement el, OutputStream out) throws IOException;
+
+}
@@ -1,18 +1,39 @@
 package foodev.jsondiff.jsonwrap.gson;
 
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.util.Map.Entry;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
 import com.google.gson.JsonArray;
 import com.google.gson.JsonElement;
+import com.google.gson.JsonIOException;
 import com.google.gson.JsonObject;
 import com.google.gson.JsonParser;
 import com.google.gson.JsonPrimitive;
+import com.google.gson.stream.JsonWriter;
 
+import foodev.jsondiff.jsonwrap.CopyingWrapper;
 import foodev.jsondiff.jsonwrap.JzonElement;
-import foodev.jsondiff.jsonwrap.Wrapper;
+import foodev.jsondiff.jsonwrap.StreamingWrapper;
 
-public class GsonWrapper implements Wrapper {
+public class GsonWrapper implements CopyingWrapper, StreamingWrapper {
 
 	private final static JsonParser JSON = new JsonParser();
 
+	// writes as JsonElement.toString() does
+	private final static Gson GSON = new GsonBuilder().serializeNulls().disableHtmlEscaping().create();
+
+	private final static Charset UTF_8 = Charset.forName("UTF-8");
+
 	public static JzonElement wrap(JsonElement el) {
 		if (el == null || el.isJsonNull()) {
 			return GsonJsonNull.INSTANCE;
@@ -32,11 +53,75 @@ public class GsonWrapper implements Wrapper {
 		return wrap(JSON.parse(json));
 	}
 
+	@Override
+	public JzonElement parse(Reader json) throws IOException {
+		try {
+			return wrap(JSON.parse(json));
+		} catch (JsonIOException e) {
+			if (e.getCause() instanceof IOException) {
+				throw (IOException) e.getCause();
+			}
+			throw e;
+		}
+	}
+
+	@Override
+	public JzonElement parse(InputStream json) throws IOException {
+		// gson only reads characters
+		return parse(new InputStreamReader(json, UTF_8));
+	}
+
+	@Override
+	public JzonElement parse(byte[] json, int offset, int length) {
+		return wrap(JSON.parse(new InputStreamReader(new ByteArrayInputStream(json, offset, length), UTF_8)));
+	}
+
+	@Override
+	public void write(JzonElement el, Writer out) throws IOException {
+		try {
+			GSON.toJson((JsonElement) el.unwrap(), new JsonWriter(out));
+		} catch (JsonIOException e) {
+			if (e.getCause() instanceof IOException) {
+				throw (IOException) e.getCause();
+			}
+			throw e;
+		}
+		out.flush();
+	}
+
+	@Override
+	public void write(JzonElement el, OutputStream out) throws IOException {
+		write(el, new OutputStreamWriter(out, UTF_8));
+	}
+
 	@Override
 	public JzonElement wrap(Object o) {
 		return wrap((JsonElement) o);
 	}
 
+	@Override
+	public JzonElement deepCopy(JzonElement el) {
+		return wrap(deepCopy((JsonElement) el.unwrap()));
+	}
+
+	static JsonElement deepCopy(JsonElement el) {
+		if (el.isJsonObject()) {
+			JsonObject copy = new JsonObject();
+			for (Entry<String, JsonElement> e : ((JsonObject) el).entrySet()) {
+				copy.add(e.getKey(), deepCopy(e.getValue()));
+			}
+			return copy;
+		} else if (el.isJsonArray()) {
+			JsonArray copy = new JsonArray();
+			for (JsonElement child : (JsonArray) el) {
+				copy.add(deepCopy(child));
+			}
+			return copy;
+		}
+		// primitives and null are not changed by patching, only replaced
+		return el;
+	}
+
 	@Override
 	public foodev.jsondiff.jsonwrap.JzonObject createJsonObject() {
 		return (foodev.jsondiff.jsonwrap.JzonObject) wrap(new JsonObject());
@@ -1,7 +1,15 @@
 package foodev.jsondiff.jsonwrap.jackson;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.Iterator;
+import java.util.Map.Entry;
 
+import org.codehaus.jackson.JsonEncoding;
+import org.codehaus.jackson.JsonGenerator;
 import org.codehaus.jackson.JsonNode;
 import org.codehaus.jackson.JsonParser;
 import org.codehaus.jackson.JsonProcessingException;
@@ -10,12 +18,13 @@ import org.codehaus.jackson.node.ArrayNode;
 import org.codehaus.jackson.node.ObjectNode;
 import org.codehaus.jackson.node.ValueNode;
 
+import foodev.jsondiff.jsonwrap.CopyingWrapper;
 import foodev.jsondiff.jsonwrap.JzonArray;
 import foodev.jsondiff.jsonwrap.JzonElement;
 import foodev.jsondiff.jsonwrap.JzonObject;
-import foodev.jsondiff.jsonwrap.Wrapper;
+import foodev.jsondiff.jsonwrap.StreamingWrapper;
 
-public class JacksonWrapper implements Wrapper {
+public class JacksonWrapper implements CopyingWrapper, StreamingWrapper {
 
 	private final static ObjectMapper JSON = new ObjectMapper();
 
@@ -36,22 +45,87 @@ public class JacksonWrapper implements Wrapper {
 	@Override
 	public JzonElement parse(String json) {
 		try {
-			JsonParser parser = JSON.getJsonFactory().createJsonParser(json);
-			parser.configure(JsonParser.Feature.ALLOW_UNQUOTED_FIELD_NAMES, true);
-			parser.configure(JsonParser.Feature.ALLOW_SINGLE_QUOTES, true);
+			return read(JSON.getJsonFactory().createJsonParser(json));
+		} catch (IOException e) {
+			throw new JacksonWrapperException("IOException parsing a String?", e);
+		}
+	}
+
+	@Override
+	public JzonElement parse(Reader json) throws IOException {
+		return read(JSON.getJsonFactory().createJsonParser(json));
+	}
+
+	@Override
+	public JzonElement parse(InputStream json) throws IOException {
+		return read(JSON.getJsonFactory().createJsonParser(json));
+	}
+
+	@Override
+	public JzonElement parse(byte[] json, int offset, int length) {
+		try {
+			return read(JSON.getJsonFactory().createJsonParser(json, offset, length));
+		} catch (IOException e) {
+			throw new JacksonWrapperException("IOException parsing bytes?", e);
+		}
+	}
+
+	private static JzonElement read(JsonParser parser) throws IOException {
+		parser.configure(JsonParser.Feature.ALLOW_UNQUOTED_FIELD_NAMES, true);
+		parser.configure(JsonParser.Feature.ALLOW_SINGLE_QUOTES, true);
+		parser.configure(JsonParser.Feature.AUTO_CLOSE_SOURCE, false);
+		try {
 			return wrap(parser.readValueAsTree());
 		} catch (JsonProcessingException e) {
 			throw new JacksonWrapperException("Failed to parse JSON", e);
-		} catch (IOException e) {
-			throw new JacksonWrapperException("IOException parsing a String?", e);
 		}
 	}
 
+	@Override
+	public void write(JzonElement el, Writer out) throws IOException {
+		write(el, JSON.getJsonFactory().createJsonGenerator(out));
+	}
+
+	@Override
+	public void write(JzonElement el, OutputStream out) throws IOException {
+		write(el, JSON.getJsonFactory().createJsonGenerator(out, JsonEncoding.UTF8));
+	}
+
+	private static void write(JzonElement el, JsonGenerator gen) throws IOException {
+		gen.configure(JsonGenerator.Feature.AUTO_CLOSE_TARGET, false);
+		JSON.writeTree(gen, (JsonNode) el.unwrap());
+		gen.close();
+	}
+
 	@Override
 	public JzonElement wrap(Object o) {
 		return wrap((JsonNode) o);
 	}
 
+	@Override
+	public JzonElement deepCopy(JzonElement el) {
+		return wrap(deepCopy((JsonNode) el.unwrap()));
+	}
+
+	static JsonNode deepCopy(JsonNode el) {
+		if (el.isObject()) {
+			ObjectNode copy = JSON.createObjectNode();
+			for (Iterator<Entry<String, JsonNode>> it = el.getFields(); it.hasNext();) {
+				Entry<String, JsonNode> e = it.next();
+				copy.put(e.getKey(), deepCopy(e.getValue()));
+			}
+			return copy;
+		} else if (el.isArray()) {
+			ArrayNode copy = JSON.createArrayNode();
+			for (JsonNode child : el) {
+				copy.add(deepCopy(child));
+			}
+			return copy;
+		}
+		// value nodes are immutable
+		return el;
+	}
+
 	@Override
 	public JzonObject createJsonObject() {
 		return (JzonObject) wrap(JSON.createObjectNode());
@@ -1,5 +1,7 @@
 package foodev.jsondiff.jsonwrap.jackson2;
 
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.JsonNode;
@@ -7,14 +9,19 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ArrayNode;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 import com.fasterxml.jackson.databind.node.ValueNode;
+import foodev.jsondiff.jsonwrap.CopyingWrapper;
 import foodev.jsondiff.jsonwrap.JzonArray;
 import foodev.jsondiff.jsonwrap.JzonElement;
 import foodev.jsondiff.jsonwrap.JzonObject;
-import foodev.jsondiff.jsonwrap.Wrapper;
+import foodev.jsondiff.jsonwrap.StreamingWrapper;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.io.Writer;
 
-public class Jackson2Wrapper implements Wrapper {
+public class Jackson2Wrapper implements CopyingWrapper, StreamingWrapper {
 
 	private final static ObjectMapper JSON = new ObjectMapper();
 
@@ -35,22 +42,68 @@ public class Jackson2Wrapper implements Wrapper {
 	@Override
 	public JzonElement parse(String json) {
 		try {
-			JsonParser parser = JSON.getJsonFactory().createJsonParser(json);
-			parser.configure(JsonParser.Feature.ALLOW_UNQUOTED_FIELD_NAMES, true);
-			parser.configure(JsonParser.Feature.ALLOW_SINGLE_QUOTES, true);
-			return wrap(parser.readValueAsTree());
-		} catch (JsonProcessingException e) {
-			throw new Jackson2WrapperException("Failed to parse JSON", e);
+			return read(JSON.getFactory().createParser(json));
 		} catch (IOException e) {
 			throw new Jackson2WrapperException("IOException parsing a String?", e);
 		}
 	}
 
+	@Override
+	public JzonElement parse(Reader json) throws IOException {
+		return read(JSON.getFactory().createParser(json));
+	}
+
+	@Override
+	public JzonElement parse(InputStream json) throws IOException {
+		return read(JSON.getFactory().createParser(json));
+	}
+
+	@Override
+	public JzonElement parse(byte[] json, int offset, int length) {
+		try {
+			return read(JSON.getFactory().createParser(json, offset, length));
+		} catch (IOException e) {
+			throw new Jackson2WrapperException("IOException parsing bytes?", e);
+		}
+	}
+
+	private static JzonElement read(JsonParser parser) throws IOException {
+		parser.configure(JsonParser.Feature.ALLOW_UNQUOTED_FIELD_NAMES, true);
+		parser.configure(JsonParser.Feature.ALLOW_SINGLE_QUOTES, true);
+		parser.configure(JsonParser.Feature.AUTO_CLOSE_SOURCE, false);
+		try {
+			return wrap((JsonNode) parser.readValueAsTree());
+		} catch (JsonProcessingException e) {
+			throw new Jackson2WrapperException("Failed to parse JSON", e);
+		}
+	}
+
+	@Override
+	public void write(JzonElement el, Writer out) throws IOException {
+		write(el, JSON.getFactory().createGenerator(out));
+	}
+
+	@Override
+	public void write(JzonElement el, OutputStream out) throws IOException {
+		write(el, JSON.getFactory().createGenerator(out, JsonEncoding.UTF8));
+	}
+
+	private static void write(JzonElement el, JsonGenerator gen) throws IOException {
+		gen.configure(JsonGenerator.Feature.AUTO_CLOSE_TARGET, false);
+		JSON.writeTree(gen, (JsonNode) el.unwrap());
+		gen.close();
+	}
+
 	@Override
 	public JzonElement wrap(Object o) {
 		return wrap((JsonNode) o);
 	}
 
+	@Override
+	public JzonElement deepCopy(JzonElement el) {
+		return wrap(((JsonNode) el.unwrap()).deepCopy());
+	}
+
 	@Override
 	public JzonObject createJsonObject() {
 		return (JzonObject) wrap(JSON.createObjectNode());
@@ -0,0 +1,66 @@
+package foodev.jsondiff;
+
+import java.util.Random;
+
+import junit.framework.Assert;
+import junit.framework.TestCase;
+
+import org.junit.Test;
+
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+public class ArrayKeyTest extends TestCase {
+
+	@Test
+	public void testEditedElementIsDiffedInPlace() {
+
+		JsonDiff diff = new GsonDiff();
+		diff.addArrayKey("/a", "id");
+
+		String d = diff.diff("{\"a\":[{\"id\":1,\"v\":1},{\"id\":2,\"v\":2},{\"id\":3,\"v\":3}]}",
+				"{\"a\":[{\"id\":1,\"v\":1},{\"id\":2,\"v\":5},{\"id\":3,\"v\":3}]}");
+		Assert.assertEquals("{\"a\":{\"~1\":[{\"v\":5}]}}", d);
+
+	}
+
+	@Test
+	public void testOnlyRealInsertsAndDeletes() {
+
+		JsonDiff diff = new GsonDiff();
+		diff.addArrayKey("/a/*/b", "id");
+
+		String d = diff.diff("{\"a\":[{\"b\":[{\"id\":1},{\"id\":2,\"v\":2},{\"id\":3}]}]}",
+				"{\"a\":[{\"b\":[{\"id\":2,\"v\":7},{\"id\":3},{\"id\":4}]}]}");
+		Assert.assertEquals("{\"a\":{\"0\":{\"~b\":[{\"-0\":0},{\"+2\":{\"id\":4}}],\"b\":{\"~1\":[{\"v\":7}]}}}}", d);
+
+	}
+
+	@Test
+	public void testMovedElementsRoundTrip() throws Exception {
+
+		JsonDiff diff = new Jackson2Diff();
+		diff.addArrayKey("/a", "id");
+
+		Random random = new Random(7);
+		for (int n = 0; n < 300; n++) {
+			ObjectNode from = DiffRoundTripTest.NODES.objectNode();
+			ArrayNode arr = from.putArray("a");
+			for (int i = random.nextInt(8); i > 0; i--) {
+				arr.addObject().put("id", random.nextInt(6)).put("v", random.nextInt(3));
+			}
+			ObjectNode to = from.deepCopy();
+			ArrayNode toArr = (ArrayNode) to.get("a");
+			for (int i = random.nextInt(4); i > 0 && toArr.size() > 0; i--) {
+				toArr.insert(random.nextInt(toArr.size()), toArr.remove(random.nextInt(toArr.size())));
+			}
+			if (toArr.size() > 0) {
+				((ObjectNode) toArr.get(random.nextInt(toArr.size()))).put("v", 9);
+			}
+			toArr.add(DiffRoundTripTest.random(random, 1));
+			DiffRoundTripTest.assertRoundTrip("keyed", diff, from.toString(), to.toString());
+		}
+
+	}
+
+}
@@ -0,0 +1,209 @@
+package foodev.jsondiff;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+import junit.framework.Assert;
+import junit.framework.TestCase;
+
+import org.junit.Test;
+
+import foodev.jsondiff.jsonwrap.JzonArray;
+import foodev.jsondiff.jsonwrap.JzonElement;
+import foodev.jsondiff.jsonwrap.JzonObject;
+import foodev.jsondiff.jsonwrap.Wrapper;
+import foodev.jsondiff.jsonwrap.gson.GsonWrapper;
+
+public class ByteInputTest extends TestCase {
+
+	@Test
+	public void testSameAsStrings() throws Exception {
+
+		for (JsonDiff diff : diffs()) {
+			for (int i = 0; i < DiffRoundTripTest.PAIRS.length; i += 2) {
+				String from = DiffRoundTripTest.PAIRS[i].replace('\'', '"');
+				String to = DiffRoundTripTest.PAIRS[i + 1].replace('\'', '"');
+				String patch = diff.diff(from, to);
+				String patched;
+				try {
+					patched = diff.apply(from, patch);
+				} catch (RuntimeException e) {
+					// a patch the flat diff got wrong
+					patched = null;
+				}
+				for (int kind = 0; kind < 5; kind++) {
+					String name = diff.getClass().getSimpleName() + " " + kind + " " + from + " to " + to;
+					Assert.assertEquals(name, patch, diff(diff, kind, from, to));
+					if (patched != null) {
+						Assert.assertEquals(name, patched, apply(diff, kind, from, patch));
+					}
+				}
+			}
+		}
+
+	}
+
+	@Test
+	public void testWrittenAsToString() throws Exception {
+
+		// nulls, escapes and characters outside ascii as toString writes them
+		String from = "{\"a\":null,\"b\":\"<\\u00e5>\",\"c\":[1.5,\"\\\"\"]}";
+		String to = "{\"a\":null,\"b\":\"<\\u00e4\\u2603>\",\"c\":[1.5,null,\"\\n\"],\"d\":\"&'=\"}";
+		for (JsonDiff diff : diffs()) {
+			for (int kind = 0; kind < 5; kind++) {
+				String patch = diff.diff(from, to);
+				Assert.assertEquals(diff.getClass().getSimpleName() + " " + kind, patch, diff(diff, kind, from, to));
+				Assert.assertEquals(diff.getClass().getSimpleName() + " " + kind, diff.apply(from, patch), apply(diff, kind, from, patch));
+			}
+		}
+
+	}
+
+	@Test
+	public void testBufferPositionKept() throws Exception {
+
+		for (JsonDiff diff : diffs()) {
+			for (int direct = 0; direct < 2; direct++) {
+				ByteBuffer from = buffer("  {\"a\":1}", direct == 1);
+				from.position(2);
+				ByteBuffer to = buffer("{\"a\":2}", direct == 1);
+				ByteArrayOutputStream out = new ByteArrayOutputStream();
+				diff.diff(from, to, out);
+				Assert.assertEquals(diff.diff("{\"a\":1}", "{\"a\":2}"), out.toString("UTF-8"));
+				Assert.assertEquals(2, from.position());
+				Assert.assertEquals(0, to.position());
+			}
+		}
+
+	}
+
+	static List<JsonDiff> diffs() {
+		return Arrays.<JsonDiff> asList(new GsonDiff(), new JacksonDiff(), new Jackson2Diff(), new JsonDiff(plain(new GsonWrapper())));
+	}
+
+	/**
+	 * @return a wrapper with only the methods of {@link Wrapper}, as one written outside the library may be
+	 */
+	static Wrapper plain(final Wrapper wrapper) {
+		return new Wrapper() {
+
+			@Override
+			public JzonElement parse(String json) {
+				return wrapper.parse(json);
+			}
+
+			@Override
+			public JzonElement wrap(Object o) {
+				return wrapper.wrap(o);
+			}
+
+			@Override
+			public JzonObject createJsonObject() {
+				return wrapper.createJsonObject();
+			}
+
+			@Override
+			public JzonArray createJsonArray() {
+				return wrapper.createJsonArray();
+			}
+		};
+	}
+
+	/**
+	 * Runs the diff given as one of the kinds of input.
+	 */
+	static String diff(JsonDiff diff, int kind, String from, String to) throws Exception {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		switch (kind) {
+		case 0:
+			StringWriter writer = new StringWriter();
+			diff.diff(new StringReader(from), new StringReader(to), writer);
+			return writer.toString();
+		case 1:
+			diff.diff(new ByteArrayInputStream(bytes(from)), new ByteArrayInputStream(bytes(to)), out);
+			break;
+		case 2:
+			diff.diff(bytes(from), bytes(to), out);
+			break;
+		case 3:
+			diff.diff(buffer(from, false), buffer(to, true), out);
+			break;
+		default:
+			Path fromFile = file(from);
+			Path toFile = file(to);
+			try {
+				diff.diff(fromFile, toFile, out);
+			} finally {
+				Files.delete(fromFile);
+				Files.delete(toFile);
+			}
+		}
+		return out.toString("UTF-8");
+	}
+
+	/**
+	 * Runs the apply given as one of the kinds of input.
+	 */
+	static String apply(JsonDiff diff, int kind, String orig, String patch) throws Exception {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		switch (kind) {
+		case 0:
+			StringWriter writer = new StringWriter();
+			diff.apply(new StringReader(orig), new StringReader(patch), writer);
+			return writer.toString();
+		case 1:
+			diff.apply(new ByteArrayInputStream(bytes(orig)), new ByteArrayInputStream(bytes(patch)), out);
+			break;
+		case 2:
+			diff.apply(bytes(orig), bytes(patch), out);
+			break;
+		case 3:
+			diff.apply(buffer(orig, true), buffer(patch, false), out);
+			break;
+		default:
+			Path origFile = file(orig);
+			Path patchFile = file(patch);
+			try {
+				diff.apply(origFile, patchFile, out);
+			} finally {
+				Files.delete(origFile);
+				Files.delete(patchFile);
+			}
+		}
+		return out.toString("UTF-8");
+	}
+
+	static byte[] bytes(String json) throws Exception {
+		return json.getBytes("UTF-8");
+	}
+
+	static ByteBuffer buffer(String json, boolean direct) throws Exception {
+		byte[] bytes = bytes(json);
+		if (!direct) {
+			// an array with bytes on either side of the buffer
+			byte[] padded = new byte[bytes.length + 4];
+			System.arraycopy(bytes, 0, padded, 2, bytes.length);
+			padded[0] = padded[padded.length - 1] = '[';
+			return ByteBuffer.wrap(padded, 2, bytes.length).slice();
+		}
+		ByteBuffer buf = ByteBuffer.allocateDirect(bytes.length);
+		buf.put(bytes);
+		buf.flip();
+		return buf;
+	}
+
+	static Path file(String json) throws Exception {
+		File file = File.createTempFile("jsondiff", ".json");
+		Files.write(file.toPath(), bytes(json));
+		return file.toPath();
+	}
+
+}
@@ -0,0 +1,66 @@
+package foodev.jsondiff;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import junit.framework.Assert;
+import junit.framework.TestCase;
+
+import org.junit.Test;
+
+import com.google.gson.JsonPrimitive;
+
+import foodev.jsondiff.jsonwrap.gson.GsonWrapper;
+
+public class ChildListTest extends TestCase {
+
+	@Test
+	public void testMatchesArrayList() {
+
+		Root root = new Root(Fingerprint.BITS_32);
+		ChildList list = new ChildList();
+		ChildList other = new ChildList();
+		List<Leaf> expected = new ArrayList<Leaf>();
+
+		Random rnd = new Random(5);
+		for (int i = 0; i < 3000; i++) {
+			int op = rnd.nextInt(10);
+			if (op < 5 || expected.isEmpty()) {
+				Leaf leaf = new Leaf(new ArrNode(root, 0), GsonWrapper.wrap(new JsonPrimitive(i % 3)));
+				int index = rnd.nextInt(expected.size() + 1);
+				list.add(index, leaf);
+				expected.add(index, leaf);
+			} else if (op < 7) {
+				int index = rnd.nextInt(expected.size());
+				Assert.assertSame(expected.remove(index), list.remove(index));
+			} else if (op < 8) {
+				int from = rnd.nextInt(expected.size());
+				expected.subList(from, expected.size()).clear();
+				list.subList(from, list.size()).clear();
+			} else if (op < 9) {
+				Leaf a = new Leaf(new ArrNode(root, 0), GsonWrapper.wrap(new JsonPrimitive(0)));
+				Leaf b = new Leaf(new ArrNode(root, 0), GsonWrapper.wrap(new JsonPrimitive(1)));
+				int index = rnd.nextInt(expected.size() + 1);
+				list.addAll(index, Arrays.asList(a, b));
+				expected.addAll(index, Arrays.asList(a, b));
+			} else {
+				// a leaf in two lists is still found in both
+				other.add(0, expected.get(rnd.nextInt(expected.size())));
+			}
+
+			Assert.assertEquals(expected.size(), list.size());
+			if (!expected.isEmpty()) {
+				Leaf probe = expected.get(rnd.nextInt(expected.size()));
+				Assert.assertEquals(Leaf.exactIndex(new ArrayList<Leaf>(expected), probe), list.position(probe));
+			}
+		}
+
+		Assert.assertEquals(expected, list);
+		Assert.assertEquals(0, other.position(other.get(0)));
+		Assert.assertEquals(-1, list.position(null));
+
+	}
+
+}
@@ -0,0 +1,75 @@
+package foodev.jsondiff;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonPrimitive;
+
+import foodev.jsondiff.jsonwrap.gson.GsonWrapper;
+
+/**
+ * Applies one patch to many copies of a document, once through <code>JsonDiff.apply</code> and once compiled.
+ * 
+ * <pre>
+ * java foodev.jsondiff.CompiledPatchBenchmark [documents]
+ * </pre>
+ */
+public class CompiledPatchBenchmark {
+
+	public static void main(String[] args) {
+
+		int documents = args.length > 0 ? Integer.parseInt(args[0]) : 20000;
+
+		JsonObject from = new JsonObject();
+		JsonObject to = new JsonObject();
+		for (int i = 0; i < 50; i++) {
+			JsonObject f = new JsonObject();
+			JsonObject t = new JsonObject();
+			JsonArray fa = new JsonArray();
+			JsonArray ta = new JsonArray();
+			for (int j = 0; j < 5; j++) {
+				fa.add(new JsonPrimitive(j));
+				ta.add(new JsonPrimitive(j == i % 5 ? -j : j));
+			}
+			f.add("values", fa);
+			t.add("values", ta);
+			f.addProperty("name", "item" + i);
+			t.addProperty("name", i % 3 == 0 ? "renamed" + i : "item" + i);
+			from.add("k" + i, f);
+			to.add("k" + i, t);
+		}
+
+		GsonDiff diff = new GsonDiff();
+		JsonObject patch = diff.diff(from, to);
+		CompiledPatch compiled = diff.compile(patch);
+		System.out.println("patch " + patch.toString().length() + " chars, " + compiled.size() + " operations");
+
+		for (int round = 0; round < 3; round++) {
+			JsonObject[] docs = copies(from, documents);
+			long start = System.nanoTime();
+			for (JsonObject doc : docs) {
+				diff.apply(doc, patch);
+			}
+			long plain = (System.nanoTime() - start) / 1000000;
+
+			docs = copies(from, documents);
+			start = System.nanoTime();
+			for (JsonObject doc : docs) {
+				diff.apply(doc, compiled);
+			}
+			long program = (System.nanoTime() - start) / 1000000;
+
+			System.out.println(documents + " documents: apply " + plain + " ms, compiled " + program + " ms");
+		}
+
+	}
+
+	static JsonObject[] copies(JsonObject doc, int count) {
+		GsonWrapper wrapper = new GsonWrapper();
+		JsonObject[] copies = new JsonObject[count];
+		for (int i = 0; i < count; i++) {
+			copies[i] = (JsonObject) wrapper.deepCopy(GsonWrapper.wrap(doc)).unwrap();
+		}
+		return copies;
+	}
+
+}
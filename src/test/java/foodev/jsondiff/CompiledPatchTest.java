@@ -0,0 +1,144 @@
+package foodev.jsondiff;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+
+import junit.framework.Assert;
+import junit.framework.TestCase;
+
+import org.junit.Test;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+public class CompiledPatchTest extends TestCase {
+
+	@Test
+	public void testSameAsApply() {
+
+		for (int mode = 0; mode < 2; mode++) {
+			JsonDiff diff = new GsonDiff();
+			diff.setHierarchical(mode == 1);
+			for (int i = 0; i < DiffRoundTripTest.PAIRS.length; i += 2) {
+				String from = DiffRoundTripTest.PAIRS[i].replace('\'', '"');
+				String to = DiffRoundTripTest.PAIRS[i + 1].replace('\'', '"');
+				String patch = diff.diff(from, to);
+				Assert.assertEquals(from + " with " + patch, diff.apply(from, patch), diff.apply(from, diff.compile(patch)));
+			}
+		}
+
+	}
+
+	@Test
+	public void testRandomDocuments() {
+
+		JsonDiff diff = new Jackson2Diff();
+		diff.setHierarchical(true);
+		Random random = new Random(3);
+		for (int n = 0; n < 300; n++) {
+			ObjectNode from = DiffRoundTripTest.randomObject(random, 3);
+			JsonNode to = DiffRoundTripTest.mutate(random, from.deepCopy(), 3);
+			if (!to.isObject()) {
+				continue;
+			}
+			CompiledPatch patch = diff.compile(diff.diff(from, to));
+			ObjectNode patched = from.deepCopy();
+			diff.apply(patched, patch);
+			Assert.assertEquals(to, patched);
+		}
+
+	}
+
+	@Test
+	public void testReusedOnManyDocuments() {
+
+		GsonDiff diff = new GsonDiff();
+		String from = "{\"a\":[1],\"b\":{\"c\":1}}";
+		CompiledPatch patch = diff.compile(diff.diff(from, "{\"a\":[{\"x\":1},1],\"b\":{\"c\":2,\"d\":{\"y\":[2]}}}"));
+		String before = patch.getPatch().toString();
+
+		JsonParser parser = new JsonParser();
+		JsonObject first = parser.parse(from).getAsJsonObject();
+		JsonObject second = parser.parse(from).getAsJsonObject();
+		diff.apply(first, patch);
+		diff.apply(second, patch);
+
+		// values added are copies, not shared with the patch or the other documents
+		first.getAsJsonArray("a").get(0).getAsJsonObject().addProperty("x", 9);
+		first.getAsJsonObject("b").getAsJsonObject("d").getAsJsonArray("y").add(parser.parse("3"));
+		Assert.assertEquals("{\"a\":[{\"x\":1},1],\"b\":{\"c\":2,\"d\":{\"y\":[2]}}}", second.toString());
+		Assert.assertEquals(before, patch.getPatch().toString());
+
+	}
+
+	@Test
+	public void testRejectedWhenCompiling() {
+
+		JsonDiff diff = new GsonDiff();
+		String[] invalid = { "[]", "{\"~\":{}}", "{\"~\":[1]}", "{\"~a\":[{}]}", "{\"a\":[1]}", "{\"0\":null}" };
+		for (String patch : invalid) {
+			try {
+				diff.compile(patch);
+				fail(patch);
+			} catch (IllegalArgumentException e) {
+				// expected
+			}
+		}
+
+	}
+
+	@Test
+	public void testDifferentKind() {
+
+		try {
+			new JacksonDiff().apply("{}", new GsonDiff().compile("{}"));
+			fail();
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+
+	}
+
+	@Test
+	public void testApplyAll() {
+
+		GsonDiff diff = new GsonDiff();
+		JsonObject patch = diff.diff(new JsonParser().parse("{\"a\":[1,2],\"b\":1}").getAsJsonObject(),
+				new JsonParser().parse("{\"a\":[1,3],\"b\":2}").getAsJsonObject());
+
+		ExecutorService[] executors = { null, new ForkJoinPool(4) };
+		for (ExecutorService executor : executors) {
+			diff.setExecutor(executor);
+			List<Object> docs = new ArrayList<Object>();
+			for (int i = 0; i < 200; i++) {
+				// every tenth has no array to patch
+				docs.add(new JsonParser().parse(i % 10 == 0 ? "{\"b\":" + i + "}" : "{\"a\":[1,2],\"b\":" + i + "}"));
+			}
+
+			List<ApplyResult> results = diff.applyAll(docs, patch);
+
+			Assert.assertEquals(docs.size(), results.size());
+			for (int i = 0; i < results.size(); i++) {
+				ApplyResult result = results.get(i);
+				Assert.assertSame(docs.get(i), result.getDocument());
+				if (i % 10 == 0) {
+					Assert.assertFalse(result.isApplied());
+					Assert.assertNotNull(result.getError());
+				} else {
+					Assert.assertTrue(result.toString(), result.isApplied());
+					Assert.assertEquals("{\"a\":[1,3],\"b\":2}", result.getDocument().toString());
+				}
+			}
+			if (executor != null) {
+				executor.shutdown();
+			}
+		}
+
+	}
+
+}
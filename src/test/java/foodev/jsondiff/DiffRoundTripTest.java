@@ -0,0 +1,277 @@
+package foodev.jsondiff;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import junit.framework.Assert;
+import junit.framework.TestCase;
+
+import org.junit.Test;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import foodev.jsondiff.incava.IncavaEntry;
+import foodev.jsondiff.incava.SequenceDiffer;
+import foodev.jsondiff.incava.SequenceDiffers;
+
+/**
+ * Diffs document pairs with every diff configuration and checks that applying the patch to the original yields the
+ * target.
+ */
+public class DiffRoundTripTest extends TestCase {
+
+	static final ObjectMapper JSON = new ObjectMapper();
+
+	static final SequenceDiffer[] DIFFERS = { SequenceDiffers.HUNT_SZYMANSKI, SequenceDiffers.MYERS, SequenceDiffers.HISTOGRAM, SequenceDiffers.PATIENCE };
+
+	// pairs of from, to with ' standing in for "
+	static final String[] PAIRS = {
+			"{}", "{'a':{'b':1}}",
+			"{'a':1,'b':{'c':1,'d':1}}", "{'a':1}",
+			"{'a':1,'b':{'d':1}}", "{'a':1,'b':{'c':1,'d':2}}",
+			"{'a':[3,4,1,2]}", "{'a':[1,2,5]}",
+			"{'a':[0,1,2,4]}", "{'a':[0,1,3,4]}",
+			"{'a':['a','b','d']}", "{'a':['a','c','e','d']}",
+			"{'a':[1,2,3,4]}", "{'a':[1,3]}",
+			"{'a':[1,[2,4]]}", "{'a':[1,[2,3,4]]}",
+			"{'a':[1,{'b':[2,3]}]}", "{'a':[1,{'b':[]}]}",
+			"{'a':[1,2],'b':{'foo':'b'},'c':42}", "{'a':1,'b':{'foo':'b','bar':42},'c':45}",
+			"{'a':['s1','s2','s3']}", "{'a':['s2','s3','s4']}",
+			"{'a':[{'b':1},{'c':2},{'d':3}]}", "{'a':[{'c':2},{'d':3},{'e':4}]}",
+			"{'a':[{'c':2},{'d':3},{'e':4}]}", "{'a':[{'b':1},{'c':2},{'d':3}]}",
+			"{'a1':{'c':2},'a2':{'d':3},'a3':{'e':4}}", "{'a1':{'b':1},'a2':{'c':2},'a3':{'d':3}}",
+			"{'a':[{'c':2,'d':3},{'c':2,'d':3},{'c':2,'d':3},{'c':2,'d':3}]}", "{'a':[{'c':2,'d':4},{'c':2,'d':5},{'c':2,'d':3},{'c':2,'d':6}]}",
+			"{'a':[{'c':2,'d':3},null,{'c':2,'d':3}]}", "{'a':[{'c':2,'d':3},{'c':2,'d':7},42]}",
+			"{'a':[{'c':0},{'c':1},{'c':2},{'c':3},{'c':4}]}", "{'a':[{'e':0},{'c':0},{'c':2},{'e':2},{'c':3,'d':3},{'e':3}]}",
+			"{'a':[{'b':{'id':'id1'}},{'b':{'ab':{},'ac':null},'id':'id2'}]}", "{'a':[{'b':{'id':'id2','ac':'123'}}]}",
+			"{'a':[{'id':1,'k':0},{'id':2,'k':1}]}", "{'a':[{'id':2,'k':2}]}",
+			"{'b':[1,2]}", "{'b':{'id':'id2'}}",
+			"{'a':[{'b':[1,2]},{'b':[1,2]}]}", "{'a':[{'b':{'id':'id2'}}]}",
+	};
+
+	@Test
+	public void testSequenceDiffers() throws Exception {
+
+		for (SequenceDiffer differ : DIFFERS) {
+			JsonDiff diff = new GsonDiff();
+			diff.setSequenceDiffer(differ);
+			assertRoundTrips(differ.toString(), diff);
+		}
+
+	}
+
+	@Test
+	public void testLinearSpaceThreshold() throws Exception {
+
+		JsonDiff diff = new JacksonDiff();
+		diff.setLinearSpaceThreshold(0);
+		assertRoundTrips("linear", diff);
+
+		diff.setHierarchical(true);
+		assertRoundTrips("linear hierarchical", diff);
+
+	}
+
+	@Test
+	public void testLinearSpaceThresholdKeepsDifferSet() throws Exception {
+
+		JsonDiff diff = new JacksonDiff();
+		diff.setLinearSpaceThreshold(0);
+		Assert.assertSame(SequenceDiffers.LINEAR_MYERS, diff.sequenceDiffer(10));
+
+		final int[] calls = new int[1];
+		diff.setSequenceDiffer(new SequenceDiffer() {
+
+			@Override
+			public List<IncavaEntry> diff(long[] from, long[] to) {
+				calls[0]++;
+				return SequenceDiffers.PATIENCE.diff(from, to);
+			}
+		});
+		diff.diff("{\"a\":[1,2,3]}", "{\"a\":[1,3,4]}");
+		Assert.assertEquals(1, calls[0]);
+
+		diff.setSequenceDiffer(SequenceDiffers.HISTOGRAM);
+		Assert.assertSame(SequenceDiffers.HISTOGRAM, diff.sequenceDiffer(10));
+
+	}
+
+	@Test
+	public void testLargeDisjointArrays() throws Exception {
+
+		// 40000 differences with the default settings, far too many to record every path of the Myers diff
+		ArrayNode from = NODES.arrayNode();
+		ArrayNode to = NODES.arrayNode();
+		for (int i = 0; i < 20000; i++) {
+			from.add(i);
+			to.add(20000 + i);
+		}
+		JsonDiff diff = new Jackson2Diff();
+		Assert.assertSame(SequenceDiffers.MYERS, diff.sequenceDiffer(40002));
+		assertRoundTrip("disjoint", diff, "{\"a\":" + from + "}", "{\"a\":" + to + "}");
+
+	}
+
+	@Test
+	public void testFingerprint64() throws Exception {
+
+		for (SequenceDiffer differ : DIFFERS) {
+			JsonDiff diff = new Jackson2Diff();
+			diff.setSequenceDiffer(differ);
+			diff.setFingerprint(Fingerprint.BITS_64);
+			assertRoundTrips(differ + " 64", diff);
+		}
+
+	}
+
+	@Test
+	public void testSkipIdenticalSubtrees() throws Exception {
+
+		for (Fingerprint fingerprint : Fingerprint.values()) {
+			JsonDiff diff = new JacksonDiff();
+			diff.setFingerprint(fingerprint);
+			diff.setSkipIdenticalSubtrees(true);
+			assertRoundTrips("skip " + fingerprint, diff);
+		}
+
+	}
+
+	@Test
+	public void testHierarchical() throws Exception {
+
+		for (SequenceDiffer differ : DIFFERS) {
+			JsonDiff diff = new GsonDiff();
+			diff.setSequenceDiffer(differ);
+			diff.setHierarchical(true);
+			assertRoundTrips("hierarchical " + differ, diff);
+
+			Random random = new Random(42);
+			for (int i = 0; i < 300; i++) {
+				ObjectNode from = randomObject(random, 3);
+				JsonNode to = mutate(random, from.deepCopy(), 3);
+				assertRoundTrip("hierarchical " + differ, diff, from.toString(), to.toString());
+			}
+		}
+
+	}
+
+	@Test
+	public void testExecutor() throws Exception {
+
+		ExecutorService executor = Executors.newFixedThreadPool(3);
+		try {
+			for (int mode = 0; mode < 3; mode++) {
+				JsonDiff diff = new GsonDiff();
+				diff.setExecutor(executor);
+				diff.setHierarchical(mode == 1);
+				diff.setSkipIdenticalSubtrees(mode == 2);
+				String name = "executor " + mode;
+				assertRoundTrips(name, diff);
+				assertRoundTrip(name, diff, "{\"s1\":{\"a\":1,\"b\":[1,2]},\"s2\":[1,2,3],\"s3\":{\"c\":{\"d\":1}},\"p\":1,\"q\":[1]}",
+						"{\"s1\":{\"a\":2,\"b\":[2]},\"s2\":[0,1,3],\"s3\":{\"c\":{\"d\":1}},\"p\":2,\"q\":{},\"r\":[]}");
+
+				if (mode == 1) {
+					// the hierarchical diff of a member doesn't depend on the others, so the patches are the same
+					JsonDiff sequential = new GsonDiff();
+					sequential.setHierarchical(true);
+					Random random = new Random(43);
+					for (int i = 0; i < 300; i++) {
+						ObjectNode from = randomObject(random, 3);
+						JsonNode to = mutate(random, from.deepCopy(), 3);
+						assertRoundTrip(name, diff, from.toString(), to.toString());
+						Assert.assertEquals(JSON.readTree(sequential.diff(from.toString(), to.toString())), JSON.readTree(diff.diff(from.toString(), to.toString())));
+					}
+				}
+			}
+		} finally {
+			executor.shutdown();
+		}
+
+	}
+
+	static final JsonNodeFactory NODES = JsonNodeFactory.instance;
+
+	static JsonNode random(Random random, int depth) {
+		switch (random.nextInt(depth > 0 ? 7 : 4)) {
+		case 0:
+			return NODES.numberNode(random.nextInt(4));
+		case 1:
+			return NODES.textNode("s" + random.nextInt(4));
+		case 2:
+			return NODES.booleanNode(random.nextBoolean());
+		case 3:
+			return NODES.nullNode();
+		case 4:
+			return randomObject(random, depth - 1);
+		default:
+			ArrayNode arr = NODES.arrayNode();
+			for (int i = random.nextInt(5); i > 0; i--) {
+				arr.add(random(random, depth - 1));
+			}
+			return arr;
+		}
+	}
+
+	static ObjectNode randomObject(Random random, int depth) {
+		ObjectNode obj = NODES.objectNode();
+		for (int i = random.nextInt(5); i > 0; i--) {
+			obj.set("k" + random.nextInt(6), random(random, depth));
+		}
+		return obj;
+	}
+
+	static JsonNode mutate(Random random, JsonNode node, int depth) {
+		if (node.isObject()) {
+			ObjectNode obj = (ObjectNode) node;
+			for (int i = random.nextInt(3); i > 0; i--) {
+				String key = "k" + random.nextInt(6);
+				if (obj.has(key) && random.nextBoolean()) {
+					obj.set(key, mutate(random, obj.get(key), depth - 1));
+				} else if (random.nextBoolean()) {
+					obj.remove(key);
+				} else {
+					obj.set(key, random(random, depth));
+				}
+			}
+		} else if (node.isArray()) {
+			ArrayNode arr = (ArrayNode) node;
+			for (int i = random.nextInt(3); i > 0; i--) {
+				int op = random.nextInt(3);
+				if (op == 0 || arr.size() == 0) {
+					arr.insert(random.nextInt(arr.size() + 1), random(random, depth));
+				} else if (op == 1) {
+					arr.remove(random.nextInt(arr.size()));
+				} else {
+					int index = random.nextInt(arr.size());
+					arr.set(index, mutate(random, arr.get(index), depth - 1));
+				}
+			}
+		} else if (random.nextInt(3) == 0) {
+			return random(random, depth);
+		}
+		return node;
+	}
+
+	static void assertRoundTrips(String name, JsonDiff diff) throws Exception {
+
+		for (int i = 0; i < PAIRS.length; i += 2) {
+			assertRoundTrip(name, diff, PAIRS[i].replace('\'', '"'), PAIRS[i + 1].replace('\'', '"'));
+		}
+
+	}
+
+	static void assertRoundTrip(String name, JsonDiff diff, String from, String to) throws Exception {
+
+		String patch = diff.diff(from, to);
+		String patched = diff.apply(from, patch);
+		Assert.assertEquals(name + " " + from + " -> " + to + " with " + patch, JSON.readTree(to), JSON.readTree(patched));
+
+	}
+
+}
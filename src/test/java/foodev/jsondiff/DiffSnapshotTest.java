@@ -0,0 +1,128 @@
+package foodev.jsondiff;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import junit.framework.Assert;
+import junit.framework.TestCase;
+
+import org.junit.Test;
+
+public class DiffSnapshotTest extends TestCase {
+
+	@Test
+	public void testSameAsDiff() {
+
+		for (int mode = 0; mode < 4; mode++) {
+			JsonDiff diff = new Jackson2Diff();
+			diff.setSkipIdenticalSubtrees(mode == 1);
+			diff.setFingerprint(mode == 2 ? Fingerprint.BITS_64 : Fingerprint.BITS_32);
+			diff.setHierarchical(mode == 3);
+
+			for (int i = 0; i < DiffRoundTripTest.PAIRS.length; i += 2) {
+				String from = DiffRoundTripTest.PAIRS[i].replace('\'', '"');
+				DiffSnapshot snapshot = diff.snapshot(from);
+				// every pair's target, so the snapshot is reused
+				for (int j = 1; j < DiffRoundTripTest.PAIRS.length; j += 2) {
+					String to = DiffRoundTripTest.PAIRS[j].replace('\'', '"');
+					Assert.assertEquals(mode + " " + from + " -> " + to, diff.diff(from, to), diff.diff(snapshot, to));
+				}
+			}
+		}
+
+	}
+
+	@Test
+	public void testSharedBetweenThreads() throws Exception {
+
+		final GsonDiff diff = new GsonDiff();
+		final DiffSnapshot snapshot = diff.snapshot("{\"a\":[{\"b\":1},{\"c\":[1,2,3]}],\"d\":{\"e\":\"f\"}}");
+
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			List<Future<String>> patches = new ArrayList<Future<String>>();
+			for (int i = 0; i < 200; i++) {
+				final String to = "{\"a\":[{\"b\":" + (i % 5) + "},{\"c\":[1," + i + ",3]}],\"d\":{\"e\":\"f\"}}";
+				patches.add(executor.submit(new Callable<String>() {
+
+					@Override
+					public String call() {
+						return diff.diff(snapshot, to);
+					}
+				}));
+			}
+			for (int i = 0; i < 200; i++) {
+				String to = "{\"a\":[{\"b\":" + (i % 5) + "},{\"c\":[1," + i + ",3]}],\"d\":{\"e\":\"f\"}}";
+				Assert.assertEquals(diff.diff(snapshot.getDocument().toString(), to), patches.get(i).get());
+			}
+		} finally {
+			executor.shutdown();
+		}
+
+	}
+
+	@Test
+	public void testSession() {
+
+		for (int mode = 0; mode < 3; mode++) {
+			JsonDiff diff = new GsonDiff();
+			diff.setSkipIdenticalSubtrees(mode == 1);
+			diff.setHierarchical(mode == 2);
+
+			String previous = DiffRoundTripTest.PAIRS[0].replace('\'', '"');
+			DiffSession session = diff.session(previous);
+			for (int i = 1; i < DiffRoundTripTest.PAIRS.length; i++) {
+				String version = DiffRoundTripTest.PAIRS[i].replace('\'', '"');
+				Assert.assertEquals(mode + " " + previous + " -> " + version, diff.diff(previous, version), session.next(version));
+				previous = version;
+			}
+		}
+
+	}
+
+	@Test
+	public void testRulesWithSkippedSubtrees() {
+
+		JsonDiff diff = new Jackson2Diff();
+		diff.setSkipIdenticalSubtrees(true);
+		diff.ignorePath("/a");
+		diff.ignorePath("/c/*/r");
+
+		String[] versions = { "{'a':{'x':1,'z':[1,2,3]},'b':{'y':[1,2]},'c':{'q':3}}", "{'a':{'x':2,'z':[1,2,3]},'b':{'y':[1,2]},'c':{'q':4}}",
+				"{'a':{'x':2,'z':[1,2]},'b':{'y':[1,2,3]},'c':{'q':4,'p':[{'r':1},{'r':2}]}}",
+				"{'a':{'x':3},'b':{'y':[1,2,3]},'c':{'q':5,'p':[{'r':3},{'r':2,'s':1}]}}" };
+
+		String from = versions[0].replace('\'', '"');
+		String to = versions[1].replace('\'', '"');
+		Assert.assertEquals("{\"~c\":[{\"q\":4}]}", diff.diff(from, to));
+		Assert.assertEquals(diff.diff(from, to), diff.diff(diff.snapshot(from), to));
+
+		String previous = from;
+		DiffSession session = diff.session(previous);
+		for (String v : versions) {
+			String version = v.replace('\'', '"');
+			Assert.assertEquals(previous + " -> " + version, diff.diff(previous, version), session.next(version));
+			Assert.assertEquals(previous + " -> " + version, diff.diff(previous, version), diff.diff(diff.snapshot(previous), version));
+			previous = version;
+		}
+
+	}
+
+	@Test
+	public void testWrongDiff() {
+
+		DiffSnapshot snapshot = new GsonDiff().snapshot("{}");
+		try {
+			new JacksonDiff().diff(snapshot, "{}");
+			fail();
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+
+	}
+
+}
@@ -0,0 +1,99 @@
+package foodev.jsondiff;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonPrimitive;
+
+import foodev.jsondiff.jsonwrap.JzonElement;
+import foodev.jsondiff.jsonwrap.gson.GsonWrapper;
+
+/**
+ * Compares the fingerprint modes on large generated documents: how many distinct leaves end up sharing a fingerprint,
+ * and how long a diff with a handful of edits takes.
+ * 
+ * <pre>
+ * java foodev.jsondiff.FingerprintBenchmark [records]
+ * </pre>
+ */
+public class FingerprintBenchmark {
+
+	public static void main(String[] args) {
+
+		int records = args.length > 0 ? Integer.parseInt(args[0]) : 200000;
+
+		JsonObject from = document(new Random(1), records);
+		JsonObject to = document(new Random(1), records);
+		Random edits = new Random(2);
+		JsonArray items = to.getAsJsonArray("items");
+		for (int i = 0; i < 20; i++) {
+			items.get(edits.nextInt(records)).getAsJsonObject().addProperty("value", "edited" + i);
+		}
+
+		for (Fingerprint fingerprint : Fingerprint.values()) {
+
+			GsonDiff diff = new GsonDiff();
+			diff.setFingerprint(fingerprint);
+
+			List<Leaf> leaves = new ArrayList<Leaf>();
+			diff.findLeaves(new Root(fingerprint), GsonWrapper.wrap(from), leaves, new HashMap<Long, ArrNode>());
+
+			// leaves are the same for the diff when they share path (ignoring array indexes) and value
+			Set<String> identities = new HashSet<String>();
+			Set<Long> fingerprints = new HashSet<Long>();
+			for (Leaf leaf : leaves) {
+				identities.add(identity(leaf));
+				fingerprints.add(leaf.fingerprint);
+			}
+			int collisions = identities.size() - fingerprints.size();
+
+			// warm up, then measure
+			diff.diff(from, to);
+			long start = System.nanoTime();
+			JsonObject patch = diff.diff(from, to);
+			long millis = (System.nanoTime() - start) / 1000000;
+
+			System.out.println(fingerprint + ": " + leaves.size() + " leaves, " + identities.size() + " distinct, " + collisions + " colliding ("
+					+ (100.0 * collisions / identities.size()) + "%), diff " + millis + " ms, patch " + patch.toString().length() + " chars");
+		}
+
+	}
+
+	static JsonObject document(Random rnd, int records) {
+		JsonObject doc = new JsonObject();
+		JsonArray items = new JsonArray();
+		for (int i = 0; i < records; i++) {
+			JsonObject item = new JsonObject();
+			item.addProperty("id", i);
+			item.addProperty("name", "name" + rnd.nextInt(records));
+			item.addProperty("value", rnd.nextLong());
+			JsonArray tags = new JsonArray();
+			tags.add(new JsonPrimitive("t" + rnd.nextInt(1000)));
+			item.add("tags", tags);
+			items.add(item);
+		}
+		doc.add("items", items);
+		return doc;
+	}
+
+	static String identity(Leaf leaf) {
+		StringBuilder path = new StringBuilder();
+		for (Node n = leaf.parent; n.parent != null; n = n.parent) {
+			path.insert(0, n instanceof ObjNode ? "/" + n : "/*");
+		}
+		JzonElement val = leaf.val;
+		if (val.isJsonObject()) {
+			return path + "{}";
+		} else if (val.isJsonArray()) {
+			return path + "[]";
+		}
+		return path + "=" + val;
+	}
+
+}
@@ -1,9 +1,17 @@
 package foodev.jsondiff;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import org.junit.Test;
 
+import com.google.gson.JsonElement;
+import com.google.gson.JsonParser;
+
 import junit.framework.TestCase;
 
+import foodev.jsondiff.jsonwrap.gson.GsonWrapper;
+
 public class GsonVisitorTest extends TestCase {
 
 	GsonDiff diff = new GsonDiff();
@@ -35,4 +43,44 @@ public class GsonVisitorTest extends TestCase {
 		assertTrue(s.equals("{}"));
 	}
 
+	@Test
+	public void testPatchedCopy() {
+		final List<String> seen = new ArrayList<String>();
+		diff.setVisitor(new Visitor<JsonElement>() {
+			@Override
+			public boolean shouldCreatePatch(JsonElement from, JsonElement to) {
+				seen.add(from + " " + to);
+				return true;
+			}
+		});
+		JsonParser parser = new JsonParser();
+		JsonElement from = parser.parse("{\"a\":{\"b\":{\"c\":1,\"d\":[1,2]}},\"e\":[{\"f\":1}]}");
+		JsonElement to = parser.parse("{\"a\":{\"b\":{\"c\":2,\"d\":[1,3]}},\"e\":[{\"f\":2}]}");
+		String original = from.toString();
+
+		diff.diff(from.getAsJsonObject(), to.getAsJsonObject());
+
+		// the visitor is given the patched subtree, the document itself is left alone
+		assertEquals(original, from.toString());
+		assertTrue(seen.contains("{\"c\":1,\"d\":[1,2]} {\"c\":2,\"d\":[1,3]}"));
+		assertTrue(seen.contains("[1,2] [1,3]"));
+		assertTrue(seen.contains("{\"f\":1} {\"f\":2}"));
+	}
+
+	@Test
+	public void testWrapperWithoutCopy() {
+		// a wrapper that can't copy elements itself has them copied through their string form
+		JsonDiff plain = new JsonDiff(ByteInputTest.plain(new GsonWrapper()));
+		final List<String> seen = new ArrayList<String>();
+		plain.setVisitor(new Visitor<JsonElement>() {
+			@Override
+			public boolean shouldCreatePatch(JsonElement from, JsonElement to) {
+				seen.add(from + " " + to);
+				return true;
+			}
+		});
+		plain.diff("{\"a\":{\"b\":{\"c\":1,\"d\":[1,2]}}}", "{\"a\":{\"b\":{\"c\":2,\"d\":[1,3]}}}");
+		assertTrue(seen.contains("{\"c\":1,\"d\":[1,2]} {\"c\":2,\"d\":[1,3]}"));
+	}
+
 }
@@ -0,0 +1,97 @@
+package foodev.jsondiff;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import junit.framework.Assert;
+import junit.framework.TestCase;
+
+import org.junit.Test;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+public class LeafReaderTest extends TestCase {
+
+	@Test
+	public void testSameAsDiff() throws Exception {
+
+		for (Jackson2Diff diff : diffs()) {
+			for (int i = 0; i < DiffRoundTripTest.PAIRS.length; i += 2) {
+				String from = DiffRoundTripTest.PAIRS[i].replace('\'', '"');
+				String to = DiffRoundTripTest.PAIRS[i + 1].replace('\'', '"');
+				Assert.assertEquals(from + " to " + to, diff.diff(from, to), diff.diff(new StringReader(from), new StringReader(to)));
+			}
+		}
+
+	}
+
+	@Test
+	public void testRandomDocuments() throws Exception {
+
+		for (Jackson2Diff diff : diffs()) {
+			Random random = new Random(11);
+			for (int n = 0; n < 200; n++) {
+				ObjectNode from = DiffRoundTripTest.randomObject(random, 3);
+				JsonNode to = DiffRoundTripTest.mutate(random, from.deepCopy(), 3);
+				if (!to.isObject()) {
+					continue;
+				}
+				Assert.assertEquals(diff.diff(from.toString(), to.toString()), diff.diff(new StringReader(from.toString()), new StringReader(to.toString())));
+			}
+		}
+
+	}
+
+	@Test
+	public void testTreesOnlyForPatch() throws Exception {
+
+		Jackson2Diff diff = new Jackson2Diff();
+		JsonFactory json = new JsonFactory();
+
+		LeafSequence fromLeaves = new LeafSequence();
+		new LeafReader(diff, json.createParser("{\"same\":{\"x\":[1,2]},\"a\":1}")).read(fromLeaves, "From");
+		List<Leaf> toLeaves = new ArrayList<Leaf>();
+		new LeafReader(diff, json.createParser("{\"same\":{\"x\":[1,2]},\"a\":{\"n\":[3]}}")).read(toLeaves, "To");
+
+		Assert.assertEquals("{\"~\":[{\"a\":{\"n\":[3]}}]}", diff.diff(fromLeaves, toLeaves).toString());
+		for (Leaf leaf : toLeaves) {
+			if (leaf.val instanceof LazyContainer) {
+				// the value added and everything in it
+				boolean inPatch = leaf.parent.toString().equals("a") || leaf.parent.toString().equals("n");
+				Assert.assertEquals(leaf.parent.toString(), inPatch, ((LazyContainer) leaf.val).isBuilt());
+			}
+		}
+
+	}
+
+	@Test
+	public void testNotAnObject() throws Exception {
+
+		try {
+			new Jackson2Diff().diff(new StringReader("[1]"), new StringReader("{}"));
+			fail();
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+
+	}
+
+	static List<Jackson2Diff> diffs() {
+		List<Jackson2Diff> diffs = new ArrayList<Jackson2Diff>();
+		diffs.add(new Jackson2Diff());
+		Jackson2Diff wide = new Jackson2Diff();
+		wide.setFingerprint(Fingerprint.BITS_64);
+		wide.ignorePath("/k1");
+		wide.ignorePath("/a/*/c");
+		diffs.add(wide);
+		Jackson2Diff hierarchical = new Jackson2Diff();
+		hierarchical.setHierarchical(true);
+		diffs.add(hierarchical);
+		return diffs;
+	}
+
+}
@@ -0,0 +1,72 @@
+package foodev.jsondiff;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonPrimitive;
+
+import foodev.jsondiff.jsonwrap.gson.GsonWrapper;
+
+/**
+ * Diffs an array against a copy with a block of elements inserted in the middle, then compares the leaf sequence with
+ * an <code>ArrayList</code> on the same pattern of inserts and position lookups the diff performs.
+ * 
+ * <pre>
+ * java foodev.jsondiff.LeafSequenceBenchmark [inserts]
+ * </pre>
+ */
+public class LeafSequenceBenchmark {
+
+	public static void main(String[] args) {
+
+		int inserts = args.length > 0 ? Integer.parseInt(args[0]) : 100000;
+
+		JsonArray fromItems = new JsonArray();
+		JsonArray toItems = new JsonArray();
+		for (int i = 0; i < 1000; i++) {
+			fromItems.add(new JsonPrimitive("old" + i));
+			toItems.add(new JsonPrimitive("old" + i));
+			if (i == 500) {
+				for (int j = 0; j < inserts; j++) {
+					toItems.add(new JsonPrimitive("new" + j));
+				}
+			}
+		}
+		JsonObject from = new JsonObject();
+		from.add("items", fromItems);
+		JsonObject to = new JsonObject();
+		to.add("items", toItems);
+
+		GsonDiff diff = new GsonDiff();
+		diff.diff(from, to);
+		long start = System.nanoTime();
+		JsonObject patch = diff.diff(from, to);
+		System.out.println("diff with " + inserts + " inserts: " + (System.nanoTime() - start) / 1000000 + " ms, patch "
+				+ patch.toString().length() + " chars");
+
+		System.out.println("LeafSequence: " + run(new LeafSequence(), inserts) + " ms");
+		System.out.println("ArrayList:    " + run(new ArrayList<Leaf>(), inserts) + " ms");
+
+	}
+
+	static long run(List<Leaf> leaves, int inserts) {
+
+		Random rnd = new Random(1);
+		Root root = new Root(Fingerprint.BITS_32);
+		long start = System.nanoTime();
+		long sum = 0;
+		for (int i = 0; i < inserts; i++) {
+			Leaf leaf = new Leaf(new ArrNode(root, i), GsonWrapper.wrap(new JsonPrimitive(i)));
+			leaves.add(rnd.nextInt(leaves.size() + 1), leaf);
+			sum += leaves instanceof LeafSequence ? ((LeafSequence) leaves).position(leaf) : Leaf.exactIndex(leaves, leaf);
+		}
+		if (sum < 0) {
+			throw new IllegalStateException();
+		}
+		return (System.nanoTime() - start) / 1000000;
+	}
+
+}
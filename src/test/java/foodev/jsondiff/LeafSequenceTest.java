@@ -0,0 +1,45 @@
+package foodev.jsondiff;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import junit.framework.Assert;
+import junit.framework.TestCase;
+
+import org.junit.Test;
+
+import com.google.gson.JsonPrimitive;
+
+import foodev.jsondiff.jsonwrap.gson.GsonWrapper;
+
+public class LeafSequenceTest extends TestCase {
+
+	@Test
+	public void testMatchesArrayList() {
+
+		Root root = new Root(Fingerprint.BITS_32);
+		LeafSequence sequence = new LeafSequence();
+		List<Leaf> expected = new ArrayList<Leaf>();
+
+		Random rnd = new Random(3);
+		for (int i = 0; i < 2000; i++) {
+			// equal values, so only identity tells the leaves apart
+			Leaf leaf = new Leaf(new ArrNode(root, 0), GsonWrapper.wrap(new JsonPrimitive(i % 3)));
+			int index = rnd.nextInt(expected.size() + 1);
+			sequence.add(index, leaf);
+			expected.add(index, leaf);
+
+			Leaf probe = expected.get(rnd.nextInt(expected.size()));
+			Assert.assertEquals(Leaf.exactIndex(expected, probe), sequence.position(probe));
+		}
+
+		Assert.assertEquals(expected.size(), sequence.size());
+		for (int i = 0; i < expected.size(); i++) {
+			Assert.assertSame(expected.get(i), sequence.get(i));
+		}
+		Assert.assertEquals(-1, sequence.position(new Leaf(new ArrNode(root, 0), GsonWrapper.wrap(new JsonPrimitive(0)))));
+
+	}
+
+}
@@ -0,0 +1,139 @@
+package foodev.jsondiff;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import junit.framework.Assert;
+import junit.framework.TestCase;
+
+import org.junit.Test;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+public class MappedLeafReaderTest extends TestCase {
+
+	private final static ObjectMapper JSON = new ObjectMapper();
+
+	@Test
+	public void testPatchesApply() throws Exception {
+
+		for (JsonDiff diff : diffs()) {
+			for (int i = 0; i < DiffRoundTripTest.PAIRS.length; i += 2) {
+				String from = DiffRoundTripTest.PAIRS[i].replace('\'', '"');
+				String to = DiffRoundTripTest.PAIRS[i + 1].replace('\'', '"');
+				assertPatchApplies(diff, from, to);
+			}
+		}
+
+	}
+
+	@Test
+	public void testRandomDocuments() throws Exception {
+
+		for (JsonDiff diff : diffs()) {
+			Random random = new Random(13);
+			for (int n = 0; n < 200; n++) {
+				ObjectNode from = DiffRoundTripTest.randomObject(random, 3);
+				JsonNode to = DiffRoundTripTest.mutate(random, from.deepCopy(), 3);
+				if (!to.isObject()) {
+					continue;
+				}
+				assertPatchApplies(diff, from.toString(), to.toString());
+			}
+		}
+
+	}
+
+	@Test
+	public void testLayoutIgnored() throws Exception {
+
+		// whitespace and escapes in keys don't change the leaves
+		Jackson2Diff diff = new Jackson2Diff();
+		String compact = "{\"a\":[1,{\"b\":\"x\"}],\"\\u00e5\\n\":true,\"c\":null}";
+		String spaced = " {\n\t\"a\" : [ 1 , { \"b\" : \"x\" } ] ,\r\n \"\u00e5\\n\": true, \"c\":null }\n";
+		Assert.assertEquals("{}", mapped(diff, compact, spaced));
+		Assert.assertEquals(diff.diff(compact, "{\"a\":[1,{\"b\":\"y\"}],\"\\u00e5\\n\":true,\"c\":null}"), mapped(diff, spaced, "{\"a\":[1,{\"b\":\"y\"}],\"\u00e5\\n\":true,\"c\":null}"));
+
+	}
+
+	@Test
+	public void testNotAnObject() throws Exception {
+
+		String[] invalid = { "[1]", "", "{\"a\":1,}", "{\"a\" 1}", "{\"a\":1} 2", "{\"a\":[1 2]}", "{\"a\":x}", "{\"a\":\"b}" };
+		for (String from : invalid) {
+			try {
+				mapped(new Jackson2Diff(), from, "{}");
+				fail(from);
+			} catch (IllegalArgumentException e) {
+				// expected
+			}
+		}
+
+	}
+
+	@Test
+	public void testBytes() throws Exception {
+
+		JsonBytes json = new JsonBytes(ByteBuffer.wrap(" \"\\\"\\u0041\u00e5\u2603\" [1,\"]\",{\"x\":[]}] -1.5e3,".getBytes("UTF-8")));
+		Assert.assertEquals(1, json.skipSpace(0));
+		long end = json.stringEnd(1);
+		Assert.assertEquals("\"A\u00e5\u2603", json.string(1, end));
+		long start = json.skipSpace(end);
+		Assert.assertEquals("[1,\"]\",{\"x\":[]}]", json.text(start, json.valueEnd(start)));
+		start = json.skipSpace(json.valueEnd(start));
+		Assert.assertEquals("-1.5e3", json.text(start, json.valueEnd(start)));
+		Assert.assertTrue(json.hash(0, 9) != json.hash(0, 10));
+		Assert.assertEquals(json.hash(1, 3), new JsonBytes(ByteBuffer.wrap("x\"\\".getBytes("UTF-8"))).hash(1, 3));
+
+	}
+
+	static void assertPatchApplies(JsonDiff diff, String from, String to) throws Exception {
+		String expected;
+		try {
+			expected = diff.apply(from, diff.diff(from, to));
+		} catch (RuntimeException e) {
+			// a patch the flat diff got wrong
+			return;
+		}
+		String patch = mapped(diff, from, to);
+		Assert.assertEquals(from + " to " + to + " with " + patch, JSON.readTree(expected), JSON.readTree(diff.apply(from, patch)));
+	}
+
+	static String mapped(JsonDiff diff, String from, String to) throws Exception {
+		Path fromFile = ByteInputTest.file(from);
+		Path toFile = ByteInputTest.file(to);
+		Path patchFile = File.createTempFile("jsondiff", ".json").toPath();
+		try {
+			diff.diff(fromFile, toFile, patchFile);
+			return new String(Files.readAllBytes(patchFile), "UTF-8");
+		} finally {
+			Files.delete(fromFile);
+			Files.delete(toFile);
+			Files.delete(patchFile);
+		}
+	}
+
+	static List<JsonDiff> diffs() {
+		List<JsonDiff> diffs = new ArrayList<JsonDiff>();
+		diffs.add(new GsonDiff());
+		diffs.add(new JacksonDiff());
+		diffs.add(new Jackson2Diff());
+		Jackson2Diff wide = new Jackson2Diff();
+		wide.setFingerprint(Fingerprint.BITS_64);
+		wide.ignorePath("/k1");
+		wide.ignorePath("/a/*/c");
+		diffs.add(wide);
+		Jackson2Diff hierarchical = new Jackson2Diff();
+		hierarchical.setHierarchical(true);
+		diffs.add(hierarchical);
+		return diffs;
+	}
+
+}
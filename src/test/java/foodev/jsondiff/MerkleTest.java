@@ -0,0 +1,50 @@
+package foodev.jsondiff;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+import junit.framework.Assert;
+import junit.framework.TestCase;
+
+import org.junit.Test;
+
+import foodev.jsondiff.jsonwrap.JzonElement;
+import foodev.jsondiff.jsonwrap.gson.GsonWrapper;
+
+public class MerkleTest extends TestCase {
+
+	GsonWrapper wrapper = new GsonWrapper();
+
+	@Test
+	public void testIdenticalSubtreesCollapse() {
+
+		JzonElement from = wrapper.parse("{a:{b:[1,2,3],c:{d:1}},e:{f:1},g:[{h:1},{h:2}]}");
+		JzonElement to = wrapper.parse("{a:{b:[1,2,3],c:{d:1}},e:{f:2},g:[{h:2},{h:1}]}");
+
+		Merkle fromMerkle = Merkle.of(from, Fingerprint.BITS_32);
+		Merkle toMerkle = Merkle.of(to, Fingerprint.BITS_32);
+		Merkle.pair(fromMerkle, toMerkle);
+
+		List<Leaf> leaves = new ArrayList<Leaf>();
+		new GsonDiff().findLeaves(new Root(Fingerprint.BITS_32), from, leaves, new HashMap<Long, ArrNode>(), fromMerkle);
+
+		// root, a (opaque), e, f, g, {h:1} (opaque), {h:2} (opaque)
+		Assert.assertEquals(7, leaves.size());
+		Assert.assertEquals(fromMerkle.count, fromMerkle.cursor);
+
+	}
+
+	@Test
+	public void testContentHashIgnoresMemberOrder() {
+
+		Merkle m1 = Merkle.of(wrapper.parse("{a:{x:1,y:[1,2]}}"), Fingerprint.BITS_64);
+		Merkle m2 = Merkle.of(wrapper.parse("{a:{y:[1,2],x:1}}"), Fingerprint.BITS_64);
+		Merkle m3 = Merkle.of(wrapper.parse("{a:{y:[2,1],x:1}}"), Fingerprint.BITS_64);
+
+		Assert.assertEquals(m1.content[0], m2.content[0]);
+		Assert.assertFalse(m1.content[0] == m3.content[0]);
+
+	}
+
+}
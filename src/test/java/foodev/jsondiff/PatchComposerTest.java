@@ -0,0 +1,106 @@
+package foodev.jsondiff;
+
+import java.util.Random;
+
+import junit.framework.Assert;
+import junit.framework.TestCase;
+
+import org.junit.Test;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+public class PatchComposerTest extends TestCase {
+
+	@Test
+	public void testShiftedIndexes() {
+
+		JsonDiff diff = new GsonDiff();
+		String composed = diff.compose("{\"~a\":[{\"+0\":1}]}", "{\"~a\":[{\"-2\":0}]}");
+		Assert.assertEquals("{\"~a\":[{\"+0\":1},{\"-2\":0}]}", composed);
+		Assert.assertEquals("{\"a\":[1,5,7,8]}", diff.apply("{\"a\":[5,6,7,8]}", composed));
+
+		// the element changed in place was moved by the insert, the patch addresses it where it was
+		composed = diff.compose("{\"~a\":[{\"+0\":1}]}", "{\"a\":{\"~2\":[{\"x\":2}]}}");
+		Assert.assertEquals("{\"a\":{\"~1\":[{\"x\":2}]},\"~a\":[{\"+0\":1}]}", composed);
+		Assert.assertEquals("{\"a\":[1,{\"x\":0},{\"x\":2}]}", diff.apply("{\"a\":[{\"x\":0},{\"x\":1}]}", composed));
+
+	}
+
+	@Test
+	public void testAddedValuesArePatched() {
+
+		JsonDiff diff = new GsonDiff();
+		Assert.assertEquals("{\"~a\":[{\"+1\":{\"x\":1,\"y\":2}}]}", diff.compose("{\"~a\":[{\"+1\":{\"x\":1}}]}", "{\"a\":{\"~1\":[{\"y\":2}]}}"));
+		Assert.assertEquals("{}", diff.compose("{\"~a\":[{\"+1\":{\"x\":1}}]}", "{\"~a\":[{\"-1\":0}]}"));
+		Assert.assertEquals("{\"~\":[{\"-b\":0}]}", diff.compose("{\"b\":{\"~\":[{\"c\":1}]}}", "{\"~\":[{\"-b\":0}]}"));
+		Assert.assertEquals("{}", diff.compose());
+
+		// the patches themselves are left as they are
+		JsonParser parser = new JsonParser();
+		JsonObject first = parser.parse("{\"~\":[{\"+a\":{}}]}").getAsJsonObject();
+		JsonObject second = parser.parse("{\"a\":{\"~\":[{\"b\":{\"c\":1}}]}}").getAsJsonObject();
+		JsonObject third = parser.parse("{\"a\":{\"b\":{\"~\":[{\"d\":2}]}}}").getAsJsonObject();
+		Assert.assertEquals("{\"~\":[{\"a\":{\"b\":{\"c\":1,\"d\":2}}}]}", diff.compose(first, second, third).toString());
+		Assert.assertEquals("{\"~\":[{\"+a\":{}}]}", first.toString());
+		Assert.assertEquals("{\"a\":{\"~\":[{\"b\":{\"c\":1}}]}}", second.toString());
+
+	}
+
+	@Test
+	public void testSameAsSequentialApply() {
+
+		for (int mode = 0; mode < 2; mode++) {
+			JsonDiff diff = new Jackson2Diff();
+			diff.setHierarchical(mode == 1);
+			Random random = new Random(5);
+			chains: for (int n = 0; n < 300; n++) {
+				ObjectNode from = DiffRoundTripTest.randomObject(random, 3);
+				Object[] patches = new Object[1 + random.nextInt(4)];
+				JsonNode sequential = from.deepCopy();
+				for (int i = 0; i < patches.length; i++) {
+					JsonNode to = DiffRoundTripTest.mutate(random, sequential.deepCopy(), 3);
+					if (!to.isObject()) {
+						to = sequential.deepCopy();
+					}
+					patches[i] = diff.diff(sequential, to);
+					try {
+						// apply shares values with the patch, keep it as it was diffed
+						diff.apply(sequential, ((JsonNode) patches[i]).deepCopy());
+					} catch (IllegalArgumentException e) {
+						// a patch the flat diff got wrong, nothing to compose
+						Assert.assertEquals(0, mode);
+						continue chains;
+					}
+					if (mode == 1) {
+						Assert.assertEquals(to, sequential);
+					}
+				}
+				Object composed = diff.compose(patches);
+				JsonNode patched = from.deepCopy();
+				diff.apply(patched, composed);
+				Assert.assertEquals(from + " with " + composed, sequential, patched);
+			}
+		}
+
+	}
+
+	@Test
+	public void testNotApplicable() {
+
+		JsonDiff diff = new GsonDiff();
+		String[] invalid = { "[]", "{\"~\":{}}", "{\"~a\":[{}]}", "{\"a\":[1]}" };
+		for (String patch : invalid) {
+			try {
+				diff.compose("{}", patch);
+				fail(patch);
+			} catch (IllegalArgumentException e) {
+				// expected
+			}
+		}
+
+	}
+
+}
@@ -0,0 +1,104 @@
+package foodev.jsondiff;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+import junit.framework.Assert;
+import junit.framework.TestCase;
+
+import org.junit.Test;
+
+public class PathRulesTest extends TestCase {
+
+	static final String FROM = "{\"id\":1,\"items\":[{\"etag\":\"a\",\"v\":1},{\"etag\":\"b\",\"v\":2}],\"meta\":{\"updatedAt\":1,\"version\":1},\"same\":{\"x\":[1]}}";
+	static final String TO = "{\"id\":1,\"items\":[{\"etag\":\"c\",\"v\":1},{\"etag\":\"d\",\"v\":3}],\"meta\":{\"updatedAt\":2,\"version\":2},\"same\":{\"x\":[1]}}";
+
+	@Test
+	public void testIgnored() {
+		for (JsonDiff diff : diffs()) {
+			diff.ignorePath("/meta/updatedAt");
+			diff.ignorePath("/items/*/etag");
+			String d = diff.diff(FROM, TO);
+			Assert.assertFalse(d, d.contains("etag") || d.contains("updatedAt"));
+			Assert.assertEquals("{\"id\":1,\"items\":[{\"etag\":\"a\",\"v\":1},{\"etag\":\"b\",\"v\":3}],\"meta\":{\"updatedAt\":1,\"version\":2},\"same\":{\"x\":[1]}}",
+					diff.apply(FROM, d));
+		}
+	}
+
+	@Test
+	public void testIncludedBelowIgnored() {
+		for (JsonDiff diff : diffs()) {
+			diff.ignorePath("/meta");
+			diff.ignorePath("/items");
+			diff.includePath("/meta/version");
+			String d = diff.diff(FROM, TO);
+			Assert.assertEquals("{\"id\":1,\"items\":[{\"etag\":\"a\",\"v\":1},{\"etag\":\"b\",\"v\":2}],\"meta\":{\"updatedAt\":1,\"version\":2},\"same\":{\"x\":[1]}}",
+					diff.apply(FROM, d));
+		}
+	}
+
+	@Test
+	public void testAddedAndRemovedMembers() {
+		for (JsonDiff diff : diffs()) {
+			diff.ignorePath("/a");
+			diff.ignorePath("/b");
+			Assert.assertEquals("{\"~\":[{\"c\":2}]}", diff.diff("{\"a\":1,\"c\":1}", "{\"b\":1,\"c\":2}"));
+		}
+	}
+
+	@Test
+	public void testIgnoredLeavesAreNotCreated() {
+		JsonDiff diff = new GsonDiff();
+		List<Leaf> all = new ArrayList<Leaf>();
+		diff.findLeaves(new Root(diff.getFingerprint()), diff.factory.parse(FROM), all, new HashMap<Long, ArrNode>());
+
+		diff.ignorePath("/items/*/etag");
+		diff.ignorePath("/meta");
+		List<Leaf> pruned = new ArrayList<Leaf>();
+		diff.findLeaves(new Root(diff.getFingerprint()), diff.factory.parse(FROM), pruned, new HashMap<Long, ArrNode>());
+
+		Assert.assertEquals(all.size() - 5, pruned.size());
+	}
+
+	@Test
+	public void testSnapshot() {
+		JsonDiff diff = new GsonDiff();
+		diff.ignorePath("/meta/updatedAt");
+		DiffSnapshot snapshot = diff.snapshot(FROM);
+		String d = diff.diff(snapshot, TO);
+		Assert.assertFalse(d, d.contains("updatedAt"));
+		Assert.assertEquals(TO.replace("\"updatedAt\":2", "\"updatedAt\":1"), diff.apply(FROM, d));
+
+		diff.ignorePath("/items/*/etag");
+		try {
+			diff.diff(snapshot, TO);
+			fail("rules changed since the snapshot");
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+	}
+
+	@Test
+	public void testNotAPointer() {
+		try {
+			new GsonDiff().ignorePath("meta");
+			fail();
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+	}
+
+	static List<JsonDiff> diffs() {
+		List<JsonDiff> diffs = new ArrayList<JsonDiff>();
+		diffs.add(new GsonDiff());
+		JsonDiff skipping = new Jackson2Diff();
+		skipping.setSkipIdenticalSubtrees(true);
+		diffs.add(skipping);
+		JsonDiff hierarchical = new JacksonDiff();
+		hierarchical.setHierarchical(true);
+		diffs.add(hierarchical);
+		return diffs;
+	}
+
+}
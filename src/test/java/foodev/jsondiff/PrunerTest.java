@@ -0,0 +1,111 @@
+package foodev.jsondiff;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import junit.framework.Assert;
+import junit.framework.TestCase;
+
+import org.junit.Test;
+
+import com.google.gson.JsonElement;
+
+public class PrunerTest extends TestCase {
+
+	static final String FROM = "{\"audit\":[{\"at\":1}],\"blob\":{\"x\":[1,2],\"y\":1},\"id\":1,\"items\":[{\"a\":1},{\"b\":1}],\"old\":{\"v\":1}}";
+	static final String TO = "{\"audit\":[{\"at\":1},{\"at\":2}],\"blob\":{\"x\":[1,3],\"y\":1},\"id\":2,\"items\":[{\"a\":2},{\"b\":2}]}";
+
+	static class Recording implements Pruner<JsonElement> {
+
+		final List<String> paths = new ArrayList<String>();
+
+		@Override
+		public Decision prune(String path, JsonElement from, JsonElement to) {
+			synchronized (paths) {
+				paths.add(path);
+			}
+			if (path.equals("/audit") || path.equals("/old")) {
+				return Decision.SKIP;
+			} else if (path.equals("/blob") || path.equals("/items/1")) {
+				return Decision.OPAQUE;
+			}
+			return null;
+		}
+	}
+
+	@Test
+	public void testFlattened() {
+		assertPruned(new GsonDiff());
+	}
+
+	@Test
+	public void testHierarchical() {
+		JsonDiff diff = new GsonDiff();
+		diff.setHierarchical(true);
+		assertPruned(diff);
+	}
+
+	@Test
+	public void testExecutor() {
+		ExecutorService executor = Executors.newFixedThreadPool(2);
+		try {
+			JsonDiff diff = new GsonDiff();
+			diff.setExecutor(executor);
+			assertPruned(diff);
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	@Test
+	public void testSnapshot() {
+		JsonDiff diff = new GsonDiff();
+		DiffSnapshot snapshot = diff.snapshot(FROM);
+		diff.setPruner(new Recording());
+		String d = diff.diff(snapshot, TO);
+		Assert.assertEquals(pruned(), diff.apply(FROM, d));
+	}
+
+	@Test
+	public void testSkippedIsNotFlattened() {
+		JsonDiff diff = new GsonDiff();
+		Recording pruner = new Recording();
+		diff.setPruner(pruner);
+		diff.diff(FROM, TO);
+
+		Assert.assertTrue(pruner.paths.contains("/items/0/a"));
+		for (String path : pruner.paths) {
+			Assert.assertFalse(path, path.startsWith("/audit/") || path.startsWith("/blob/") || path.startsWith("/items/1/"));
+		}
+	}
+
+	@Test
+	public void testOpaqueIsReplacedWhole() {
+		JsonDiff diff = new GsonDiff();
+		diff.setHierarchical(true);
+		diff.setPruner(new Recording());
+
+		String d = diff.diff("{\"blob\":{\"x\":[1,2],\"y\":1}}", "{\"blob\":{\"x\":[1,3],\"y\":1}}");
+		Assert.assertEquals("{\"~\":[{\"blob\":{\"x\":[1,3],\"y\":1}}]}", d);
+
+		d = diff.diff("{\"blob\":{\"x\":[1,2],\"y\":1}}", "{\"blob\":{\"y\":1,\"x\":[1,2]}}");
+		Assert.assertEquals("{}", d);
+	}
+
+	void assertPruned(JsonDiff diff) {
+		diff.setPruner(new Recording());
+		String d = diff.diff(FROM, TO);
+		Assert.assertFalse(d, d.contains("audit") || d.contains("old"));
+		Assert.assertEquals(pruned(), diff.apply(FROM, d));
+	}
+
+	/**
+	 * @return <code>TO</code> with the skipped members as in <code>FROM</code>
+	 */
+	static String pruned() {
+		return "{\"audit\":[{\"at\":1}],\"blob\":{\"x\":[1,3],\"y\":1},\"id\":2,\"items\":[{\"a\":2},{\"b\":2}],\"old\":{\"v\":1}}";
+	}
+
+}
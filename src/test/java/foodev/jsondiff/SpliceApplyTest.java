@@ -0,0 +1,144 @@
+package foodev.jsondiff;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import junit.framework.Assert;
+import junit.framework.TestCase;
+
+import org.junit.Test;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+public class SpliceApplyTest extends TestCase {
+
+	@Test
+	public void testSameAsApply() throws Exception {
+
+		for (JsonDiff diff : diffs()) {
+			for (int mode = 0; mode < 2; mode++) {
+				diff.setHierarchical(mode == 1);
+				for (int i = 0; i < DiffRoundTripTest.PAIRS.length; i += 2) {
+					String from = DiffRoundTripTest.PAIRS[i].replace('\'', '"');
+					String to = DiffRoundTripTest.PAIRS[i + 1].replace('\'', '"');
+					assertSameAsApply(diff, from, diff.diff(from, to));
+				}
+			}
+		}
+
+	}
+
+	@Test
+	public void testRandomDocuments() throws Exception {
+
+		for (JsonDiff diff : diffs()) {
+			for (int mode = 0; mode < 2; mode++) {
+				diff.setHierarchical(mode == 1);
+				Random random = new Random(17);
+				for (int n = 0; n < 200; n++) {
+					ObjectNode from = DiffRoundTripTest.randomObject(random, 3);
+					JsonNode to = DiffRoundTripTest.mutate(random, from.deepCopy(), 3);
+					if (!to.isObject()) {
+						continue;
+					}
+					assertSameAsApply(diff, from.toString(), diff.diff(from.toString(), to.toString()));
+
+					// composed patches set and insert values with instructions of their own
+					JsonNode next = DiffRoundTripTest.mutate(random, to.deepCopy(), 3);
+					if (next.isObject()) {
+						String composed = diff.compose(diff.diff(from.toString(), to.toString()), diff.diff(to.toString(), next.toString()));
+						assertSameAsApply(diff, from.toString(), composed);
+					}
+				}
+			}
+		}
+
+	}
+
+	@Test
+	public void testLayoutKept() throws Exception {
+
+		Jackson2Diff diff = new Jackson2Diff();
+		String doc = "\n{ \"a\" : [ 1, 2 , {\"b\": 1} ],\n  \"c\" : \"\\u00e5\",  \"d\" : { \"e\" : 1 } }\n";
+		Assert.assertEquals(doc, spliced(diff, doc, "{}"));
+		Assert.assertEquals("\n{ \"a\" : [ 1,3, {\"b\": 1} ],\n  \"c\" : \"\\u00e5\",  \"d\" : { \"e\" : 1,\"f\":2}}\n",
+				spliced(diff, doc, "{\"~a\":[{\"-1\":0},{\"+1\":3}],\"d\":{\"~\":[{\"+f\":2}]}}"));
+		Assert.assertEquals(" { } ", spliced(diff, " { } ", "{}"));
+		// a member moved to the end takes the whole object
+		Assert.assertEquals("\n{\"c\":\"\u00e5\",\"d\":{\"e\":1},\"a\":2}\n", spliced(diff, doc, "{\"~\":[{\"-a\":0},{\"+a\":2}]}"));
+
+	}
+
+	@Test
+	public void testFile() throws Exception {
+
+		// long runs copied from the file as they are
+		StringBuilder doc = new StringBuilder("{\"a\":1");
+		for (int i = 0; i < 2000; i++) {
+			doc.append(", \"k").append(i).append("\" : [").append(i).append(", \"x\"]");
+		}
+		doc.append(",\"b\":[1,2]}");
+		String patch = "{\"~b\":[{\"+2\":3}],\"~\":[{\"a\":2}],\"~k1000\":[{\"1\":\"y\"}]}";
+
+		Jackson2Diff diff = new Jackson2Diff();
+		Path orig = ByteInputTest.file(doc.toString());
+		Path out = File.createTempFile("jsondiff", ".json").toPath();
+		try {
+			diff.splice(orig, patch, out);
+			String expected = doc.toString().replace("\"a\":1", "\"a\":2").replace("[1000, \"x\"]", "[1000,\"y\"]").replace("[1,2]", "[1,2,3]");
+			Assert.assertEquals(expected, new String(Files.readAllBytes(out), "UTF-8"));
+			Assert.assertEquals(expected, spliced(diff, doc.toString(), patch));
+		} finally {
+			Files.delete(orig);
+			Files.delete(out);
+		}
+
+	}
+
+	@Test
+	public void testNotApplicable() throws Exception {
+
+		Jackson2Diff diff = new Jackson2Diff();
+		String[][] invalid = { { "{\"a\":[1]}", "{\"~a\":[{\"-3\":0}]}" }, { "{\"a\":[1]}", "{\"a\":{\"~2\":[{\"b\":1}]}}" }, { "{\"a\":1}", "{\"a\":{\"b\":1}}" },
+				{ "{\"a\":1} x", "{}" }, { " ", "{}" }, { "{\"a\":[1 2]}", "{\"~a\":[{\"+0\":0}]}" } };
+		for (String[] pair : invalid) {
+			try {
+				spliced(diff, pair[0], pair[1]);
+				fail(pair[0] + " with " + pair[1]);
+			} catch (IllegalArgumentException e) {
+				// expected
+			} catch (ClassCastException e) {
+				// as apply
+			}
+		}
+
+	}
+
+	static void assertSameAsApply(JsonDiff diff, String from, String patch) throws Exception {
+		String expected;
+		try {
+			expected = diff.apply(from, patch);
+		} catch (RuntimeException e) {
+			// a patch the flat diff got wrong
+			return;
+		}
+		Assert.assertEquals(from + " with " + patch, expected, spliced(diff, from, patch));
+	}
+
+	static String spliced(JsonDiff diff, String doc, String patch) throws Exception {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		diff.splice(doc.getBytes("UTF-8"), patch, out);
+		return out.toString("UTF-8");
+	}
+
+	static List<JsonDiff> diffs() {
+		return Arrays.<JsonDiff> asList(new GsonDiff(), new JacksonDiff(), new Jackson2Diff());
+	}
+
+}
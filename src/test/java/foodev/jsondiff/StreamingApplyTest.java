@@ -0,0 +1,103 @@
+package foodev.jsondiff;
+
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.Random;
+
+import junit.framework.Assert;
+import junit.framework.TestCase;
+
+import org.junit.Test;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+public class StreamingApplyTest extends TestCase {
+
+	@Test
+	public void testSameAsApply() throws Exception {
+
+		for (int mode = 0; mode < 2; mode++) {
+			Jackson2Diff diff = new Jackson2Diff();
+			diff.setHierarchical(mode == 1);
+			for (int i = 0; i < DiffRoundTripTest.PAIRS.length; i += 2) {
+				String from = DiffRoundTripTest.PAIRS[i].replace('\'', '"');
+				String to = DiffRoundTripTest.PAIRS[i + 1].replace('\'', '"');
+				assertSameAsApply(diff, from, diff.diff(from, to));
+			}
+		}
+
+	}
+
+	@Test
+	public void testRandomDocuments() throws Exception {
+
+		for (int mode = 0; mode < 2; mode++) {
+			Jackson2Diff diff = new Jackson2Diff();
+			diff.setHierarchical(mode == 1);
+			Random random = new Random(7);
+			for (int n = 0; n < 300; n++) {
+				ObjectNode from = DiffRoundTripTest.randomObject(random, 3);
+				JsonNode to = DiffRoundTripTest.mutate(random, from.deepCopy(), 3);
+				if (!to.isObject()) {
+					continue;
+				}
+				assertSameAsApply(diff, from.toString(), diff.diff(from.toString(), to.toString()));
+
+				// composed patches set and insert values with instructions of their own
+				JsonNode next = DiffRoundTripTest.mutate(random, to.deepCopy(), 3);
+				if (next.isObject()) {
+					String composed = diff.compose(diff.diff(from.toString(), to.toString()), diff.diff(to.toString(), next.toString()));
+					assertSameAsApply(diff, from.toString(), composed);
+				}
+			}
+		}
+
+	}
+
+	@Test
+	public void testUntouchedValuesAreCopied() throws Exception {
+
+		// a tree would keep only the last of the duplicate members
+		Jackson2Diff diff = new Jackson2Diff();
+		Assert.assertEquals("{\"a\":[{\"x\":1,\"x\":2},{\"b\":1,\"c\":2}],\"d\":[\"x\",3]}",
+				streamed(diff, "{\"a\":[{\"x\":1,\"x\":2},{\"b\":1,\"c\":1}],\"d\":[3]}", "{\"a\":{\"~1\":[{\"c\":2}]},\"~d\":[{\"+0\":\"x\"}]}"));
+
+	}
+
+	@Test
+	public void testNotApplicable() throws Exception {
+
+		Jackson2Diff diff = new Jackson2Diff();
+		String[][] invalid = { { "{\"a\":[1]}", "{\"~a\":[{\"-3\":0}]}" }, { "{\"a\":[1]}", "{\"a\":{\"~2\":[{\"b\":1}]}}" }, { "{\"a\":1}", "{\"a\":{\"b\":1}}" } };
+		for (String[] pair : invalid) {
+			try {
+				streamed(diff, pair[0], pair[1]);
+				fail(pair[1]);
+			} catch (IllegalArgumentException e) {
+				// expected
+			} catch (ClassCastException e) {
+				// as apply
+			}
+		}
+
+	}
+
+	static void assertSameAsApply(Jackson2Diff diff, String from, String patch) throws Exception {
+		String expected;
+		try {
+			expected = diff.apply(from, patch);
+		} catch (RuntimeException e) {
+			// a patch the flat diff got wrong
+			return;
+		}
+		Assert.assertEquals(from + " with " + patch, expected, streamed(diff, from, patch));
+	}
+
+	static String streamed(Jackson2Diff diff, String from, String patch) throws Exception {
+		StringWriter out = new StringWriter();
+		diff.apply(new StringReader(from), patch, out);
+		return out.toString();
+	}
+
+}
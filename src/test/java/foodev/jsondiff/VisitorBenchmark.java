@@ -0,0 +1,83 @@
+package foodev.jsondiff;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonPrimitive;
+
+import foodev.jsondiff.jsonwrap.CopyingWrapper;
+import foodev.jsondiff.jsonwrap.JzonElement;
+import foodev.jsondiff.jsonwrap.gson.GsonWrapper;
+import foodev.jsondiff.jsonwrap.jackson.JacksonWrapper;
+import foodev.jsondiff.jsonwrap.jackson2.Jackson2Wrapper;
+
+/**
+ * Diffs a deeply nested document against a copy with every leaf changed, with a visitor that accepts every patch, so
+ * every container on the way down is copied and patched for it. Then compares copying a nested document through its
+ * string form, as the visitor check used to, with <code>CopyingWrapper.deepCopy</code> for each wrapper.
+ * 
+ * <pre>
+ * java foodev.jsondiff.VisitorBenchmark [depth] [fanout]
+ * </pre>
+ */
+public class VisitorBenchmark {
+
+	public static void main(String[] args) {
+
+		int depth = args.length > 0 ? Integer.parseInt(args[0]) : 6;
+		int fanout = args.length > 1 ? Integer.parseInt(args[1]) : 4;
+
+		JsonObject from = nested(depth, fanout, 0);
+		JsonObject to = nested(depth, fanout, 1);
+
+		GsonDiff diff = new GsonDiff();
+		diff.setVisitor(new Visitor<JsonElement>() {
+			@Override
+			public boolean shouldCreatePatch(JsonElement from, JsonElement to) {
+				return true;
+			}
+		});
+		diff.diff(from, to);
+		long start = System.nanoTime();
+		JsonObject patch = diff.diff(from, to);
+		System.out.println("diff depth " + depth + ", fanout " + fanout + " with visitor: "
+				+ (System.nanoTime() - start) / 1000000 + " ms, patch " + patch.toString().length() + " chars");
+
+		String json = from.toString();
+		CopyingWrapper[] wrappers = { new GsonWrapper(), new JacksonWrapper(), new Jackson2Wrapper() };
+		for (CopyingWrapper wrapper : wrappers) {
+			JzonElement el = wrapper.parse(json);
+			for (int warmup = 0; warmup < 2; warmup++) {
+				copy(wrapper, el, false);
+				copy(wrapper, el, true);
+			}
+			System.out.println(wrapper.getClass().getSimpleName() + ": parse(toString()) " + copy(wrapper, el, false)
+					+ " ms, deepCopy " + copy(wrapper, el, true) + " ms");
+		}
+
+	}
+
+	static JsonObject nested(int depth, int fanout, int value) {
+		JsonObject obj = new JsonObject();
+		for (int i = 0; i < fanout; i++) {
+			if (depth > 1) {
+				obj.add("k" + i, nested(depth - 1, fanout, value));
+			} else {
+				obj.add("k" + i, new JsonPrimitive(value + i));
+			}
+		}
+		return obj;
+	}
+
+	static long copy(CopyingWrapper wrapper, JzonElement el, boolean deepCopy) {
+		long start = System.nanoTime();
+		for (int i = 0; i < 10; i++) {
+			if (deepCopy) {
+				wrapper.deepCopy(el);
+			} else {
+				wrapper.parse(el.toString());
+			}
+		}
+		return (System.nanoTime() - start) / 1000000;
+	}
+
+}
@@ -0,0 +1,247 @@
+package foodev.jsondiff.incava;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import junit.framework.Assert;
+import junit.framework.TestCase;
+
+import org.junit.Test;
+
+public class SequenceDifferTest extends TestCase {
+
+	static final SequenceDiffer[] ALL = { SequenceDiffers.HUNT_SZYMANSKI, SequenceDiffers.MYERS, SequenceDiffers.LINEAR_MYERS, SequenceDiffers.HISTOGRAM, SequenceDiffers.PATIENCE };
+
+
+	@Test
+	public void testRandomSequences() {
+
+		Random rnd = new Random(42);
+		for (int run = 0; run < 500; run++) {
+
+			long[] a = random(rnd, rnd.nextInt(30), 1 + rnd.nextInt(6));
+			long[] b = random(rnd, rnd.nextInt(30), 1 + rnd.nextInt(6));
+
+			int[] matches = new MyersDiff(a, b).getLongestCommonSubsequences();
+			assertValid(a, b, matches);
+			Assert.assertEquals(lcs(a, b), count(matches));
+
+			List<IncavaEntry> entries = new MyersDiff(a, b).diff();
+			Assert.assertEquals(a.length - count(matches), deleted(entries));
+			Assert.assertEquals(b.length - count(matches), added(entries));
+
+		}
+
+	}
+
+	@Test
+	public void testAllDiffers() {
+
+		Random rnd = new Random(7);
+		for (int run = 0; run < 500; run++) {
+
+			long[] a = random(rnd, rnd.nextInt(60), 1 + rnd.nextInt(20));
+			long[] b = random(rnd, rnd.nextInt(60), 1 + rnd.nextInt(20));
+
+			for (SequenceDiffer differ : ALL) {
+				int[] matches = apply(a, b, differ.diff(a, b));
+				assertValid(a, b, matches);
+				if (differ == SequenceDiffers.MYERS || differ == SequenceDiffers.LINEAR_MYERS || differ == SequenceDiffers.HUNT_SZYMANSKI) {
+					Assert.assertEquals(differ.toString(), lcs(a, b), count(matches));
+				}
+			}
+
+		}
+
+	}
+
+	@Test
+	public void testLinearMyersLongSequences() {
+
+		Random rnd = new Random(11);
+		for (int run = 0; run < 20; run++) {
+
+			long[] a = random(rnd, 20000, 1000);
+			long[] b = a.clone();
+			for (int i = rnd.nextInt(200); i > 0; i--) {
+				b[rnd.nextInt(b.length)] = rnd.nextInt(1000);
+			}
+
+			int[] matches = new LinearMyersDiff(a, b).getLongestCommonSubsequences();
+			assertValid(a, b, matches);
+			Assert.assertEquals(count(new MyersDiff(a, b).getLongestCommonSubsequences()), count(matches));
+
+		}
+
+	}
+
+	@Test
+	public void testParallel() {
+
+		ForkJoinPool pool = new ForkJoinPool(4);
+		ForkJoinPool single = new ForkJoinPool(1);
+		try {
+			SequenceDiffer parallel = SequenceDiffers.parallel(pool);
+			Random rnd = new Random(13);
+			for (int run = 0; run < 20; run++) {
+
+				// mostly unique elements, so there are plenty of anchors
+				long[] a = random(rnd, 50000, 1000000);
+				long[] b = a.clone();
+				for (int i = rnd.nextInt(500); i > 0; i--) {
+					b[rnd.nextInt(b.length)] = rnd.nextInt(10);
+				}
+
+				int[] matches = apply(a, b, parallel.diff(a, b));
+				assertValid(a, b, matches);
+				Assert.assertEquals(SequenceDiffers.parallel(single).diff(a, b), parallel.diff(a, b));
+
+			}
+		} finally {
+			pool.shutdown();
+			single.shutdown();
+		}
+
+	}
+
+	@Test
+	public void testHuntSzymanskiMatchesIncava() {
+
+		Random rnd = new Random(3);
+		for (int run = 0; run < 500; run++) {
+
+			long[] a = random(rnd, rnd.nextInt(40), 1 + rnd.nextInt(10));
+			long[] b = random(rnd, rnd.nextInt(40), 1 + rnd.nextInt(10));
+
+			List<Long> boxedA = new ArrayList<Long>();
+			for (long l : a) {
+				boxedA.add(l);
+			}
+			List<Long> boxedB = new ArrayList<Long>();
+			for (long l : b) {
+				boxedB.add(l);
+			}
+
+			Assert.assertEquals(new IncavaDiff<Long>(boxedA, boxedB).diff(), new HuntSzymanskiDiff(a, b).diff());
+
+		}
+
+	}
+
+	@Test
+	public void testTraceBudget() {
+
+		// beyond the budget the linear space diff takes over, still finding a longest common subsequence
+		Random rnd = new Random(11);
+		for (int run = 0; run < 200; run++) {
+
+			long[] a = random(rnd, rnd.nextInt(60), 1 + rnd.nextInt(20));
+			long[] b = random(rnd, rnd.nextInt(60), 1 + rnd.nextInt(20));
+
+			int[] matches = new MyersDiff(a, b, rnd.nextInt(40)).getLongestCommonSubsequences();
+			assertValid(a, b, matches);
+			Assert.assertEquals(lcs(a, b), count(matches));
+
+		}
+
+	}
+
+	@Test
+	public void testEmpty() {
+
+		Assert.assertTrue(new MyersDiff(new long[0], new long[0]).diff().isEmpty());
+		Assert.assertEquals("[del: [0, -1] add: [0, 1]]", new MyersDiff(new long[0], new long[] { 1, 2 }).diff().toString());
+		Assert.assertEquals("[del: [0, 1] add: [0, -1]]", new MyersDiff(new long[] { 1, 2 }, new long[0]).diff().toString());
+
+	}
+
+	/**
+	 * Replays the entries, returning the implied matches.
+	 */
+	static int[] apply(long[] a, long[] b, List<IncavaEntry> entries) {
+		int[] matches = Matches.none(a.length);
+		int ai = 0, bi = 0;
+		for (IncavaEntry e : entries) {
+			int delStart = e.getDeletedStart();
+			int addStart = e.getAddedStart();
+			while (ai < delStart) {
+				matches[ai++] = bi++;
+			}
+			Assert.assertEquals(bi, addStart);
+			if (e.getDeletedEnd() != IncavaEntry.NONE) {
+				ai = e.getDeletedEnd() + 1;
+			}
+			if (e.getAddedEnd() != IncavaEntry.NONE) {
+				bi = e.getAddedEnd() + 1;
+			}
+		}
+		while (ai < a.length) {
+			matches[ai++] = bi++;
+		}
+		Assert.assertEquals(b.length, bi);
+		return matches;
+	}
+
+	static long[] random(Random rnd, int size, int alphabet) {
+		long[] l = new long[size];
+		for (int i = 0; i < size; i++) {
+			l[i] = rnd.nextInt(alphabet);
+		}
+		return l;
+	}
+
+	static void assertValid(long[] a, long[] b, int[] matches) {
+		Assert.assertEquals(a.length, matches.length);
+		int last = -1;
+		for (int i = 0; i < matches.length; i++) {
+			if (matches[i] != IncavaEntry.NONE) {
+				Assert.assertTrue(matches[i] > last);
+				Assert.assertEquals(a[i], b[matches[i]]);
+				last = matches[i];
+			}
+		}
+	}
+
+	static int count(int[] matches) {
+		int n = 0;
+		for (int m : matches) {
+			if (m != IncavaEntry.NONE) {
+				n++;
+			}
+		}
+		return n;
+	}
+
+	static int deleted(List<IncavaEntry> entries) {
+		int n = 0;
+		for (IncavaEntry e : entries) {
+			if (e.getDeletedEnd() != IncavaEntry.NONE) {
+				n += e.getDeletedEnd() - e.getDeletedStart() + 1;
+			}
+		}
+		return n;
+	}
+
+	static int added(List<IncavaEntry> entries) {
+		int n = 0;
+		for (IncavaEntry e : entries) {
+			if (e.getAddedEnd() != IncavaEntry.NONE) {
+				n += e.getAddedEnd() - e.getAddedStart() + 1;
+			}
+		}
+		return n;
+	}
+
+	static int lcs(long[] a, long[] b) {
+		int[][] t = new int[a.length + 1][b.length + 1];
+		for (int i = a.length - 1; i >= 0; i--) {
+			for (int j = b.length - 1; j >= 0; j--) {
+				t[i][j] = a[i] == b[j] ? t[i + 1][j + 1] + 1 : Math.max(t[i + 1][j], t[i][j + 1]);
+			}
+		}
+		return t[0][0];
+	}
+
+}